@@ -0,0 +1,203 @@
+/**
+ * Renders board images of game positions to PNG files without creating the user interface, so it can run on a server with java.awt.headless=true.
+ * Usage: BatchRenderer [-out directory] [-size pixels] [-threads count] [-plies all|last|n,n,...] file.pgn ...
+ */
+
+package chessreplayer.controller;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import chessreplayer.model.Game;
+import chessreplayer.model.GameCursor;
+import chessreplayer.move.IllegalPromotionException;
+import chessreplayer.move.InvalidMoveException;
+import chessreplayer.parser.PortableGameNotationException;
+import chessreplayer.parser.PortableGameNotationParser;
+import chessreplayer.view.BoardPanel;
+import chessreplayer.view.BoardRenderer;
+import chessreplayer.view.ChessImage;
+import chessreplayer.view.ChessImageException;
+
+public class BatchRenderer
+{
+	private ChessPropertiesReader properties;
+	private File outputDirectory;
+	private int size;
+	private int[] plies; // Plies to render, null means every ply. A negative ply is counted from the end of the game, -1 being the last ply.
+
+	public BatchRenderer( ChessPropertiesReader properties, File outputDirectory, int size, int[] plies)
+	{
+		this.properties = properties;
+		this.outputDirectory = outputDirectory;
+		this.size = size;
+		this.plies = plies;
+	}
+
+	/* Render the games in the given files using a pool with the given number of threads. Each game is parsed, validated, replayed and
+	 * written by a single task, with a board renderer of its own. Return the number of images written. If a game cannot be rendered,
+	 * its error is printed and the other games are still rendered.
+	 */
+	public int renderAll( ArrayList<File> inputFiles, int threadCount) throws InterruptedException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool( threadCount);
+		ArrayList<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+
+		for( final File inputFile : inputFiles)
+		{
+			futures.add( executor.submit( new Callable<Integer>()
+				{
+					public Integer call() throws Exception
+					{
+						return render( inputFile);
+					}
+				}
+			));
+		}
+		executor.shutdown();
+
+		int imageCount = 0;
+		for( int i = 0; i < futures.size(); i++)
+		{
+			try {
+				imageCount += futures.get( i).get();
+			} catch( ExecutionException e) {
+				System.err.println( "Cannot render " + inputFiles.get( i).getPath() + ": " + e.getCause().getMessage());
+			}
+		}
+
+		return imageCount;
+	}
+
+	/* Render the game in the given file. Replay the game from the start and write an image for each selected ply,
+	 * named after the input file and the ply, e.g. game_012.png for the position after the 12th ply. Return the number of images written.
+	 */
+	public int render( File inputFile) throws PortableGameNotationException, IOException, InvalidMoveException, IllegalPromotionException
+	{
+		Game game = new PortableGameNotationParser().parse( inputFile);
+		game.validateMoves();
+		GameCursor cursor = new GameCursor( game);
+
+		boolean[] selected = selectPlies( game.getMoveCount());
+		BoardRenderer renderer = new BoardRenderer( properties);
+		renderer.initialize();
+
+		String baseName = inputFile.getName();
+		if( baseName.lastIndexOf( '.') > 0)
+			baseName = baseName.substring( 0, baseName.lastIndexOf( '.'));
+
+		int imageCount = 0;
+		for( int ply = 0; ply < selected.length; ply++)
+		{
+			if( ply > 0)
+				cursor.playTurn();
+
+			if( selected[ply])
+			{
+				BufferedImage image = renderer.render( cursor, size);
+				ImageIO.write( image, "png", new File( outputDirectory, baseName + "_" + String.format( "%03d", ply) + ".png"));
+				imageCount++;
+			}
+		}
+
+		return imageCount;
+	}
+
+	// Find which plies of a game with the given number of moves are rendered. Ply 0 is the starting position.
+	private boolean[] selectPlies( int moveCount)
+	{
+		boolean[] selected = new boolean[ moveCount + 1];
+
+		if( plies == null)
+			Arrays.fill( selected, true);
+		else
+		{
+			for( int ply : plies)
+			{
+				int index = ply < 0 ? moveCount + 1 + ply : ply;
+				if( index >= 0 && index <= moveCount)
+					selected[index] = true;
+			}
+		}
+
+		return selected;
+	}
+
+	// Parse the given comma separated list of plies. "all" selects every ply, and "last" selects the last ply.
+	private static int[] parsePlies( String text)
+	{
+		if( "all".equals( text))
+			return null;
+
+		String[] parts = text.split( ",");
+		int[] plies = new int[ parts.length];
+		for( int i = 0; i < parts.length; i++)
+			plies[i] = "last".equals( parts[i].trim()) ? -1 : Integer.parseInt( parts[i].trim());
+
+		return plies;
+	}
+
+	public static void main( String[] args) throws InterruptedException
+	{
+		// Never open a window, even if a display is available
+		System.setProperty( "java.awt.headless", "true");
+
+		File outputDirectory = new File( ".");
+		int size = BoardPanel.SIZE;
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		int[] plies = null;
+		ArrayList<File> inputFiles = new ArrayList<File>();
+
+		try {
+			for( int i = 0; i < args.length; i++)
+			{
+				if( "-out".equals( args[i]))
+					outputDirectory = new File( args[++i]);
+				else if( "-size".equals( args[i]))
+					size = Integer.parseInt( args[++i]);
+				else if( "-threads".equals( args[i]))
+					threadCount = Math.max( 1, Integer.parseInt( args[++i]));
+				else if( "-plies".equals( args[i]))
+					plies = parsePlies( args[++i]);
+				else
+					inputFiles.add( new File( args[i]));
+			}
+		} catch( ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			inputFiles.clear();
+		}
+
+		if( inputFiles.isEmpty())
+		{
+			System.err.println( "Usage: BatchRenderer [-out directory] [-size pixels] [-threads count] [-plies all|last|n,n,...] file.pgn ...");
+			System.exit( 1);
+		}
+
+		if( !outputDirectory.isDirectory() && !outputDirectory.mkdirs())
+		{
+			System.err.println( "Cannot create the output directory " + outputDirectory.getPath());
+			System.exit( 1);
+		}
+
+		ChessProperties properties = new ChessProperties();
+		try {
+			ChessImage.loadImages( properties);
+		} catch( ChessImageException e) {
+			System.err.println( e.getMessage());
+			System.exit( 1);
+		}
+
+		long startTime = System.currentTimeMillis();
+		int imageCount = new BatchRenderer( properties, outputDirectory, size, plies).renderAll( inputFiles, threadCount);
+		System.out.println( imageCount + " images written to " + outputDirectory.getPath() + " in " + (System.currentTimeMillis() - startTime) + " ms");
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * An immutable snapshot of the properties, with their values already parsed. 
+ * It's created by ChessProperties whenever the properties are loaded, saved or set, and read by its getters.
+ */
+
+package chessreplayer.controller;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class ChessConfiguration
+{
+	private final int turnTime;
+	private final String frameTitle;
+	private final String whiteWinsText;
+	private final String blackWinsText;
+	private final String drawText;
+	private final Map<String, String> filePaths; // Image file paths, with property names as keys
+	
+	public ChessConfiguration( int turnTime, String frameTitle, String whiteWinsText, String blackWinsText, String drawText, Map<String, String> filePaths)
+	{
+		this.turnTime = turnTime;
+		this.frameTitle = frameTitle;
+		this.whiteWinsText = whiteWinsText;
+		this.blackWinsText = blackWinsText;
+		this.drawText = drawText;
+		this.filePaths = Collections.unmodifiableMap( new HashMap<String, String>( filePaths));
+	}
+	
+	public int getTurnTime()
+	{
+		return turnTime;
+	}
+	
+	public String getFrameTitle()
+	{
+		return frameTitle;
+	}
+	
+	public String getWhiteWinsText()
+	{
+		return whiteWinsText;
+	}
+	
+	public String getBlackWinsText()
+	{
+		return blackWinsText;
+	}
+	
+	public String getDrawText()
+	{
+		return drawText;
+	}
+	
+	// Return the image file path of the property with the given name
+	public String getFilePath( String propertyName)
+	{
+		return filePaths.get( propertyName);
+	}
+	
+	// Return all the image file paths
+	public Collection<String> getFilePaths()
+	{
+		return filePaths.values();
+	}
+}
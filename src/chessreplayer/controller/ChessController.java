@@ -4,33 +4,87 @@
 
 package chessreplayer.controller;
 
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.io.File;
+import java.io.FileFilter;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JOptionPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 
 import chessreplayer.model.Game;
+import chessreplayer.model.GameCursor;
+import chessreplayer.model.Variation;
 import chessreplayer.move.IllegalPromotionException;
 import chessreplayer.move.InvalidMoveException;
 import chessreplayer.parser.PortableGameNotationException;
-import chessreplayer.parser.PortableGameNotationParser;
+import chessreplayer.view.BoardPanel;
 import chessreplayer.view.ChessFrame;
 import chessreplayer.view.ChessImage;
 import chessreplayer.view.ChessImageException;
 
 public class ChessController
 {
-	private Game game;
+	private GameCursor cursor; // Replay of the loaded game
 	private ChessFrame view;
-	private PortableGameNotationParser parser;
 	private String inputFilePath;
+	private long gameOffset; // Offset of the loaded game in its file, which may hold several games
+	private long nextGameOffset = GameCache.NO_OFFSET; // Offset of the game following the loaded game in its file
+	private final ArrayList<Long> gameOffsets = new ArrayList<Long>(); // Offsets of the games of the loaded file found so far, in the order of the file
+	private SwingWorker<Game, Game> loader;
+	private GameFollower follower; // Follows the file of the loaded game as it's written, in follow mode
+	private int followedMoveCount; // Number of validated moves of the followed game when it was last shown
+	private static final int VALIDATION_STEP_SIZE = 64; // Number of moves validated at each step of loading a game
+	
+	// Loaded games are cached, and the next few games of the same file or folder are prefetched while a game is replayed
+	private final GameCache gameCache = new GameCache( GAME_CACHE_CAPACITY);
+	private static final int GAME_CACHE_CAPACITY = 8;
+	private static final int PREFETCH_COUNT = 2;
 	
 	private boolean imagesLoaded;
-	private boolean autoPlay;
-	private Thread autoPlayThread;
+	private volatile boolean autoPlay;
+	private ScheduledFuture<?> autoPlayTask;
+	
+	// A single scheduler thread shared by all auto plays, so that starting auto play doesn't create a new thread every time
+	private static final ScheduledExecutorService autoPlayScheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory()
+		{
+			public Thread newThread( Runnable runnable)
+			{
+				Thread thread = new Thread( runnable, "Auto Play");
+				thread.setDaemon( true);
+				return thread;
+			}
+		}
+	);
+	
+	private Timer fastForwardTimer;
+	private static final int DEFAULT_REFRESH_RATE = 60; // Used if the refresh rate of the display cannot be found
 	
 	private volatile ChessProperties properties = new ChessProperties();
 	
+	// Start time of the application, used to measure the startup time when the chessreplayer.startupTime system property is true
+	private static long startTime;
+	private static final String STARTUP_TIME_PROPERTY_NAME = "chessreplayer.startupTime";
+	
 	public ChessController()
 	{
 		// Create the main frame
@@ -42,6 +96,11 @@ public class ChessController
 			ChessImage.loadImages( properties);
 			imagesLoaded = true;
 			view.initialize( properties);
+			if( Boolean.getBoolean( STARTUP_TIME_PROPERTY_NAME))
+				printStartupTime();
+			
+			// Reload the properties and the images when their files change
+			new ConfigurationWatcher( this).start();
 		} catch( ChessImageException e) {
 			JOptionPane.showMessageDialog( view, e.getMessage(), "Image IO Error", JOptionPane.ERROR_MESSAGE);
 			e.printStackTrace();
@@ -50,6 +109,21 @@ public class ChessController
 		this.setAutoPlay( false); // Autoplay is turned off by default
 	}
 	
+	/* Print the time from the start of the application until the initialized frame is shown. The time is printed by the event dispatch thread, 
+	 * after the events queued while the frame is initialized, e.g. its paint, are dispatched.
+	 */
+	private static void printStartupTime()
+	{
+		SwingUtilities.invokeLater( new Runnable()
+			{
+				public void run()
+				{
+					System.out.println( "Startup time (main to frame shown): " + ( System.nanoTime() - startTime) / 1000000 + " ms");
+				}
+			}
+		);
+	}
+	
 	private boolean isAutoPlay()
 	{
 		return autoPlay;
@@ -80,106 +154,672 @@ public class ChessController
 		return imagesLoaded;
 	}
 	
-	// Reset the board and load a new game
+	/* Apply the configuration after its files are reloaded by the configuration watcher. If the properties file is reloaded, 
+	 * the given properties are copied to the properties, otherwise the given properties are null and only images are reloaded. 
+	 * Changes of turn time are used by the next auto play. Called in the event dispatch thread.
+	 */
+	public void reloadConfiguration( ChessProperties reloadedProperties)
+	{
+		if( reloadedProperties != null)
+			properties.set( reloadedProperties);
+		
+		view.reloadConfiguration( properties.getFrameTitle());
+		this.updateView();
+	}
+	
+	/* Reset the board and load a new game in the background, so the user interface doesn't freeze while a large file is loaded. 
+	 * The file is parsed and then its moves are validated in steps. The board is shown as soon as the first step is validated, 
+	 * and the moves can be played up to the last validated move meanwhile. A progress monitor shows the progress, and loading 
+	 * can be cancelled from it. If a previous load is still in progress, it is cancelled. If the game is cached, it's taken from the cache instead, 
+	 * waiting for it if it's still being prefetched. After the game is loaded, the next games of the same file or folder are prefetched.
+	 */
 	public void loadGame( File inputFile)
 	{
-		boolean error = false;
+		loadGame( inputFile, 0);
+	}
+	
+	// Load the game at the given offset of the given file, which may hold several games one after another.
+	private void loadGame( final File inputFile, final long offset)
+	{
+		if( loader != null)
+			loader.cancel( true);
+		stopFollowing();
+		
 		view.reset();
+		synchronized( this)
+		{
+			cursor = null;
+		}
 		
-		// Parse the given file and initialize the board
-		try {
-			parser = new PortableGameNotationParser();
-			game = parser.parse( inputFile);
-			game.initializeBoard();
-		} catch( PortableGameNotationException e) {
-			error = true;
-			JOptionPane.showMessageDialog( view, e.getMessage(), "Portable Game Notation Error", JOptionPane.ERROR_MESSAGE);
-			e.printStackTrace();
-		} catch( IOException e) {
-			error = true;
-			JOptionPane.showMessageDialog( view, e.getMessage(), "IO Error", JOptionPane.ERROR_MESSAGE);
-			e.printStackTrace();
+		final ProgressMonitor progressMonitor = new ProgressMonitor( view, "Loading " + inputFile.getName(), "Parsing...", 0, 100);
+		progressMonitor.setMillisToDecideToPopup( 100);
+		
+		final SwingWorker<Game, Game> worker = new SwingWorker<Game, Game>()
+			{
+				private long nextOffset = GameCache.NO_OFFSET; // Offset of the next game of the file, found after the game is loaded
+				
+				@Override
+				protected Game doInBackground() throws Exception
+				{
+					Future<Game> cachedGame = gameCache.get( inputFile, offset);
+					if( cachedGame != null)
+					{
+						Game loadedGame;
+						try {
+							loadedGame = cachedGame.get();
+						} catch( ExecutionException e) {
+							// Report the error of the prefetch, as if it occurred while loading
+							if( e.getCause() instanceof Exception)
+								throw (Exception) e.getCause();
+							throw e;
+						}
+						
+						nextOffset = GameCache.findNextGameOffset( inputFile, offset);
+						return loadedGame;
+					}
+					
+					Game loadedGame = GameCache.readGame( inputFile, offset);
+					
+					// Validate the moves in steps, and show the board after the first step
+					int moveCount = loadedGame.getMoveCount();
+					do
+					{
+						if( this.isCancelled())
+							return null;
+						
+						int validatedMoveCount = loadedGame.validateMoves( VALIDATION_STEP_SIZE);
+						if( validatedMoveCount <= VALIDATION_STEP_SIZE)
+							this.publish( loadedGame);
+						this.setProgress( moveCount == 0 ? 100 : validatedMoveCount * 100 / moveCount);
+					} while( loadedGame.getValidatedMoveCount() < moveCount);
+					
+					gameCache.put( inputFile, offset, loadedGame);
+					nextOffset = GameCache.findNextGameOffset( inputFile, offset);
+					return loadedGame;
+				}
+				
+				// Called on the event dispatch thread. Show the board with the partially validated game.
+				@Override
+				protected void process( List<Game> chunks)
+				{
+					if( !this.isCancelled())
+						showGame( chunks.get( 0));
+				}
+				
+				// Called on the event dispatch thread. Show the completely validated game, or the error that occurred while loading it.
+				@Override
+				protected void done()
+				{
+					progressMonitor.close();
+					if( this.isCancelled())
+						return;
+					
+					try {
+						Game loadedGame = this.get();
+						setLoadedGame( inputFile, offset, nextOffset);
+						showGame( loadedGame);
+						prefetchNextGames( inputFile);
+					} catch( InterruptedException e) {
+						// Nothing to do
+					} catch( ExecutionException e) {
+						showLoadError( e.getCause());
+					}
+				}
+			};
+		
+		worker.addPropertyChangeListener( new PropertyChangeListener()
+			{
+				public void propertyChange( PropertyChangeEvent event)
+				{
+					if( "progress".equals( event.getPropertyName()))
+					{
+						progressMonitor.setNote( "Validating moves...");
+						progressMonitor.setProgress( (Integer) event.getNewValue());
+					}
+					
+					if( progressMonitor.isCanceled())
+						worker.cancel( true);
+				}
+			}
+		);
+		
+		loader = worker;
+		worker.execute();
+	}
+	
+	/* Load the game in the given file in follow mode: the file is watched, and as moves are appended to it, only the new bytes are parsed 
+	 * and only the new moves are validated. If the last move is shown when new moves arrive, the board advances to the last new move.
+	 * Follow mode ends when another game is loaded.
+	 */
+	public void followGame( File inputFile)
+	{
+		if( loader != null)
+			loader.cancel( true);
+		stopFollowing();
+		
+		view.reset();
+		synchronized( this)
+		{
+			cursor = null;
 		}
 		
-		// Validate the moves in the file
-		try {
-			game.validateMoves();
-		} catch( InvalidMoveException e) {
-			error = true;
-			JOptionPane.showMessageDialog( view, e.getMessage(), "Invalid Move", JOptionPane.ERROR_MESSAGE);
-			e.printStackTrace();
-		} catch( IllegalPromotionException e) {
-			error = true;
-			JOptionPane.showMessageDialog( view, e.getMessage(), "Illegal Promotion", JOptionPane.ERROR_MESSAGE);
-			e.printStackTrace();
+		setLoadedGame( inputFile, 0, GameCache.NO_OFFSET);
+		follower = new GameFollower( this, inputFile);
+		follower.start();
+	}
+	
+	// Stop following the file of the loaded game, if it's followed. The moves read so far can still be replayed.
+	public void stopFollowing()
+	{
+		if( follower != null)
+		{
+			follower.stop();
+			follower = null;
+		}
+	}
+	
+	/* Show the followed game after new moves are appended to it. If it's a new game, it's shown from its end. Otherwise, the move list is updated, 
+	 * and the board advances to the last move if the last move was shown before. Called in the event dispatch thread.
+	 */
+	void showFollowedGame( Game followedGame)
+	{
+		boolean isNewGame;
+		synchronized( this)
+		{
+			isNewGame = ( cursor == null || cursor.getGame() != followedGame);
+		}
+		
+		if( isNewGame)
+			showGame( followedGame);
+		
+		synchronized( this)
+		{
+			boolean atLastMove = isNewGame || cursor.getLastPlayedMoveIndex() == followedMoveCount;
+			followedMoveCount = followedGame.getValidatedMoveCount();
+			
+			if( !isNewGame)
+				view.initializeModel( cursor);
+			if( atLastMove)
+			{
+				while( cursor.getLastPlayedMoveIndex() < followedMoveCount)
+					cursor.playTurn();
+			}
+			view.updateView( cursor);
+		}
+	}
+	
+	// Show the error that occurred while following a game, and stop following it.
+	void showFollowError( Throwable error)
+	{
+		stopFollowing();
+		showLoadError( error);
+	}
+	
+	/* Record the file and the offset of the loaded game, and the offset of the game following it. The offsets of the games of a file 
+	 * are collected as the file's games are loaded one after another, so that the previous game of the file can be found too.
+	 */
+	private void setLoadedGame( File inputFile, long offset, long nextOffset)
+	{
+		if( inputFilePath == null || !new File( inputFilePath).getAbsoluteFile().equals( inputFile.getAbsoluteFile()))
+			gameOffsets.clear();
+		
+		setInputFilePath( inputFile.getPath());
+		gameOffset = offset;
+		nextGameOffset = nextOffset;
+		if( !gameOffsets.contains( offset))
+		{
+			gameOffsets.add( offset);
+			Collections.sort( gameOffsets);
+		}
+	}
+	
+	/* Load the next game (if the given direction is positive) or the previous game (if it is negative). The next and the previous games 
+	 * of the loaded file are loaded first, and then the games in the next or the previous file in the folder of the loaded game.
+	 */
+	public void loadAdjacentGame( int direction)
+	{
+		if( inputFilePath == null)
+		{
+			JOptionPane.showMessageDialog( view, "Please load a PGN file first.", "Load Game", JOptionPane.INFORMATION_MESSAGE);
+			return;
 		}
 		
-		// If everything is OK with the given file, make the remaining connections between MVC parts
-		if( !error)
+		File inputFile = new File( inputFilePath).getAbsoluteFile();
+		int gameIndex = gameOffsets.indexOf( gameOffset);
+		if( direction > 0 && nextGameOffset != GameCache.NO_OFFSET)
+		{
+			loadGame( inputFile, nextGameOffset);
+			return;
+		}
+		else if( direction < 0 && gameIndex > 0)
+		{
+			loadGame( inputFile, gameOffsets.get( gameIndex - 1));
+			return;
+		}
+		
+		File[] gameFiles = findGameFiles( inputFile.getParentFile());
+		int index = Arrays.asList( gameFiles).indexOf( inputFile) + direction;
+		
+		if( index < 0 || index >= gameFiles.length)
+			JOptionPane.showMessageDialog( view, "There are no more PGN files in the folder.", "Load Game", JOptionPane.INFORMATION_MESSAGE);
+		else
+			loadGame( gameFiles[index]);
+	}
+	
+	// Prefetch the next game of the given file, if the loaded game isn't its last game, and the games in the files following it in its folder
+	private void prefetchNextGames( File inputFile)
+	{
+		int prefetchCount = 0;
+		if( nextGameOffset != GameCache.NO_OFFSET)
+		{
+			gameCache.prefetch( inputFile, nextGameOffset);
+			prefetchCount++;
+		}
+		
+		inputFile = inputFile.getAbsoluteFile();
+		File[] gameFiles = findGameFiles( inputFile.getParentFile());
+		int index = Arrays.asList( gameFiles).indexOf( inputFile);
+		
+		for( int i = index + 1; prefetchCount < PREFETCH_COUNT && i < gameFiles.length; i++, prefetchCount++)
+			gameCache.prefetch( gameFiles[i], 0);
+	}
+	
+	// Return the PGN files in the given folder, sorted by their names
+	private static File[] findGameFiles( File folder)
+	{
+		File[] gameFiles = ( folder == null) ? null : folder.listFiles( new FileFilter()
+			{
+				public boolean accept( File file)
+				{
+					return file.isFile() && file.getName().toLowerCase().endsWith( ".pgn");
+				}
+			}
+		);
+		
+		if( gameFiles == null)
+			return new File[0];
+		
+		Arrays.sort( gameFiles);
+		return gameFiles;
+	}
+	
+	/* Make the given game the current game and show it from its beginning with a new cursor, or update the view if it's already the current game. 
+	 * A game taken from the cache is replayed by a new cursor, so it doesn't need to be reset.
+	 */
+	private void showGame( Game loadedGame)
+	{
+		boolean isNewGame;
+		GameCursor loadedCursor;
+		synchronized( this)
+		{
+			isNewGame = ( cursor == null || cursor.getGame() != loadedGame);
+			if( isNewGame)
+				cursor = new GameCursor( loadedGame);
+			loadedCursor = cursor;
+		}
+		
+		if( isNewGame)
 		{
 			view.registerController( this);
-			view.initializeModel( game);
-			view.updateView( game);
+			view.initializeModel( loadedCursor);
+		}
+		view.updateView( loadedCursor);
+	}
+	
+	// Show the given error that occurred while loading a game, and reset the board.
+	private void showLoadError( Throwable error)
+	{
+		String title;
+		if( error instanceof PortableGameNotationException)
+			title = "Portable Game Notation Error";
+		else if( error instanceof IOException)
+			title = "IO Error";
+		else if( error instanceof InvalidMoveException)
+			title = "Invalid Move";
+		else if( error instanceof IllegalPromotionException)
+			title = "Illegal Promotion";
+		else
+			title = "Error";
+		
+		view.reset();
+		synchronized( this)
+		{
+			cursor = null;
+		}
+		
+		JOptionPane.showMessageDialog( view, error.getMessage(), title, JOptionPane.ERROR_MESSAGE);
+		error.printStackTrace();
+	}
+	
+	/* Export the replay of the loaded game to the given output in the background, either as an animated GIF file or as PNG frames in the given directory. 
+	 * The loaded game is replayed by a cursor of its own for the export, so the replay on the board is not affected. If the game is still being validated, 
+	 * it's read again from its offset in its file instead. A message is shown when the export is completed.
+	 */
+	public void exportReplay( final File output, final boolean frames)
+	{
+		if( inputFilePath == null)
+		{
+			JOptionPane.showMessageDialog( view, "Please load a PGN file first.", "Export Replay", JOptionPane.INFORMATION_MESSAGE);
+			return;
+		}
+		
+		final File inputFile = new File( inputFilePath);
+		final long offset = gameOffset;
+		final Game loadedGame;
+		synchronized( this)
+		{
+			loadedGame = ( cursor == null) ? null : cursor.getGame();
 		}
+		
+		final ReplayExporter exporter = new ReplayExporter( properties, BoardPanel.SIZE);
+		Thread exportThread = new Thread( new Runnable()
+			{
+				public void run()
+				{
+					String message;
+					int messageType;
+					try {
+						Game exportedGame;
+						if( loadedGame != null && loadedGame.getValidatedMoveCount() == loadedGame.getMoveCount())
+							exportedGame = loadedGame;
+						else
+							exportedGame = ReplayExporter.loadGame( inputFile, offset);
+						int frameCount;
+						if( frames)
+						{
+							String baseName = inputFile.getName();
+							if( baseName.lastIndexOf( '.') > 0)
+								baseName = baseName.substring( 0, baseName.lastIndexOf( '.'));
+							frameCount = exporter.exportFrames( exportedGame, output, baseName);
+						}
+						else
+							frameCount = exporter.exportGif( exportedGame, output);
+						
+						message = frameCount + " frames written to " + output.getPath();
+						messageType = JOptionPane.INFORMATION_MESSAGE;
+					} catch( Exception e) {
+						message = "Cannot export the replay: " + e.getMessage();
+						messageType = JOptionPane.ERROR_MESSAGE;
+						e.printStackTrace();
+					}
+					
+					final String finalMessage = message;
+					final int finalMessageType = messageType;
+					SwingUtilities.invokeLater( new Runnable()
+						{
+							public void run()
+							{
+								JOptionPane.showMessageDialog( view, finalMessage, "Export Replay", finalMessageType);
+							}
+						}
+					);
+				}
+			}, "Replay Export");
+		exportThread.setDaemon( true);
+		exportThread.start();
 	}
 	
 	// Start automatic playing and go on until either the auto play is stopped, or the game ends
 	public synchronized void startAutoPlay()
 	{
+		// Cancel the previous auto play, if it's still scheduled
+		if( autoPlayTask != null)
+			autoPlayTask.cancel( false);
+		
 		this.setAutoPlay( true);
 		
-		autoPlayThread = new Thread( new Runnable()
+		/* Execute moves at a fixed rate, one every turn time milliseconds from the start, so that the time spent playing and painting a move 
+		 * doesn't add up as drift. If the runs are delayed, e.g. by a busy event dispatch thread, the scheduler runs the missed ones back to back; 
+		 * a run more than half a turn late is skipped, so the moves aren't played in a burst to catch up. The task is stored before 
+		 * its first run, which waits for the lock held here to end the auto play.
+		 */
+		final long turnTime = TimeUnit.MILLISECONDS.toNanos( properties.getTurnTime());
+		final long startTime = System.nanoTime();
+		final ScheduledFuture<?>[] task = new ScheduledFuture<?>[1];
+		task[0] = autoPlayScheduler.scheduleAtFixedRate( new Runnable()
 			{
+				private long turnCount = 0;
+				
 				public void run()
 				{
-					while( !game.hasEnded() && isAutoPlay())
-					{
-						// Execute moves one after another, and wait for turn time milliseconds between each move
-						try {
-							Thread.sleep( properties.getTurnTime());
-						}  catch (InterruptedException e) {
-							break;
-						}
+					turnCount++;
+					if( hasGameEnded() || !isAutoPlay())
+						endAutoPlay( task[0]);
+					else if( System.nanoTime() - ( startTime + turnCount * turnTime) < turnTime / 2) // Skip the turns that are already mostly passed
 						playMove();
-					}
-					view.updateView( game);
 				}
-			}
+			}, turnTime, turnTime, TimeUnit.NANOSECONDS
 		);
-		
-		autoPlayThread.start();
+		autoPlayTask = task[0];
 	}
 	
-	// Stop automatic playing
+	// Stop automatic playing, and update the view so that the buttons disabled during auto play are enabled again
 	public synchronized void stopAutoPlay()
 	{
 		this.setAutoPlay( false);
-		if( autoPlayThread != null && autoPlayThread.isAlive())
-			autoPlayThread.interrupt();
+		cancelAutoPlayTask();
+		updateView();
+	}
+	
+	// Cancel the scheduled auto play task. A move that is being played is allowed to complete.
+	private synchronized void cancelAutoPlayTask()
+	{
+		if( autoPlayTask != null)
+		{
+			autoPlayTask.cancel( false);
+			autoPlayTask = null;
+		}
+	}
+	
+	/* End the auto play of the given task, which ran at the end of the game or after the auto play was stopped. Only the given task is cancelled, 
+	 * and the auto play is turned off only if it's still the current task, so that an old task doesn't end an auto play started after it.
+	 */
+	private synchronized void endAutoPlay( ScheduledFuture<?> task)
+	{
+		task.cancel( false);
+		if( autoPlayTask == task)
+		{
+			autoPlayTask = null;
+			this.setAutoPlay( false);
+		}
+		updateView();
+	}
+	
+	/* Start fast forward, which plays the given number of moves per second until either the fast forward is stopped, or the game ends. 
+	 * The moves are played at model speed, but the view is only updated once per display refresh, no matter how many moves are played in between.
+	 */
+	public synchronized void startFastForward( final int movesPerSecond)
+	{
+		if( fastForwardTimer != null)
+			fastForwardTimer.stop();
+		
+		final int refreshInterval = getRefreshInterval();
+		fastForwardTimer = new Timer( refreshInterval, new ActionListener()
+			{
+				private long lastTickTime = System.nanoTime();
+				private double pendingMoves = 0;
+				
+				public void actionPerformed( ActionEvent event)
+				{
+					// Find how many moves are due since the last tick. Keep the fractional part for the next tick, so that low speeds are also kept.
+					long now = System.nanoTime();
+					pendingMoves += movesPerSecond * ( now - lastTickTime) / 1000000000.0d;
+					lastTickTime = now;
+					
+					int moveCount = (int) pendingMoves;
+					pendingMoves -= moveCount;
+					
+					if( hasGameEnded())
+						stopFastForward();
+					else if( moveCount > 0)
+						playMoves( moveCount);
+				}
+			}
+		);
+		fastForwardTimer.setCoalesce( true);
+		fastForwardTimer.start();
+	}
+	
+	// Stop fast forward, and update the view so that the buttons disabled during fast forward are enabled again
+	public synchronized void stopFastForward()
+	{
+		if( fastForwardTimer != null)
+		{
+			fastForwardTimer.stop();
+			fastForwardTimer = null;
+		}
+		updateView();
+	}
+	
+	// Play the given number of moves, or until the game ends, and update the view only once after all of them are played
+	public synchronized void playMoves( int moveCount)
+	{
+		if( cursor == null)
+			return;
+		
+		for( int i = 0; i < moveCount && cursor.canPlayTurn(); i++)
+			cursor.playTurn();
+		
+		view.updateView( cursor);
+	}
+	
+	// Find the interval between two refreshes of the display in milliseconds, which is the interval fast forward updates the view with
+	private static int getRefreshInterval()
+	{
+		int refreshRate = DEFAULT_REFRESH_RATE;
+		
+		if( !GraphicsEnvironment.isHeadless())
+		{
+			DisplayMode displayMode = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode();
+			if( displayMode != null && displayMode.getRefreshRate() != DisplayMode.REFRESH_RATE_UNKNOWN)
+				refreshRate = displayMode.getRefreshRate();
+		}
+		
+		return Math.max( 1, 1000 / refreshRate);
+	}
+	
+	// Return true if there is no game loaded, or the loaded game has ended
+	private synchronized boolean hasGameEnded()
+	{
+		return( cursor == null || cursor.hasEnded());
 	}
 	
-	// If the game hasn't ended, play one move
+	// Update the view using the loaded game, if there is one
+	private synchronized void updateView()
+	{
+		if( cursor != null)
+			view.updateView( cursor);
+	}
+	
+	// If the game hasn't ended and the next move is validated, play one move
 	public synchronized void playMove()
 	{
-		if( !game.hasEnded())
+		if( cursor != null && cursor.canPlayTurn())
 		{
-			game.playTurn();
-			view.updateView( game);
+			cursor.playTurn();
+			view.updateView( cursor);
 		}
 	}
 	
 	// If the game has started, take back one turn
 	public synchronized void takeBackMove()
 	{
-		if( game.hasStarted())
+		if( cursor != null && cursor.hasStarted())
+		{
+			cursor.takeBackTurn();
+			view.updateView( cursor);
+		}
+	}
+	
+	/* Enter a variation of the last played move, chosen by the user if the move has several variations. The variation replaces the last played move, 
+	 * so the first move of the variation is shown instead of it.
+	 */
+	public void enterVariation()
+	{
+		int moveIndex;
+		List<Variation> variations;
+		synchronized( this)
+		{
+			if( cursor == null || !cursor.hasStarted())
+				return;
+			
+			moveIndex = cursor.getLastPlayedMoveIndex() - 1;
+			variations = cursor.getVariations( moveIndex);
+		}
+		
+		if( variations.isEmpty())
+		{
+			JOptionPane.showMessageDialog( view, "There are no variations of the last played move.", "Enter Variation", JOptionPane.INFORMATION_MESSAGE);
+			return;
+		}
+		
+		int variationIndex = 0;
+		if( variations.size() > 1)
 		{
-			game.takeBackTurn();
-			view.updateView( game);
+			Object[] options = variations.toArray();
+			Object choice = JOptionPane.showInputDialog( view, "Choose a variation of the last played move:", "Enter Variation", 
+															JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+			if( choice == null)
+				return;
+			
+			variationIndex = variations.indexOf( choice);
 		}
+		
+		enterVariation( moveIndex, variationIndex);
+	}
+	
+	/* Enter the variation with the given index among the variations replacing the move at the given index of the line being replayed, 
+	 * and play the moves up to the first move of the variation. The variation is validated first, and if it has an invalid move, it's not entered.
+	 */
+	public void enterVariation( int moveIndex, int variationIndex)
+	{
+		Exception error = null;
+		synchronized( this)
+		{
+			if( cursor == null)
+				return;
+			
+			List<Variation> variations = cursor.getVariations( moveIndex);
+			if( variationIndex < 0 || variationIndex >= variations.size())
+				return;
+			
+			try {
+				cursor.enterVariation( variations.get( variationIndex));
+				while( cursor.getLastPlayedMoveIndex() <= moveIndex && cursor.canPlayTurn())
+					cursor.playTurn();
+				
+				view.initializeModel( cursor);
+				view.updateView( cursor);
+			} catch( InvalidMoveException | IllegalPromotionException e) {
+				error = e;
+			}
+		}
+		
+		if( error != null)
+			JOptionPane.showMessageDialog( view, "Cannot enter the variation: " + error.getMessage(), "Invalid Move", JOptionPane.ERROR_MESSAGE);
+	}
+	
+	/* Leave the variation being replayed and go back to its parent line. If the first move of the variation was shown, the move of the parent line 
+	 * that the variation replaces is shown instead.
+	 */
+	public synchronized void leaveVariation()
+	{
+		if( cursor == null || cursor.getVariation() == null)
+			return;
+		
+		int branchIndex = cursor.getVariation().getBranchIndex();
+		boolean branchShown = cursor.getLastPlayedMoveIndex() > branchIndex;
+		cursor.leaveVariation();
+		if( branchShown)
+			cursor.playTurn();
+		
+		view.initializeModel( cursor);
+		view.updateView( cursor);
 	}
 	
 	public static void main( String[] args)
 	{
+		startTime = System.nanoTime();
 		new ChessController();
 	}
 }
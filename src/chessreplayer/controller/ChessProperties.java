@@ -8,6 +8,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Properties;
 
 public class ChessProperties implements ChessPropertiesReader
@@ -17,10 +18,17 @@ public class ChessProperties implements ChessPropertiesReader
 	private static final Properties defaultProperties;
 	private Properties properties;
 	
+	/* Configuration created from the properties. Getters read the configuration, so they don't parse the properties on every call. 
+	 * Setters change the properties, which take effect when they are saved, or set from another chess properties object. 
+	 * The configuration is then replaced by a new one as a whole, so readers never see a partially updated configuration.
+	 */
+	private volatile ChessConfiguration configuration;
+	private boolean loaded; // Whether the properties file is loaded, instead of using the default values for all properties
+	
 	// Define default property values
 	private static final String TURN_TIME_PROPERTY_NAME = "turnTime";
 	private static final int DEFAULT_TURN_TIME = 1000;
-	private static final int MINIMUM_TURN_TIME = 10;
+	private static final int MINIMUM_TURN_TIME = 1;
 	
 	private static final String FRAME_TITLE_PROPERTY_NAME = "frameTitle";
 	private static final String DEFAULT_FRAME_TITLE = "Chess Replayer";
@@ -145,6 +153,13 @@ public class ChessProperties implements ChessPropertiesReader
 	private static final String STOP_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME = "stopAutoPlayButtonImageFilePath";
 	private static final String DEFAULT_STOP_AUTO_PLAY_BUTTON_IMAGE_FILE_PATH = ".\\images\\stopAutoPlay.png";
 
+	// Sprite sheet is optional, the images are read from their own files if its file paths are empty
+	private static final String SPRITE_SHEET_IMAGE_PROPERTY_NAME = "spriteSheetImageFilePath";
+	private static final String DEFAULT_SPRITE_SHEET_IMAGE_FILE_PATH = "";
+
+	private static final String SPRITE_SHEET_INDEX_PROPERTY_NAME = "spriteSheetIndexFilePath";
+	private static final String DEFAULT_SPRITE_SHEET_INDEX_FILE_PATH = "";
+
 	// Load properties from the properties file with the given name, and the default properties
 	public ChessProperties()
 	{
@@ -153,9 +168,12 @@ public class ChessProperties implements ChessPropertiesReader
 			
 			FileInputStream fis = new FileInputStream( PROPERTIES_FILE_PATH);
 			properties.loadFromXML( fis);
+			loaded = true;
 		} catch( IOException e) {
 			System.err.println( "Cannot load the configuration file at " + PROPERTIES_FILE_PATH + ". Using default values.");
 		}
+		
+		configuration = createConfiguration();
 	}
 	
 	public ChessProperties( ChessProperties chessProperties)
@@ -210,6 +228,8 @@ public class ChessProperties implements ChessPropertiesReader
 		defaultProperties.setProperty( TAKE_BACK_ONE_MOVE_BUTTON_IMAGE_PROPERTY_NAME, DEFAULT_TAKE_BACK_ONE_MOVE_BUTTON_IMAGE_FILE_PATH);
 		defaultProperties.setProperty( START_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME, DEFAULT_START_AUTO_PLAY_BUTTON_IMAGE_FILE_PATH);
 		defaultProperties.setProperty( STOP_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME, DEFAULT_STOP_AUTO_PLAY_BUTTON_IMAGE_FILE_PATH);
+		defaultProperties.setProperty( SPRITE_SHEET_IMAGE_PROPERTY_NAME, DEFAULT_SPRITE_SHEET_IMAGE_FILE_PATH);
+		defaultProperties.setProperty( SPRITE_SHEET_INDEX_PROPERTY_NAME, DEFAULT_SPRITE_SHEET_INDEX_FILE_PATH);
 	}
 	
 	// Copy properties of the given ChessProperties to properties of this
@@ -257,6 +277,10 @@ public class ChessProperties implements ChessPropertiesReader
 		properties.setProperty( TAKE_BACK_ONE_MOVE_BUTTON_IMAGE_PROPERTY_NAME, chessProperties.getTakeBackOneMoveButtonImageFilePath());
 		properties.setProperty( START_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME, chessProperties.getStartAutoPlayButtonImageFilePath());
 		properties.setProperty( STOP_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME, chessProperties.getStopAutoPlayButtonImageFilePath());
+		properties.setProperty( SPRITE_SHEET_IMAGE_PROPERTY_NAME, chessProperties.getSpriteSheetImageFilePath());
+		properties.setProperty( SPRITE_SHEET_INDEX_PROPERTY_NAME, chessProperties.getSpriteSheetIndexFilePath());
+		
+		configuration = createConfiguration();
 	}
 	
 	// Save properties to the properties file with the given name. If the file doesn't exist, or the write operation is unsuccessful, throw an IO exception.
@@ -268,12 +292,37 @@ public class ChessProperties implements ChessPropertiesReader
 			
 			FileOutputStream fos = new FileOutputStream( PROPERTIES_FILE_PATH);
 			properties.storeToXML( fos, null, "ISO-8859-1");
+			configuration = createConfiguration();
 		} catch( IOException e) {
 			throw new IOException( "Cannot save the configuration file to " + PROPERTIES_FILE_PATH);
 		}
 	}
 	
+	// Return true if the properties are loaded from the properties file, false if the file couldn't be loaded and default values are used.
+	public boolean isLoaded()
+	{
+		return loaded;
+	}
+	
+	// Return the properties file, which properties are loaded from and saved to.
+	public static File getPropertiesFile()
+	{
+		return new File( PROPERTIES_FILE_PATH);
+	}
+	
+	// Return the current configuration. Its values don't change, even if the properties are saved or set afterwards.
+	public ChessConfiguration getConfiguration()
+	{
+		return configuration;
+	}
+	
 	public int getTurnTime()
+	{
+		return configuration.getTurnTime();
+	}
+	
+	// Read turn time from the properties, used to create the configuration
+	private int readTurnTime()
 	{
 		int turnTime;
 		String strTurnTime = properties.getProperty( TURN_TIME_PROPERTY_NAME);
@@ -295,7 +344,7 @@ public class ChessProperties implements ChessPropertiesReader
 			turnTime = Integer.parseInt( defaultProperties.getProperty( TURN_TIME_PROPERTY_NAME));
 		}
 		
-		return Math.max( turnTime, MINIMUM_TURN_TIME); // Turn time cannot be less than 10 ms
+		return Math.max( turnTime, MINIMUM_TURN_TIME); // Turn time cannot be less than 1 ms
 	}
 	
 	public int getDefaultTurnTime()
@@ -309,6 +358,12 @@ public class ChessProperties implements ChessPropertiesReader
 	}
 	
 	public String getFrameTitle()
+	{
+		return configuration.getFrameTitle();
+	}
+	
+	// Read frame title from the properties, used to create the configuration
+	private String readFrameTitle()
 	{
 		String frameTitle = properties.getProperty( FRAME_TITLE_PROPERTY_NAME);
 		
@@ -333,6 +388,12 @@ public class ChessProperties implements ChessPropertiesReader
 	}
 	
 	public String getWhiteWinsText()
+	{
+		return configuration.getWhiteWinsText();
+	}
+	
+	// Read white wins text from the properties, used to create the configuration
+	private String readWhiteWinsText()
 	{
 		String whiteWinsText = properties.getProperty( WHITE_WINS_TEXT_PROPERTY_NAME);
 		
@@ -357,6 +418,12 @@ public class ChessProperties implements ChessPropertiesReader
 	}
 	
 	public String getBlackWinsText()
+	{
+		return configuration.getBlackWinsText();
+	}
+	
+	// Read black wins text from the properties, used to create the configuration
+	private String readBlackWinsText()
 	{
 		String blackWinsText = properties.getProperty( BLACK_WINS_TEXT_PROPERTY_NAME);
 		
@@ -381,6 +448,12 @@ public class ChessProperties implements ChessPropertiesReader
 	}
 	
 	public String getDrawText()
+	{
+		return configuration.getDrawText();
+	}
+	
+	// Read draw text from the properties, used to create the configuration
+	private String readDrawText()
 	{
 		String drawText = properties.getProperty( DRAW_TEXT_PROPERTY_NAME);
 		
@@ -406,7 +479,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getFileAImageFilePath()
 	{
-		return getFilePath( FILE_A_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( FILE_A_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultFileAImageFilePath()
@@ -421,7 +494,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getFileBImageFilePath()
 	{
-		return getFilePath( FILE_B_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( FILE_B_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultFileBImageFilePath()
@@ -436,7 +509,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getFileCImageFilePath()
 	{
-		return getFilePath( FILE_C_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( FILE_C_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultFileCImageFilePath()
@@ -451,7 +524,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getFileDImageFilePath()
 	{
-		return getFilePath( FILE_D_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( FILE_D_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultFileDImageFilePath()
@@ -466,7 +539,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getFileEImageFilePath()
 	{
-		return getFilePath( FILE_E_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( FILE_E_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultFileEImageFilePath()
@@ -481,7 +554,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getFileFImageFilePath()
 	{
-		return getFilePath( FILE_F_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( FILE_F_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultFileFImageFilePath()
@@ -496,7 +569,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getFileGImageFilePath()
 	{
-		return getFilePath( FILE_G_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( FILE_G_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultFileGImageFilePath()
@@ -511,7 +584,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getFileHImageFilePath()
 	{
-		return getFilePath( FILE_H_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( FILE_H_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultFileHImageFilePath()
@@ -526,7 +599,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getRank1ImageFilePath()
 	{
-		return getFilePath( RANK_1_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( RANK_1_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultRank1ImageFilePath()
@@ -541,7 +614,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getRank2ImageFilePath()
 	{
-		return getFilePath( RANK_2_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( RANK_2_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultRank2ImageFilePath()
@@ -556,7 +629,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getRank3ImageFilePath()
 	{
-		return getFilePath( RANK_3_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( RANK_3_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultRank3ImageFilePath()
@@ -571,7 +644,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getRank4ImageFilePath()
 	{
-		return getFilePath( RANK_4_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( RANK_4_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultRank4ImageFilePath()
@@ -586,7 +659,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getRank5ImageFilePath()
 	{
-		return getFilePath( RANK_5_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( RANK_5_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultRank5ImageFilePath()
@@ -601,7 +674,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getRank6ImageFilePath()
 	{
-		return getFilePath( RANK_6_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( RANK_6_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultRank6ImageFilePath()
@@ -616,7 +689,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getRank7ImageFilePath()
 	{
-		return getFilePath( RANK_7_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( RANK_7_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultRank7ImageFilePath()
@@ -631,7 +704,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getRank8ImageFilePath()
 	{
-		return getFilePath( RANK_8_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( RANK_8_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultRank8ImageFilePath()
@@ -646,7 +719,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getEmptySquareImageFilePath()
 	{
-		return getFilePath( EMPTY_SQUARE_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( EMPTY_SQUARE_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultEmptySquareImageFilePath()
@@ -661,7 +734,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getBlackBackgroundImageFilePath()
 	{
-		return getFilePath( BLACK_BACKGROUND_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( BLACK_BACKGROUND_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultBlackBackgroundImageFilePath()
@@ -676,7 +749,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getWhiteBackgroundImageFilePath()
 	{
-		return getFilePath( WHITE_BACKGROUND_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( WHITE_BACKGROUND_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultWhiteBackgroundImageFilePath()
@@ -691,7 +764,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getDestinationBackgroundImageFilePath()
 	{
-		return getFilePath( DESTINATION_BACKGROUND_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( DESTINATION_BACKGROUND_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultDestinationBackgroundImageFilePath()
@@ -706,7 +779,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getSourceBackgroundImageFilePath()
 	{
-		return getFilePath( SOURCE_BACKGROUND_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( SOURCE_BACKGROUND_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultSourceBackgroundImageFilePath()
@@ -721,7 +794,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getBlackPawnImageFilePath()
 	{
-		return getFilePath( BLACK_PAWN_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( BLACK_PAWN_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultBlackPawnImageFilePath()
@@ -736,7 +809,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getBlackKnightImageFilePath()
 	{
-		return getFilePath( BLACK_KNIGHT_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( BLACK_KNIGHT_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultBlackKnightImageFilePath()
@@ -751,7 +824,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getBlackBishopImageFilePath()
 	{
-		return getFilePath( BLACK_BISHOP_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( BLACK_BISHOP_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultBlackBishopImageFilePath()
@@ -766,7 +839,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getBlackRookImageFilePath()
 	{
-		return getFilePath( BLACK_ROOK_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( BLACK_ROOK_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultBlackRookImageFilePath()
@@ -781,7 +854,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getBlackQueenImageFilePath()
 	{
-		return getFilePath( BLACK_QUEEN_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( BLACK_QUEEN_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultBlackQueenImageFilePath()
@@ -796,7 +869,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getBlackKingImageFilePath()
 	{
-		return getFilePath( BLACK_KING_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( BLACK_KING_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultBlackKingImageFilePath()
@@ -811,7 +884,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getWhitePawnImageFilePath()
 	{
-		return getFilePath( WHITE_PAWN_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( WHITE_PAWN_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultWhitePawnImageFilePath()
@@ -826,7 +899,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getWhiteKnightImageFilePath()
 	{
-		return getFilePath( WHITE_KNIGHT_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( WHITE_KNIGHT_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultWhiteKnightImageFilePath()
@@ -841,7 +914,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getWhiteBishopImageFilePath()
 	{
-		return getFilePath( WHITE_BISHOP_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( WHITE_BISHOP_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultWhiteBishopImageFilePath()
@@ -856,7 +929,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getWhiteRookImageFilePath()
 	{
-		return getFilePath( WHITE_ROOK_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( WHITE_ROOK_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultWhiteRookImageFilePath()
@@ -871,7 +944,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getWhiteQueenImageFilePath()
 	{
-		return getFilePath( WHITE_QUEEN_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( WHITE_QUEEN_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultWhiteQueenImageFilePath()
@@ -886,7 +959,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getWhiteKingImageFilePath()
 	{
-		return getFilePath( WHITE_KING_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( WHITE_KING_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultWhiteKingImageFilePath()
@@ -901,7 +974,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getPlayOneMoveButtonImageFilePath()
 	{
-		return getFilePath( PLAY_ONE_MOVE_BUTTON_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( PLAY_ONE_MOVE_BUTTON_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultPlayOneMoveButtonImageFilePath()
@@ -916,7 +989,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getTakeBackOneMoveButtonImageFilePath()
 	{
-		return getFilePath( TAKE_BACK_ONE_MOVE_BUTTON_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( TAKE_BACK_ONE_MOVE_BUTTON_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultTakeBackOneMoveButtonImageFilePath()
@@ -931,7 +1004,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getStartAutoPlayButtonImageFilePath()
 	{
-		return getFilePath( START_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( START_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultStartAutoPlayButtonImageFilePath()
@@ -946,7 +1019,7 @@ public class ChessProperties implements ChessPropertiesReader
 	
 	public String getStopAutoPlayButtonImageFilePath()
 	{
-		return getFilePath( STOP_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME);
+		return configuration.getFilePath( STOP_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME);
 	}
 	
 	public String getDefaultStopAutoPlayButtonImageFilePath()
@@ -959,6 +1032,89 @@ public class ChessProperties implements ChessPropertiesReader
 		properties.setProperty( STOP_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME, stopAutoPlayButtonImageFilePath);
 	}
 	
+	public String getSpriteSheetImageFilePath()
+	{
+		return configuration.getFilePath( SPRITE_SHEET_IMAGE_PROPERTY_NAME);
+	}
+	
+	public String getDefaultSpriteSheetImageFilePath()
+	{
+		return defaultProperties.getProperty( SPRITE_SHEET_IMAGE_PROPERTY_NAME);
+	}
+	
+	public void setSpriteSheetImageFilePath( String spriteSheetImageFilePath)
+	{
+		properties.setProperty( SPRITE_SHEET_IMAGE_PROPERTY_NAME, spriteSheetImageFilePath);
+	}
+	
+	public String getSpriteSheetIndexFilePath()
+	{
+		return configuration.getFilePath( SPRITE_SHEET_INDEX_PROPERTY_NAME);
+	}
+	
+	public String getDefaultSpriteSheetIndexFilePath()
+	{
+		return defaultProperties.getProperty( SPRITE_SHEET_INDEX_PROPERTY_NAME);
+	}
+	
+	public void setSpriteSheetIndexFilePath( String spriteSheetIndexFilePath)
+	{
+		properties.setProperty( SPRITE_SHEET_INDEX_PROPERTY_NAME, spriteSheetIndexFilePath);
+	}
+	
+	// Create a configuration from the current values of the properties
+	private ChessConfiguration createConfiguration()
+	{
+		HashMap<String, String> filePaths = new HashMap<String, String>();
+		filePaths.put( FILE_A_IMAGE_PROPERTY_NAME, getFilePath( FILE_A_IMAGE_PROPERTY_NAME));
+		filePaths.put( FILE_B_IMAGE_PROPERTY_NAME, getFilePath( FILE_B_IMAGE_PROPERTY_NAME));
+		filePaths.put( FILE_C_IMAGE_PROPERTY_NAME, getFilePath( FILE_C_IMAGE_PROPERTY_NAME));
+		filePaths.put( FILE_D_IMAGE_PROPERTY_NAME, getFilePath( FILE_D_IMAGE_PROPERTY_NAME));
+		filePaths.put( FILE_E_IMAGE_PROPERTY_NAME, getFilePath( FILE_E_IMAGE_PROPERTY_NAME));
+		filePaths.put( FILE_F_IMAGE_PROPERTY_NAME, getFilePath( FILE_F_IMAGE_PROPERTY_NAME));
+		filePaths.put( FILE_G_IMAGE_PROPERTY_NAME, getFilePath( FILE_G_IMAGE_PROPERTY_NAME));
+		filePaths.put( FILE_H_IMAGE_PROPERTY_NAME, getFilePath( FILE_H_IMAGE_PROPERTY_NAME));
+		filePaths.put( RANK_1_IMAGE_PROPERTY_NAME, getFilePath( RANK_1_IMAGE_PROPERTY_NAME));
+		filePaths.put( RANK_2_IMAGE_PROPERTY_NAME, getFilePath( RANK_2_IMAGE_PROPERTY_NAME));
+		filePaths.put( RANK_3_IMAGE_PROPERTY_NAME, getFilePath( RANK_3_IMAGE_PROPERTY_NAME));
+		filePaths.put( RANK_4_IMAGE_PROPERTY_NAME, getFilePath( RANK_4_IMAGE_PROPERTY_NAME));
+		filePaths.put( RANK_5_IMAGE_PROPERTY_NAME, getFilePath( RANK_5_IMAGE_PROPERTY_NAME));
+		filePaths.put( RANK_6_IMAGE_PROPERTY_NAME, getFilePath( RANK_6_IMAGE_PROPERTY_NAME));
+		filePaths.put( RANK_7_IMAGE_PROPERTY_NAME, getFilePath( RANK_7_IMAGE_PROPERTY_NAME));
+		filePaths.put( RANK_8_IMAGE_PROPERTY_NAME, getFilePath( RANK_8_IMAGE_PROPERTY_NAME));
+		filePaths.put( EMPTY_SQUARE_IMAGE_PROPERTY_NAME, getFilePath( EMPTY_SQUARE_IMAGE_PROPERTY_NAME));
+		filePaths.put( BLACK_BACKGROUND_IMAGE_PROPERTY_NAME, getFilePath( BLACK_BACKGROUND_IMAGE_PROPERTY_NAME));
+		filePaths.put( WHITE_BACKGROUND_IMAGE_PROPERTY_NAME, getFilePath( WHITE_BACKGROUND_IMAGE_PROPERTY_NAME));
+		filePaths.put( DESTINATION_BACKGROUND_IMAGE_PROPERTY_NAME, getFilePath( DESTINATION_BACKGROUND_IMAGE_PROPERTY_NAME));
+		filePaths.put( SOURCE_BACKGROUND_IMAGE_PROPERTY_NAME, getFilePath( SOURCE_BACKGROUND_IMAGE_PROPERTY_NAME));
+		filePaths.put( BLACK_PAWN_IMAGE_PROPERTY_NAME, getFilePath( BLACK_PAWN_IMAGE_PROPERTY_NAME));
+		filePaths.put( BLACK_KNIGHT_IMAGE_PROPERTY_NAME, getFilePath( BLACK_KNIGHT_IMAGE_PROPERTY_NAME));
+		filePaths.put( BLACK_BISHOP_IMAGE_PROPERTY_NAME, getFilePath( BLACK_BISHOP_IMAGE_PROPERTY_NAME));
+		filePaths.put( BLACK_ROOK_IMAGE_PROPERTY_NAME, getFilePath( BLACK_ROOK_IMAGE_PROPERTY_NAME));
+		filePaths.put( BLACK_QUEEN_IMAGE_PROPERTY_NAME, getFilePath( BLACK_QUEEN_IMAGE_PROPERTY_NAME));
+		filePaths.put( BLACK_KING_IMAGE_PROPERTY_NAME, getFilePath( BLACK_KING_IMAGE_PROPERTY_NAME));
+		filePaths.put( WHITE_PAWN_IMAGE_PROPERTY_NAME, getFilePath( WHITE_PAWN_IMAGE_PROPERTY_NAME));
+		filePaths.put( WHITE_KNIGHT_IMAGE_PROPERTY_NAME, getFilePath( WHITE_KNIGHT_IMAGE_PROPERTY_NAME));
+		filePaths.put( WHITE_BISHOP_IMAGE_PROPERTY_NAME, getFilePath( WHITE_BISHOP_IMAGE_PROPERTY_NAME));
+		filePaths.put( WHITE_ROOK_IMAGE_PROPERTY_NAME, getFilePath( WHITE_ROOK_IMAGE_PROPERTY_NAME));
+		filePaths.put( WHITE_QUEEN_IMAGE_PROPERTY_NAME, getFilePath( WHITE_QUEEN_IMAGE_PROPERTY_NAME));
+		filePaths.put( WHITE_KING_IMAGE_PROPERTY_NAME, getFilePath( WHITE_KING_IMAGE_PROPERTY_NAME));
+		filePaths.put( PLAY_ONE_MOVE_BUTTON_IMAGE_PROPERTY_NAME, getFilePath( PLAY_ONE_MOVE_BUTTON_IMAGE_PROPERTY_NAME));
+		filePaths.put( TAKE_BACK_ONE_MOVE_BUTTON_IMAGE_PROPERTY_NAME, getFilePath( TAKE_BACK_ONE_MOVE_BUTTON_IMAGE_PROPERTY_NAME));
+		filePaths.put( START_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME, getFilePath( START_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME));
+		filePaths.put( STOP_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME, getFilePath( STOP_AUTO_PLAY_BUTTON_IMAGE_PROPERTY_NAME));
+		filePaths.put( SPRITE_SHEET_IMAGE_PROPERTY_NAME, getOptionalFilePath( SPRITE_SHEET_IMAGE_PROPERTY_NAME));
+		filePaths.put( SPRITE_SHEET_INDEX_PROPERTY_NAME, getOptionalFilePath( SPRITE_SHEET_INDEX_PROPERTY_NAME));
+		
+		return new ChessConfiguration( readTurnTime(), readFrameTitle(), readWhiteWinsText(), readBlackWinsText(), readDrawText(), filePaths);
+	}
+	
+	// Get file path from value of the optional property with the given name. Use the default value silently, if the property is not found.
+	private String getOptionalFilePath( String propertyName)
+	{
+		return properties.getProperty( propertyName, defaultProperties.getProperty( propertyName));
+	}
+	
 	// Get file path from value of the property with the given name
 	private String getFilePath( String propertyName)
 	{
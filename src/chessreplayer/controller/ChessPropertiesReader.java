@@ -48,4 +48,6 @@ public interface ChessPropertiesReader
 	public String getTakeBackOneMoveButtonImageFilePath();
 	public String getStartAutoPlayButtonImageFilePath();
 	public String getStopAutoPlayButtonImageFilePath();
+	public String getSpriteSheetImageFilePath();
+	public String getSpriteSheetIndexFilePath();
 }
@@ -0,0 +1,165 @@
+/**
+ * Watches the properties file and the image files it refers to, and reloads them when they change, without restarting the application.
+ * Only the images whose files or file paths changed are read again, in the background, and then the view is updated in the event dispatch thread.
+ */
+
+package chessreplayer.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import chessreplayer.view.ChessImage;
+
+public class ConfigurationWatcher implements Runnable
+{
+	// Editors save a file with a few writes in a row, so changes are collected until no change happens for this long
+	private static final long DEBOUNCE_TIME = 200; // Milliseconds
+
+	private ChessController chessController;
+	private WatchService watchService;
+	private HashMap<WatchKey, Path> directories; // Watched directories, with their watch keys
+	private HashSet<File> watchedFiles; // Absolute and normalized files of the properties and the images
+
+	public ConfigurationWatcher( ChessController chessController)
+	{
+		this.chessController = chessController;
+		this.directories = new HashMap<WatchKey, Path>();
+		this.watchedFiles = new HashSet<File>();
+	}
+
+	// Start watching in a daemon thread, so that it doesn't keep the application running.
+	public void start()
+	{
+		Thread thread = new Thread( this, "Configuration Watcher");
+		thread.setDaemon( true);
+		thread.setPriority( Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	/* Wait for changes in the watched directories. After a change, wait until the files stop changing, and then reload the changed files.
+	 * Events of the files which are not watched, e.g. the other files in the images directory, are ignored.
+	 */
+	public void run()
+	{
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			register( chessController.getProperties());
+
+			while( true)
+			{
+				HashSet<File> changedFiles = new HashSet<File>();
+				WatchKey key = watchService.take();
+				while( key != null)
+				{
+					collectChangedFiles( key, changedFiles);
+					key = watchService.poll( DEBOUNCE_TIME, TimeUnit.MILLISECONDS);
+				}
+
+				changedFiles.retainAll( watchedFiles);
+				if( !changedFiles.isEmpty())
+					reload( changedFiles);
+			}
+		} catch( IOException e) {
+			System.err.println( "Cannot watch the configuration files for changes: " + e.getMessage());
+		} catch( InterruptedException | ClosedWatchServiceException e) {
+			// Stop watching
+		}
+	}
+
+	// Add the files of the events of the given watch key to the given changed files, and reset the key to receive its next events.
+	private void collectChangedFiles( WatchKey key, HashSet<File> changedFiles)
+	{
+		Path directory = directories.get( key);
+		for( WatchEvent<?> event : key.pollEvents())
+		{
+			// Some events are lost, so any of the watched files may have changed
+			if( event.kind() == StandardWatchEventKinds.OVERFLOW)
+				changedFiles.addAll( watchedFiles);
+			else if( directory != null)
+				changedFiles.add( directory.resolve( (Path) event.context()).toAbsolutePath().normalize().toFile());
+		}
+
+		if( !key.reset())
+			directories.remove( key);
+	}
+
+	/* Reload the given changed files. If the properties file changed, load the properties again, unless the file cannot be read, e.g. it's
+	 * being written; its next change will be reloaded instead. Then reload the images which changed, and update the properties and the view
+	 * in the event dispatch thread. The directories of new image file paths are watched too.
+	 */
+	private void reload( HashSet<File> changedFiles)
+	{
+		ChessProperties properties = chessController.getProperties();
+		ChessProperties reloadedProperties = null;
+		if( changedFiles.contains( normalize( ChessProperties.getPropertiesFile().getPath())))
+		{
+			ChessProperties newProperties = new ChessProperties();
+			if( newProperties.isLoaded())
+			{
+				reloadedProperties = newProperties;
+				properties = newProperties;
+			}
+		}
+
+		boolean imagesReloaded = ChessImage.reloadImages( properties, changedFiles);
+		if( reloadedProperties != null || imagesReloaded)
+		{
+			final ChessProperties newProperties = reloadedProperties;
+			SwingUtilities.invokeLater( new Runnable()
+				{
+					public void run()
+					{
+						chessController.reloadConfiguration( newProperties);
+					}
+				}
+			);
+		}
+
+		try {
+			register( properties);
+		} catch( IOException e) {
+			System.err.println( "Cannot watch the configuration files for changes: " + e.getMessage());
+		}
+	}
+
+	// Watch the properties file and the image files of the given properties, by watching their directories.
+	private void register( ChessProperties properties) throws IOException
+	{
+		watchedFiles.clear();
+		watchedFiles.add( normalize( ChessProperties.getPropertiesFile().getPath()));
+		for( String filePath : properties.getConfiguration().getFilePaths())
+		{
+			if( filePath != null && !filePath.isEmpty())
+				watchedFiles.add( normalize( filePath));
+		}
+
+		for( File file : watchedFiles)
+		{
+			File directory = file.getParentFile();
+			if( directory != null && directory.isDirectory() && !directories.containsValue( directory.toPath()))
+			{
+				Path path = directory.toPath();
+				WatchKey key = path.register( watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+				directories.put( key, path);
+			}
+		}
+	}
+
+	// Return the absolute and normalized file of the given path, so that different paths of the same file are equal.
+	private static File normalize( String path)
+	{
+		return new File( path).getAbsoluteFile().toPath().normalize().toFile();
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * Exports the games of a PGN database to another PGN file in export format, e.g. to normalize a database collected from various sources.
+ * The games are imported by an import pipeline, so they are parsed and validated in parallel, and they are written in the order of the input.
+ * Games that fail to be imported are reported and skipped if the export is lenient, otherwise the export stops at the first one.
+ * Usage: DatabaseExporter [-threads count] [-lenient] [-strip-comments] [-canonical] [-line-length length] input.pgn output.pgn
+ */
+
+package chessreplayer.controller;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import chessreplayer.model.Game;
+import chessreplayer.parser.PortableGameNotationWriter;
+
+public class DatabaseExporter
+{
+	public static void main( String[] args) throws InterruptedException
+	{
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		boolean lenient = false, stripComments = false, canonicalSan = false;
+		int lineLength = PortableGameNotationWriter.DEFAULT_LINE_LENGTH;
+		File inputFile = null, outputFile = null;
+
+		try {
+			for( int i = 0; i < args.length; i++)
+			{
+				if( "-threads".equals( args[i]))
+					threadCount = Math.max( 1, Integer.parseInt( args[++i]));
+				else if( "-lenient".equals( args[i]))
+					lenient = true;
+				else if( "-strip-comments".equals( args[i]))
+					stripComments = true;
+				else if( "-canonical".equals( args[i]))
+					canonicalSan = true;
+				else if( "-line-length".equals( args[i]))
+					lineLength = Math.max( 1, Integer.parseInt( args[++i]));
+				else if( inputFile == null)
+					inputFile = new File( args[i]);
+				else if( outputFile == null)
+					outputFile = new File( args[i]);
+				else
+					throw new IllegalArgumentException();
+			}
+		} catch( ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+			outputFile = null;
+		}
+
+		if( outputFile == null)
+		{
+			System.err.println( "Usage: DatabaseExporter [-threads count] [-lenient] [-strip-comments] [-canonical] [-line-length length] input.pgn output.pgn");
+			System.exit( 1);
+		}
+
+		final int[] failedCount = new int[1];
+		final IOException[] writeException = new IOException[1];
+		long startTime = System.currentTimeMillis();
+		try {
+			final PortableGameNotationWriter writer = new PortableGameNotationWriter( new FileOutputStream( outputFile).getChannel());
+			writer.setStripComments( stripComments);
+			writer.setCanonicalSan( canonicalSan);
+			writer.setLineLength( lineLength);
+
+			int gameCount;
+			try {
+				ImportPipeline pipeline = new ImportPipeline( threadCount, 64, lenient);
+				final File input = inputFile;
+				gameCount = pipeline.run( inputFile, new ImportPipeline.Sink()
+					{
+						// The sink cannot throw, so the games after a write error are skipped, and the error is thrown after the pipeline ends
+						public void gameImported( int gameIndex, long offset, Game game)
+						{
+							if( writeException[0] != null)
+								return;
+
+							try {
+								writer.write( game);
+							} catch( IOException e) {
+								writeException[0] = e;
+							}
+						}
+
+						public void gameFailed( GameError error)
+						{
+							failedCount[0]++;
+							System.err.println( input.getPath() + ": " + error);
+						}
+					}
+				);
+
+				if( writeException[0] != null)
+					throw writeException[0];
+			} finally {
+				writer.close();
+			}
+
+			System.out.println( outputFile.getPath() + ": " + ( gameCount - failedCount[0]) + " games exported, " + failedCount[0] + " failed, in " +
+					( System.currentTimeMillis() - startTime) + " ms");
+		} catch( IOException e) {
+			System.err.println( "Cannot export " + inputFile.getPath() + " to " + outputFile.getPath() + ": " + e.getMessage());
+			System.exit( 1);
+		}
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ * A bounded cache of parsed and validated games, which evicts the least recently used game when it's full. A game is identified by its file
+ * and its offset in the file, so the games of a file holding several games are cached one by one.
+ * Games can also be prefetched, which parses and validates them in the background before they are requested. A prefetch that fails
+ * or is cancelled is removed from the cache, so the game is loaded again the next time it's requested.
+ */
+
+package chessreplayer.controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import chessreplayer.model.Game;
+import chessreplayer.parser.DecompressingChannel;
+import chessreplayer.parser.PortableGameNotationException;
+import chessreplayer.parser.PortableGameNotationParser;
+import chessreplayer.parser.PortableGameNotationSplitter;
+
+public class GameCache
+{
+	public static final long NO_OFFSET = -1; // Offset of a game that doesn't exist
+
+	private final LinkedHashMap<GameKey, Future<Game>> games;
+	private final ExecutorService prefetcher;
+
+	// Create a game cache that holds at most the given number of games, in access order so that the eldest entry is the least recently used one.
+	public GameCache( final int capacity)
+	{
+		games = new LinkedHashMap<GameKey, Future<Game>>( capacity + 1, 0.75f, true)
+		{
+			private static final long serialVersionUID = 6011926343720117474L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<GameKey, Future<Game>> eldest)
+			{
+				return size() > capacity;
+			}
+		};
+
+		// A single daemon thread prefetches games one after another, so prefetching doesn't compete with the user interface for more than one core.
+		prefetcher = Executors.newSingleThreadExecutor( new ThreadFactory()
+			{
+				public Thread newThread( Runnable runnable)
+				{
+					Thread thread = new Thread( runnable, "Game Prefetch");
+					thread.setDaemon( true);
+					thread.setPriority( Thread.MIN_PRIORITY);
+					return thread;
+				}
+			}
+		);
+	}
+
+	/* Return the cached game at the given offset of the given file, or null if it's not cached. The game may still be loading, in which case 
+	 * the returned future completes when it's loaded. A game of a file that is modified after it's cached is not returned.
+	 */
+	public synchronized Future<Game> get( File file, long offset)
+	{
+		return games.get( new GameKey( file, offset));
+	}
+
+	// Put the given game, which is loaded from the given offset of the given file, into the cache.
+	public synchronized void put( File file, long offset, Game game)
+	{
+		FutureGame future = new FutureGame( game);
+		games.put( new GameKey( file, offset), future);
+	}
+
+	// Parse and validate the game at the given offset of the given file in the background, unless it's already cached.
+	public synchronized void prefetch( final File file, final long offset)
+	{
+		final GameKey key = new GameKey( file, offset);
+		if( games.containsKey( key))
+			return;
+
+		FutureTask<Game> future = new FutureTask<Game>( new Callable<Game>()
+			{
+				public Game call() throws Exception
+				{
+					Game game = readGame( file, offset);
+					game.validateMoves();
+					return game;
+				}
+			}
+		)
+		{
+			// Remove the prefetch from the cache if it has failed or it's cancelled, unless it's already replaced
+			@Override
+			protected void done()
+			{
+				try {
+					get();
+					return;
+				} catch( ExecutionException | CancellationException | InterruptedException e) {
+					// The game isn't loaded
+				}
+
+				synchronized( GameCache.this)
+				{
+					if( games.get( key) == this)
+						games.remove( key);
+				}
+			}
+		};
+
+		// The prefetch is put into the cache before it can end, as it cannot remove itself before the cache is unlocked
+		prefetcher.execute( future);
+		games.put( key, future);
+	}
+
+	// Parse the game at the given offset of the given file, which may hold several games one after another.
+	public static Game readGame( File file, long offset) throws IOException, PortableGameNotationException
+	{
+		ReadableByteChannel channel = DecompressingChannel.open( file, offset);
+		try {
+			byte[] gameBytes = new PortableGameNotationSplitter( channel).nextGame();
+			if( gameBytes == null)
+				throw new PortableGameNotationException( "There is no game at offset " + offset + " of " + file.getName() + ".");
+
+			return new PortableGameNotationParser().parse( Channels.newChannel( new ByteArrayInputStream( gameBytes)));
+		} finally {
+			channel.close();
+		}
+	}
+
+	// Return the offset of the game following the game at the given offset of the given file, or NO_OFFSET if it's the last game of the file.
+	public static long findNextGameOffset( File file, long offset) throws IOException
+	{
+		ReadableByteChannel channel = DecompressingChannel.open( file, offset);
+		try {
+			PortableGameNotationSplitter splitter = new PortableGameNotationSplitter( channel);
+			if( splitter.nextGame() == null || splitter.nextGame() == null)
+				return NO_OFFSET;
+
+			return offset + splitter.getGameOffset();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/* Identifies a game by the path of its file and its offset in the file. The length and the last modification time of the file
+	 * are also included, so that a modified file doesn't match the games cached before the modification.
+	 */
+	private static class GameKey
+	{
+		private final String path;
+		private final long offset;
+		private final long length;
+		private final long lastModified;
+
+		public GameKey( File file, long offset)
+		{
+			this.path = file.getAbsolutePath();
+			this.offset = offset;
+			this.length = file.length();
+			this.lastModified = file.lastModified();
+		}
+
+		@Override
+		public boolean equals( Object object)
+		{
+			if( !( object instanceof GameKey))
+				return false;
+
+			GameKey key = (GameKey) object;
+			return path.equals( key.path) && offset == key.offset && length == key.length && lastModified == key.lastModified;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int hash = path.hashCode();
+			hash = 31 * hash + (int)( offset ^ ( offset >>> 32));
+			hash = 31 * hash + (int)( length ^ ( length >>> 32));
+			hash = 31 * hash + (int)( lastModified ^ ( lastModified >>> 32));
+			return hash;
+		}
+	}
+
+	// A completed future holding a game that is already loaded.
+	private static class FutureGame implements Future<Game>
+	{
+		private final Game game;
+
+		public FutureGame( Game game)
+		{
+			this.game = game;
+		}
+
+		public boolean cancel( boolean mayInterruptIfRunning)
+		{
+			return false;
+		}
+
+		public boolean isCancelled()
+		{
+			return false;
+		}
+
+		public boolean isDone()
+		{
+			return true;
+		}
+
+		public Game get()
+		{
+			return game;
+		}
+
+		public Game get( long timeout, TimeUnit unit)
+		{
+			return game;
+		}
+	}
+}
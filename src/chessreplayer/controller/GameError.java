@@ -0,0 +1,54 @@
+/**
+ * Describes a game of a PGN database that couldn't be imported: its index and byte offset in the input, the ply of its invalid move 
+ * if its moves couldn't be validated, and the reason. Recording an error doesn't need the stack trace of its exception.
+ */
+
+package chessreplayer.controller;
+
+public class GameError
+{
+	public static final int NO_PLY = 0; // The game couldn't be parsed, so its moves weren't validated
+
+	private final int gameIndex;
+	private final long offset;
+	private final int ply;
+	private final String reason;
+
+	public GameError( int gameIndex, long offset, int ply, String reason)
+	{
+		this.gameIndex = gameIndex;
+		this.offset = offset;
+		this.ply = ply;
+		this.reason = reason;
+	}
+
+	public int getGameIndex()
+	{
+		return gameIndex;
+	}
+
+	public long getOffset()
+	{
+		return offset;
+	}
+
+	// Return the ply of the invalid move, counting from 1 for the first move of the white side, or NO_PLY if the game couldn't be parsed
+	public int getPly()
+	{
+		return ply;
+	}
+
+	public String getReason()
+	{
+		return reason;
+	}
+
+	@Override
+	public String toString()
+	{
+		String text = "game " + ( gameIndex + 1) + " at byte " + offset;
+		if( ply != NO_PLY)
+			text += ", ply " + ply;
+		return text + ": " + reason;
+	}
+}
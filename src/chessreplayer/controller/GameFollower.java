@@ -0,0 +1,426 @@
+/**
+ * Follows a PGN file that is written as the moves of a game are played, e.g. a live game of a tournament. The file is watched for changes,
+ * and after each change only the bytes appended to it since the last update are parsed. The followed game is shown while its moves are appended,
+ * so it's only modified in the event dispatch thread: the follower thread parses the new moves, and they are appended to the game, validated 
+ * on the board the earlier moves were validated on, and passed to the controller in the event dispatch thread.
+ * If the file gets shorter, i.e. it's written again from its beginning, the game is read again from the beginning of the file.
+ */
+
+package chessreplayer.controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import chessreplayer.model.Game;
+import chessreplayer.model.Game.Result;
+import chessreplayer.move.Move;
+import chessreplayer.parser.PortableGameNotationAdapter;
+import chessreplayer.parser.PortableGameNotationException;
+import chessreplayer.parser.PortableGameNotationParser;
+import chessreplayer.piece.Color;
+
+public class GameFollower implements Runnable
+{
+	// A move is usually written with a few writes in a row, so changes are collected until no change happens for this long
+	private static final long DEBOUNCE_TIME = 100; // Milliseconds
+
+	private ChessController chessController;
+	private File inputFile;
+	private PortableGameNotationParser parser;
+	private WatchService watchService;
+	private volatile boolean stopped;
+
+	// State of the file, only used by the follower thread
+	private HashMap<String,String> tagMap;
+	private long offset; // Number of bytes of the file parsed so far
+	private int moveCount; // Number of main line moves read so far
+	private boolean ended; // If the result of the game is read
+
+	private Game game; // Followed game, only used by the event dispatch thread. Null until its first move or its result is read
+
+	public GameFollower( ChessController chessController, File inputFile)
+	{
+		this.chessController = chessController;
+		this.inputFile = inputFile.getAbsoluteFile();
+		this.parser = new PortableGameNotationParser();
+		restart();
+	}
+
+	// Start following in a daemon thread, so that it doesn't keep the application running.
+	public void start()
+	{
+		Thread thread = new Thread( this, "Game Follower");
+		thread.setDaemon( true);
+		thread.start();
+	}
+
+	// Stop following. An update in progress is completed, but its game isn't passed to the controller.
+	public void stop()
+	{
+		stopped = true;
+		try {
+			if( watchService != null)
+				watchService.close();
+		} catch( IOException e) {} // Nothing to do here
+	}
+
+	/* Read the file, and then wait for changes in its directory. After a change of the file, wait until it stops changing, and then read
+	 * the bytes appended to it. Events of the other files in the directory are ignored.
+	 */
+	public void run()
+	{
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			if( stopped)
+			{
+				watchService.close(); // Stopped while the watch service was being created
+				return;
+			}
+
+			Path directory = inputFile.getParentFile().toPath();
+			directory.register( watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			update();
+
+			while( !stopped)
+			{
+				boolean changed = false;
+				WatchKey key = watchService.take();
+				while( key != null)
+				{
+					for( WatchEvent<?> event : key.pollEvents())
+					{
+						// Some events are lost, so the file may have changed
+						if( event.kind() == StandardWatchEventKinds.OVERFLOW || inputFile.getName().equals( event.context().toString()))
+							changed = true;
+					}
+
+					key.reset();
+					key = watchService.poll( DEBOUNCE_TIME, TimeUnit.MILLISECONDS);
+				}
+
+				if( changed)
+					update();
+			}
+		} catch( IOException e) {
+			reportError( e);
+		} catch( InterruptedException | ClosedWatchServiceException e) {
+			// Stop following
+		}
+	}
+
+	/* Parse the bytes appended to the file since the last update. If they change the game, e.g. they have new moves, annotations of the last move 
+	 * or the result, or the game is read again, apply them to the game in the event dispatch thread. If the game cannot be read, report the error 
+	 * to the controller.
+	 */
+	private void update()
+	{
+		try {
+			final FollowUpdate update = readAppendedBytes();
+			if( !update.isChanged())
+				return;
+
+			SwingUtilities.invokeLater( new Runnable()
+				{
+					public void run()
+					{
+						if( !stopped)
+							apply( update);
+					}
+				}
+			);
+		} catch( Exception e) {
+			stop();
+			reportError( e);
+		}
+	}
+
+	/* Apply the given update to the game, creating the game when its first move or its result is read, validate the new moves, and pass the game 
+	 * to the controller. Called in the event dispatch thread. The game is modified while the controller is locked, as the controller's cursor 
+	 * reads the game in the auto play thread while holding its lock.
+	 */
+	private void apply( FollowUpdate update)
+	{
+		try {
+			synchronized( chessController)
+			{
+				if( update.restarted)
+					game = null;
+				if( game == null && ( !update.moves.isEmpty() || update.ended))
+					game = new Game( null, update.tagMap, null, new ArrayList<String>());
+				if( game == null)
+					return;
+
+				// The last move may already be shown, so its annotations are added here rather than in the follower thread
+				if( game.getMoveCount() > 0)
+				{
+					Move lastMove = game.getMove( game.getMoveCount() - 1);
+					for( String comment : update.lastMoveComments)
+						lastMove.addComment( comment);
+					if( update.lastMoveGlyph != null)
+						lastMove.setNumericalAnnotationGlyph( update.lastMoveGlyph);
+				}
+
+				game.appendMoves( update.moves, update.result);
+				game.validateMoves();
+			}
+
+			chessController.showFollowedGame( game);
+		} catch( Exception e) {
+			stop();
+			chessController.showFollowError( e);
+		}
+	}
+
+	/* Read the bytes appended to the file, and parse them up to the end of their last complete element; the rest is parsed with the bytes
+	 * appended next. Return the update read from them. If the file got shorter, it's read again from its beginning.
+	 */
+	private FollowUpdate readAppendedBytes() throws IOException, PortableGameNotationException
+	{
+		byte[] bytes;
+		boolean restarted = false;
+		RandomAccessFile file = new RandomAccessFile( inputFile, "r");
+		try {
+			if( file.length() < offset)
+			{
+				restart();
+				restarted = true;
+			}
+
+			bytes = new byte[ (int) ( file.length() - offset)];
+			file.seek( offset);
+			file.readFully( bytes);
+		} finally {
+			file.close();
+		}
+
+		FollowUpdate update = new FollowUpdate( restarted);
+		int length = findCompleteLength( bytes);
+		if( length > 0 && !ended)
+		{
+			FollowListener listener = new FollowListener( update);
+			parser.parse( Channels.newChannel( new ByteArrayInputStream( bytes, 0, length)), listener);
+			listener.endUpdate();
+		}
+
+		offset += length;
+		return update;
+	}
+
+	// Forget the game, so the file is read again from its beginning.
+	private void restart()
+	{
+		tagMap = new LinkedHashMap<String,String>();
+		offset = 0;
+		moveCount = 0;
+		ended = false;
+	}
+
+	/* Return the length of the given bytes up to the last whitespace outside tag pairs, comments and recursive variations. The elements before it
+	 * are complete, while an element after it may still be being written, e.g. a move of which only the piece letter is written yet.
+	 */
+	private static int findCompleteLength( byte[] bytes)
+	{
+		int length = 0;
+		int variationDepth = 0;
+		boolean tagPair = false, string = false, braceComment = false, restOfLineComment = false;
+		for( int i = 0; i < bytes.length; i++)
+		{
+			byte ch = bytes[i];
+			if( string)
+			{
+				if( ch == '\\')
+					i++;
+				else if( ch == '"')
+					string = false;
+			}
+			else if( tagPair)
+			{
+				if( ch == '"')
+					string = true;
+				else if( ch == ']')
+					tagPair = false;
+			}
+			else if( braceComment)
+				braceComment = ( ch != '}');
+			else if( restOfLineComment)
+			{
+				if( ch == '\n')
+				{
+					restOfLineComment = false;
+					if( variationDepth <= 0)
+						length = i + 1;
+				}
+			}
+			else if( ch == '[')
+				tagPair = true;
+			else if( ch == '{')
+				braceComment = true;
+			else if( ch == ';')
+				restOfLineComment = true;
+			else if( ch == '(')
+				variationDepth++;
+			else if( ch == ')')
+				variationDepth--;
+			else if(( ch == ' ' || ch == '\t' || ch == '\r' || ch == '\n') && variationDepth <= 0)
+				length = i + 1;
+		}
+
+		return length;
+	}
+
+	private void reportError( final Exception error)
+	{
+		SwingUtilities.invokeLater( new Runnable()
+			{
+				public void run()
+				{
+					chessController.showFollowError( error);
+				}
+			}
+		);
+	}
+
+	/* The changes of the game read by one update: the new moves with their annotations, the annotations of the last move read before, and the result. 
+	 * The moves are created by the follower thread, and they are not used by it after the update is passed to the event dispatch thread.
+	 */
+	private static class FollowUpdate
+	{
+		private final boolean restarted; // If the file is read again from its beginning, so the update starts a new game
+		private Map<String,String> tagMap;
+		private ArrayList<Move> moves = new ArrayList<Move>();
+		private ArrayList<String> lastMoveComments = new ArrayList<String>();
+		private String lastMoveGlyph;
+		private Result result;
+		private boolean ended; // If the game has ended, by this update or before it
+		private boolean resultRead; // If the result is read by this update
+
+		public FollowUpdate( boolean restarted)
+		{
+			this.restarted = restarted;
+		}
+
+		public boolean isChanged()
+		{
+			return restarted || resultRead || !moves.isEmpty() || !lastMoveComments.isEmpty() || lastMoveGlyph != null;
+		}
+	}
+
+	/* Collects the tags and the main line moves of the parsed bytes into an update. Moves are numbered after the moves read before, as the bytes 
+	 * don't start at the beginning of the game. Recursive variations are skipped, and so are the comments before the first move.
+	 */
+	private class FollowListener extends PortableGameNotationAdapter
+	{
+		private final FollowUpdate update;
+		private int variationDepth;
+		private PortableGameNotationException moveException;
+
+		public FollowListener( FollowUpdate update)
+		{
+			this.update = update;
+		}
+
+		@Override
+		public void onTag( String tagName, String tagValue)
+		{
+			if( moveCount == 0 && !ended)
+				tagMap.put( tagName, tagValue);
+		}
+
+		@Override
+		public void onMove( String moveText, int turnIndex, Color playerSide)
+		{
+			if( ended || variationDepth > 0 || moveException != null)
+				return;
+
+			int moveIndex = moveCount;
+			try {
+				update.moves.add( PortableGameNotationParser.parseMoveText( moveText, moveIndex/2 + 1, ( moveIndex % 2 == 0) ? Color.WHITE : Color.BLACK));
+				moveCount++;
+			} catch( PortableGameNotationException e) {
+				moveException = e;
+			}
+		}
+
+		// Set the glyph of the last move: of a new move directly, or of a move read before by the event dispatch thread, as it may be shown.
+		@Override
+		public void onNumericAnnotationGlyph( String numericAnnotationGlyph)
+		{
+			if( variationDepth > 0 || ended)
+				return;
+
+			if( !update.moves.isEmpty())
+				update.moves.get( update.moves.size() - 1).setNumericalAnnotationGlyph( numericAnnotationGlyph);
+			else if( moveCount > 0)
+				update.lastMoveGlyph = numericAnnotationGlyph;
+		}
+
+		// Add the comment to the last move, like a glyph.
+		@Override
+		public void onComment( String comment)
+		{
+			if( variationDepth > 0 || ended)
+				return;
+
+			if( !update.moves.isEmpty())
+				update.moves.get( update.moves.size() - 1).addComment( comment);
+			else if( moveCount > 0)
+				update.lastMoveComments.add( comment);
+		}
+
+		@Override
+		public void onVariationStart()
+		{
+			variationDepth++;
+		}
+
+		@Override
+		public void onVariationEnd()
+		{
+			variationDepth--;
+		}
+
+		@Override
+		public void onResult( String resultText)
+		{
+			if( ended || variationDepth > 0)
+				return;
+
+			if( "1-0".equals( resultText))
+				update.result = Result.WHITE_WINS;
+			else if( "0-1".equals( resultText))
+				update.result = Result.BLACK_WINS;
+			else if( "1/2-1/2".equals( resultText))
+				update.result = Result.DRAW;
+
+			ended = true;
+			update.resultRead = true;
+		}
+
+		// End the update, taking a copy of the tags for the game, which is created from them when its movetext starts.
+		public void endUpdate() throws PortableGameNotationException
+		{
+			if( moveException != null)
+				throw moveException;
+
+			update.tagMap = new LinkedHashMap<String,String>( tagMap);
+			update.ended = ended;
+		}
+	}
+}
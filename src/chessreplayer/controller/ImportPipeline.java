@@ -0,0 +1,410 @@
+/**
+ * Imports the games of a PGN database in stages running in parallel: a reader splits the input into games, parsers parse them, validators
+ * validate their moves, and a sink receives them in the order of the input. Stages are connected by bounded queues, so a stage waits when
+ * the next one falls behind, and the number of games in the pipeline is bounded however large the input is.
+ * A strict pipeline stops at the first game that fails. A lenient pipeline records the error of a failed game and goes on with the next game,
+ * resynchronizing at its Event tag if the failed game broke the structure of the input.
+ * Usage: ImportPipeline [-threads count] [-capacity games] [-lenient] file.pgn ...
+ */
+
+package chessreplayer.controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chessreplayer.model.Game;
+import chessreplayer.parser.DecompressingChannel;
+import chessreplayer.parser.PortableGameNotationParser;
+import chessreplayer.parser.PortableGameNotationSplitter;
+
+public class ImportPipeline
+{
+	// Receives the imported games in the order of the input, in the thread running the pipeline.
+	public interface Sink
+	{
+		public void gameImported( int gameIndex, long offset, Game game);
+		public void gameFailed( GameError error);
+	}
+
+	// Marks the end of the input in a queue. Each thread of a stage passes one on when it ends, so that each thread of the next stage ends.
+	private static final Item END = new Item( -1, -1, null);
+
+	private final int threadCount;
+	private final boolean lenient;
+	private final BlockingQueue<Item> splitQueue;
+	private final BlockingQueue<Item> parsedQueue;
+	private final BlockingQueue<Item> validatedQueue;
+	private final Semaphore inFlight; // Permits for the games between the reader and the sink, so that games waiting to be sunk in order are bounded too
+	private final Stage readStage, parseStage, validateStage, sinkStage;
+	private volatile IOException readException;
+
+	/* Create a pipeline with the given number of parser threads and the given number of validator threads, and with queues holding
+	 * at most the given number of games. At most three times the capacity games are in the pipeline at any time, queued or being processed.
+	 * A lenient pipeline goes on after a game fails, a strict pipeline stops.
+	 */
+	public ImportPipeline( int threadCount, int capacity, boolean lenient)
+	{
+		this.threadCount = threadCount;
+		this.lenient = lenient;
+		this.splitQueue = new ArrayBlockingQueue<Item>( capacity);
+		this.parsedQueue = new ArrayBlockingQueue<Item>( capacity);
+		this.validatedQueue = new ArrayBlockingQueue<Item>( capacity);
+		this.inFlight = new Semaphore( 3 * capacity);
+		this.readStage = new Stage( "Read", null);
+		this.parseStage = new Stage( "Parse", splitQueue);
+		this.validateStage = new Stage( "Validate", parsedQueue);
+		this.sinkStage = new Stage( "Sink", validatedQueue);
+	}
+
+	/* Import the games read from the given channel, and pass them to the given sink in the order of the input. A game that cannot be parsed
+	 * or validated is passed to the sink as an error. If the pipeline is lenient, the following games are still imported, otherwise the import
+	 * stops after the error. Return the number of games passed to the sink.
+	 * If the input cannot be read, the games read so far are passed to the sink, and then the IO exception is thrown.
+	 */
+	public int run( final ReadableByteChannel channel, Sink sink) throws IOException, InterruptedException
+	{
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+
+		threads.add( startThread( "Import Reader", new Runnable()
+			{
+				public void run()
+				{
+					read( channel);
+				}
+			}
+		));
+
+		for( int i = 0; i < threadCount; i++)
+		{
+			threads.add( startThread( "Import Parser " + ( i + 1), new Runnable()
+				{
+					public void run()
+					{
+						parse();
+					}
+				}
+			));
+			threads.add( startThread( "Import Validator " + ( i + 1), new Runnable()
+				{
+					public void run()
+					{
+						validate();
+					}
+				}
+			));
+		}
+
+		int gameCount;
+		try {
+			gameCount = sink( sink);
+		} finally {
+			for( Thread thread : threads)
+				thread.interrupt();
+		}
+
+		if( readException != null)
+			throw readException;
+
+		return gameCount;
+	}
+
+	/* Import the games in the given file, and pass them to the given sink in the order of the file. If the file is compressed with gzip or zip, 
+	 * it's decompressed in a thread of its own, ahead of the reader.
+	 */
+	public int run( File inputFile, Sink sink) throws IOException, InterruptedException
+	{
+		ReadableByteChannel channel = DecompressingChannel.open( inputFile);
+		try {
+			return run( channel, sink);
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {} // Nothing to do here
+		}
+	}
+
+	// Return the statistics of the reader, parser, validator and sink stages, in this order.
+	public List<Stage> getStages()
+	{
+		ArrayList<Stage> stages = new ArrayList<Stage>();
+		stages.add( readStage);
+		stages.add( parseStage);
+		stages.add( validateStage);
+		stages.add( sinkStage);
+		return stages;
+	}
+
+	// Split the input into games and put them into the split queue, numbered in the order of the input.
+	private void read( ReadableByteChannel channel)
+	{
+		try {
+			PortableGameNotationSplitter splitter = new PortableGameNotationSplitter( channel, lenient);
+			int gameIndex = 0;
+			while( true)
+			{
+				inFlight.acquire();
+				long startTime = System.nanoTime();
+				byte[] bytes = splitter.nextGame();
+				if( bytes == null)
+				{
+					inFlight.release();
+					break;
+				}
+
+				Item item = new Item( gameIndex, splitter.getGameOffset(), bytes);
+				readStage.processed( startTime);
+				splitQueue.put( item);
+				gameIndex++;
+			}
+		} catch( IOException e) {
+			readException = e;
+		} catch( InterruptedException e) {
+			return;
+		}
+
+		try {
+			for( int i = 0; i < threadCount; i++)
+				splitQueue.put( END);
+		} catch( InterruptedException e) {} // The pipeline is stopped
+	}
+
+	// Parse the games in the split queue, and put them into the parsed queue.
+	private void parse()
+	{
+		PortableGameNotationParser parser = new PortableGameNotationParser();
+		try {
+			Item item;
+			while(( item = splitQueue.take()) != END)
+			{
+				long startTime = System.nanoTime();
+				try {
+					item.game = parser.parse( Channels.newChannel( new ByteArrayInputStream( item.bytes)));
+				} catch( Exception e) {
+					item.exception = e;
+				}
+				item.bytes = null;
+				parseStage.processed( startTime);
+				parsedQueue.put( item);
+			}
+			parsedQueue.put( END);
+		} catch( InterruptedException e) {} // The pipeline is stopped
+	}
+
+	// Validate the moves of the games in the parsed queue, and put them into the validated queue. Games that couldn't be parsed are passed on.
+	private void validate()
+	{
+		try {
+			Item item;
+			while(( item = parsedQueue.take()) != END)
+			{
+				long startTime = System.nanoTime();
+				if( item.game != null)
+				{
+					try {
+						item.game.validateMoves();
+					} catch( Exception e) {
+						item.exception = e;
+						item.ply = item.game.getValidatedMoveCount() + 1; // The move following the validated moves is invalid
+					}
+				}
+				validateStage.processed( startTime);
+				validatedQueue.put( item);
+			}
+			validatedQueue.put( END);
+		} catch( InterruptedException e) {} // The pipeline is stopped
+	}
+
+	/* Pass the games in the validated queue to the given sink in the order of the input, until each validator has ended, or until a game fails
+	 * if the pipeline is strict. Games that arrive before the games preceding them wait in a map. Return the number of games.
+	 */
+	private int sink( Sink sink) throws InterruptedException
+	{
+		HashMap<Integer, Item> waitingItems = new HashMap<Integer, Item>();
+		int nextGameIndex = 0;
+		int endCount = 0;
+		while( endCount < threadCount)
+		{
+			Item item = validatedQueue.take();
+			if( item == END)
+			{
+				endCount++;
+				continue;
+			}
+
+			waitingItems.put( item.gameIndex, item);
+			while(( item = waitingItems.remove( nextGameIndex)) != null)
+			{
+				long startTime = System.nanoTime();
+				if( item.exception == null)
+					sink.gameImported( item.gameIndex, item.offset, item.game);
+				else
+					sink.gameFailed( new GameError( item.gameIndex, item.offset, item.ply, item.exception.getMessage()));
+				sinkStage.processed( startTime);
+
+				inFlight.release();
+				nextGameIndex++;
+
+				// The other threads are interrupted when the sink returns
+				if( item.exception != null && !lenient)
+					return nextGameIndex;
+			}
+		}
+
+		return nextGameIndex;
+	}
+
+	private static Thread startThread( String name, Runnable runnable)
+	{
+		Thread thread = new Thread( runnable, name);
+		thread.setDaemon( true);
+		thread.start();
+		return thread;
+	}
+
+	// A game passing through the pipeline. Its bytes are dropped after it's parsed.
+	private static class Item
+	{
+		private final int gameIndex;
+		private final long offset;
+		private byte[] bytes;
+		private Game game;
+		private Exception exception;
+		private int ply = GameError.NO_PLY; // Ply of the invalid move, if the moves of the game couldn't be validated
+
+		public Item( int gameIndex, long offset, byte[] bytes)
+		{
+			this.gameIndex = gameIndex;
+			this.offset = offset;
+			this.bytes = bytes;
+		}
+	}
+
+	/* Statistics of a stage: the number of games it processed, the time its threads spent processing them, and the number of games
+	 * waiting in its input queue. The throughput is per thread, so a stage with several threads processes that many times more games.
+	 */
+	public static class Stage
+	{
+		private final String name;
+		private final BlockingQueue<Item> queue;
+		private final AtomicLong gameCount = new AtomicLong();
+		private final AtomicLong busyTime = new AtomicLong(); // Nanoseconds
+
+		private Stage( String name, BlockingQueue<Item> queue)
+		{
+			this.name = name;
+			this.queue = queue;
+		}
+
+		// Count a game processed since the given start time
+		private void processed( long startTime)
+		{
+			busyTime.addAndGet( System.nanoTime() - startTime);
+			gameCount.incrementAndGet();
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public long getGameCount()
+		{
+			return gameCount.get();
+		}
+
+		public long getBusyTime()
+		{
+			return busyTime.get() / 1000000; // Milliseconds
+		}
+
+		// Return the number of games processed per second of busy time of a thread
+		public double getThroughput()
+		{
+			long time = busyTime.get();
+			return ( time == 0) ? 0 : gameCount.get() * 1000000000.0 / time;
+		}
+
+		// Return the number of games waiting in the input queue of the stage, which is zero for the reader
+		public int getQueueDepth()
+		{
+			return ( queue == null) ? 0 : queue.size();
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format( "%-8s %8d games %8d ms %10.1f games/s %4d queued", name, getGameCount(), getBusyTime(), getThroughput(), getQueueDepth());
+		}
+	}
+
+	public static void main( String[] args) throws InterruptedException
+	{
+		int threadCount = Runtime.getRuntime().availableProcessors();
+		int capacity = 64;
+		boolean lenient = false;
+		ArrayList<File> inputFiles = new ArrayList<File>();
+
+		try {
+			for( int i = 0; i < args.length; i++)
+			{
+				if( "-threads".equals( args[i]))
+					threadCount = Math.max( 1, Integer.parseInt( args[++i]));
+				else if( "-capacity".equals( args[i]))
+					capacity = Math.max( 1, Integer.parseInt( args[++i]));
+				else if( "-lenient".equals( args[i]))
+					lenient = true;
+				else
+					inputFiles.add( new File( args[i]));
+			}
+		} catch( ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			inputFiles.clear();
+		}
+
+		if( inputFiles.isEmpty())
+		{
+			System.err.println( "Usage: ImportPipeline [-threads count] [-capacity games] [-lenient] file.pgn ...");
+			System.exit( 1);
+		}
+
+		for( final File inputFile : inputFiles)
+		{
+			final int[] failedCount = new int[1];
+			final long[] moveCount = new long[1];
+			ImportPipeline pipeline = new ImportPipeline( threadCount, capacity, lenient);
+			long startTime = System.currentTimeMillis();
+			try {
+				int gameCount = pipeline.run( inputFile, new Sink()
+					{
+						public void gameImported( int gameIndex, long offset, Game game)
+						{
+							moveCount[0] += game.getMoveCount();
+						}
+
+						public void gameFailed( GameError error)
+						{
+							failedCount[0]++;
+							System.err.println( inputFile.getPath() + ": " + error);
+						}
+					}
+				);
+
+				System.out.println( inputFile.getPath() + ": " + ( gameCount - failedCount[0]) + " games with " + moveCount[0] + " moves imported, " +
+						failedCount[0] + " failed, in " + ( System.currentTimeMillis() - startTime) + " ms");
+				for( Stage stage : pipeline.getStages())
+					System.out.println( "    " + stage);
+			} catch( IOException e) {
+				System.err.println( "Cannot read " + inputFile.getPath() + ": " + e.getMessage());
+			}
+		}
+	}
+}
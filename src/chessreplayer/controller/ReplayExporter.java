@@ -0,0 +1,268 @@
+/**
+ * Exports a replay of a game as an animated GIF or as a numbered PNG frame sequence, rendered without the user interface.
+ * Frames are streamed to the output one by one, so only the current and the previous frame are kept in memory however long the game is.
+ * Usage: ReplayExporter [-size pixels] [-frames] file.pgn output
+ */
+
+package chessreplayer.controller;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+import chessreplayer.model.Game;
+import chessreplayer.model.GameCursor;
+import chessreplayer.move.IllegalPromotionException;
+import chessreplayer.move.InvalidMoveException;
+import chessreplayer.parser.PortableGameNotationException;
+import chessreplayer.parser.PortableGameNotationParser;
+import chessreplayer.view.BoardPanel;
+import chessreplayer.view.BoardRenderer;
+import chessreplayer.view.ChessImage;
+import chessreplayer.view.ChessImageException;
+
+public class ReplayExporter
+{
+	private static final String GIF_METADATA_FORMAT = "javax_imageio_gif_image_1.0";
+
+	private ChessPropertiesReader properties;
+	private int size;
+
+	public ReplayExporter( ChessPropertiesReader properties, int size)
+	{
+		this.properties = properties;
+		this.size = size;
+	}
+
+	/* Export the replay of the given game from its starting position to the given GIF file, one frame for each ply. Each frame is shown for
+	 * the turn time in the properties. The first frame is the whole board, every following frame only holds the smallest rectangle that changed
+	 * since the previous frame, drawn on top of it. Two images are reused for the current and the previous frame. Return the number of frames written.
+	 * The game is replayed by a cursor of its own, so it can be exported while it's replayed elsewhere.
+	 */
+	public int exportGif( Game game, File outputFile) throws IOException
+	{
+		ImageWriter writer = ImageIO.getImageWritersByFormatName( "gif").next();
+		ImageOutputStream output = ImageIO.createImageOutputStream( outputFile);
+		if( output == null)
+			throw new IOException( "Cannot write to " + outputFile.getPath());
+
+		BoardRenderer renderer = new BoardRenderer( properties);
+		renderer.initialize();
+
+		BufferedImage currentFrame = new BufferedImage( size, size, BufferedImage.TYPE_INT_RGB);
+		BufferedImage previousFrame = new BufferedImage( size, size, BufferedImage.TYPE_INT_RGB);
+		int delayTime = Math.max( 1, properties.getTurnTime() / 10); // GIF delay time is in hundredths of a second
+		GameCursor cursor = new GameCursor( game);
+		int frameCount = 0;
+
+		try {
+			writer.setOutput( output);
+			writer.prepareWriteSequence( null);
+
+			for( int ply = 0; ply <= game.getMoveCount(); ply++)
+			{
+				if( ply > 0)
+					cursor.playTurn();
+
+				renderer.render( cursor, currentFrame);
+
+				Rectangle changedArea = ( ply == 0) ? new Rectangle( 0, 0, size, size) : findChangedArea( previousFrame, currentFrame);
+				BufferedImage delta = currentFrame.getSubimage( changedArea.x, changedArea.y, changedArea.width, changedArea.height);
+				writer.writeToSequence( new IIOImage( delta, null, createFrameMetadata( writer, delta, changedArea, delayTime)), null);
+				frameCount++;
+
+				// The current frame becomes the previous frame, and the old previous frame is overwritten by the next frame.
+				BufferedImage frame = previousFrame;
+				previousFrame = currentFrame;
+				currentFrame = frame;
+			}
+
+			writer.endWriteSequence();
+		} finally {
+			output.close();
+			writer.dispose();
+		}
+
+		return frameCount;
+	}
+
+	/* Export the replay of the given game from its starting position to the given directory as a numbered PNG file for each ply,
+	 * named after the given base name, e.g. game_012.png for the position after the 12th ply. Return the number of frames written.
+	 */
+	public int exportFrames( Game game, File outputDirectory, String baseName) throws IOException
+	{
+		if( !outputDirectory.isDirectory() && !outputDirectory.mkdirs())
+			throw new IOException( "Cannot create the output directory " + outputDirectory.getPath());
+
+		BoardRenderer renderer = new BoardRenderer( properties);
+		renderer.initialize();
+
+		BufferedImage frame = new BufferedImage( size, size, BufferedImage.TYPE_INT_RGB);
+		GameCursor cursor = new GameCursor( game);
+		int frameCount = 0;
+		for( int ply = 0; ply <= game.getMoveCount(); ply++)
+		{
+			if( ply > 0)
+				cursor.playTurn();
+
+			renderer.render( cursor, frame);
+			ImageIO.write( frame, "png", new File( outputDirectory, baseName + "_" + String.format( "%03d", ply) + ".png"));
+			frameCount++;
+		}
+
+		return frameCount;
+	}
+
+	/* Find the smallest rectangle that contains all the pixels that differ between the given frames, which have the same size.
+	 * If the frames are the same, return a single pixel, as a GIF frame cannot be empty.
+	 */
+	private static Rectangle findChangedArea( BufferedImage previousFrame, BufferedImage currentFrame)
+	{
+		int[] previousPixels = ((DataBufferInt) previousFrame.getRaster().getDataBuffer()).getData();
+		int[] currentPixels = ((DataBufferInt) currentFrame.getRaster().getDataBuffer()).getData();
+		int width = currentFrame.getWidth();
+		int height = currentFrame.getHeight();
+
+		int minX = width, minY = height, maxX = -1, maxY = -1;
+		for( int y = 0; y < height; y++)
+		{
+			int rowOffset = y * width;
+			for( int x = 0; x < width; x++)
+			{
+				if( previousPixels[ rowOffset + x] != currentPixels[ rowOffset + x])
+				{
+					minX = Math.min( minX, x);
+					maxX = Math.max( maxX, x);
+					minY = Math.min( minY, y);
+					maxY = y;
+				}
+			}
+		}
+
+		if( maxX < 0)
+			return new Rectangle( 0, 0, 1, 1);
+
+		return new Rectangle( minX, minY, maxX - minX + 1, maxY - minY + 1);
+	}
+
+	/* Create the metadata of a GIF frame, which places the given image at the position of the given area, shows it for the given delay time
+	 * and keeps it in place when the next frame is drawn on top of it.
+	 */
+	private static IIOMetadata createFrameMetadata( ImageWriter writer, BufferedImage image, Rectangle area, int delayTime) throws IOException
+	{
+		IIOMetadata metadata = writer.getDefaultImageMetadata( ImageTypeSpecifier.createFromRenderedImage( image), null);
+		IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree( GIF_METADATA_FORMAT);
+
+		IIOMetadataNode imageDescriptor = getChild( root, "ImageDescriptor");
+		imageDescriptor.setAttribute( "imageLeftPosition", String.valueOf( area.x));
+		imageDescriptor.setAttribute( "imageTopPosition", String.valueOf( area.y));
+		imageDescriptor.setAttribute( "imageWidth", String.valueOf( area.width));
+		imageDescriptor.setAttribute( "imageHeight", String.valueOf( area.height));
+		imageDescriptor.setAttribute( "interlaceFlag", "FALSE");
+
+		IIOMetadataNode graphicControlExtension = getChild( root, "GraphicControlExtension");
+		graphicControlExtension.setAttribute( "disposalMethod", "doNotDispose");
+		graphicControlExtension.setAttribute( "userInputFlag", "FALSE");
+		graphicControlExtension.setAttribute( "transparentColorFlag", "FALSE");
+		graphicControlExtension.setAttribute( "delayTime", String.valueOf( delayTime));
+		graphicControlExtension.setAttribute( "transparentColorIndex", "0");
+
+		metadata.setFromTree( GIF_METADATA_FORMAT, root);
+		return metadata;
+	}
+
+	// Return the child of the given metadata node with the given name, creating it if it doesn't exist.
+	private static IIOMetadataNode getChild( IIOMetadataNode root, String name)
+	{
+		for( int i = 0; i < root.getLength(); i++)
+		{
+			if( root.item( i).getNodeName().equals( name))
+				return (IIOMetadataNode) root.item( i);
+		}
+
+		IIOMetadataNode node = new IIOMetadataNode( name);
+		root.appendChild( node);
+		return node;
+	}
+
+	// Parse and validate the game in the given file, ready to be exported.
+	public static Game loadGame( File inputFile) throws PortableGameNotationException, IOException, InvalidMoveException, IllegalPromotionException
+	{
+		Game game = new PortableGameNotationParser().parse( inputFile);
+		game.validateMoves();
+		return game;
+	}
+
+	// Read and validate the game at the given offset of the given file, which may hold several games, ready to be exported.
+	public static Game loadGame( File inputFile, long offset) throws PortableGameNotationException, IOException, InvalidMoveException, IllegalPromotionException
+	{
+		Game game = GameCache.readGame( inputFile, offset);
+		game.validateMoves();
+		return game;
+	}
+
+	public static void main( String[] args) throws Exception
+	{
+		// Never open a window, even if a display is available
+		System.setProperty( "java.awt.headless", "true");
+
+		int size = BoardPanel.SIZE;
+		boolean frames = false;
+		File inputFile = null, output = null;
+
+		try {
+			for( int i = 0; i < args.length; i++)
+			{
+				if( "-size".equals( args[i]))
+					size = Integer.parseInt( args[++i]);
+				else if( "-frames".equals( args[i]))
+					frames = true;
+				else if( inputFile == null)
+					inputFile = new File( args[i]);
+				else
+					output = new File( args[i]);
+			}
+		} catch( ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			output = null;
+		}
+
+		if( output == null)
+		{
+			System.err.println( "Usage: ReplayExporter [-size pixels] [-frames] file.pgn output");
+			System.exit( 1);
+		}
+
+		ChessProperties properties = new ChessProperties();
+		try {
+			ChessImage.loadImages( properties);
+		} catch( ChessImageException e) {
+			System.err.println( e.getMessage());
+			System.exit( 1);
+		}
+
+		ReplayExporter exporter = new ReplayExporter( properties, size);
+		Game game = loadGame( inputFile);
+		int frameCount;
+		if( frames)
+		{
+			String baseName = inputFile.getName();
+			if( baseName.lastIndexOf( '.') > 0)
+				baseName = baseName.substring( 0, baseName.lastIndexOf( '.'));
+			frameCount = exporter.exportFrames( game, output, baseName);
+		}
+		else
+			frameCount = exporter.exportGif( game, output);
+
+		System.out.println( frameCount + " frames written to " + output.getPath());
+	}
+}
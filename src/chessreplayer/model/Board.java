@@ -4,7 +4,8 @@
 
 package chessreplayer.model;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
 
 import chessreplayer.move.CastlingMove;
 import chessreplayer.move.EnPassantMove;
@@ -26,16 +27,111 @@ import chessreplayer.piece.Rook;
 public class Board
 {
 	public static final int BOARD_SIZE = 8;
-	private ArrayList<Piece> inGamePieces;
-	private ArrayList<Piece> capturedPieces;
+	public static final int PIECE_COUNT = 32;
+	
+	// Castling rights, one bit for each side of each color
+	public static final int WHITE_KINGSIDE_CASTLING = 1;
+	public static final int WHITE_QUEENSIDE_CASTLING = 2;
+	public static final int BLACK_KINGSIDE_CASTLING = 4;
+	public static final int BLACK_QUEENSIDE_CASTLING = 8;
+	public static final int NO_EN_PASSANT_FILE = -1;
+	
 	private Piece[][] squares; // file first
 	
+	/* Pieces have fixed slots, in the order they are placed on the board. A piece keeps its slot after it's captured, 
+	 * so capturing a piece and putting it back doesn't need to search for it.
+	 */
+	private Piece[] pieces;
+	private int pieceCount;
+	private Piece[] capturedPieces; // In the order they are captured, so that the last one is put back when a move is taken back
+	private int capturedPieceCount;
+	
+	/* Number of pieces on the board for each color and piece letter, a promoted pawn is counted as the piece it's promoted to. 
+	 * The signature of a color packs its counts into 4 bits for each piece letter, in the order of piece letters, so that 
+	 * positions with the same material have the same signature. Both are updated when a piece is captured, put back, promoted or demoted.
+	 */
+	private int[][] materialCounts;
+	private int[] materialSignatures;
+	
+	/* Castling rights, and the file of the pawn which has just moved two squares forward and can be captured en passant. 
+	 * They are kept by the board, as they depend on the moves played so far, not only on the pieces on the board.
+	 */
+	private int castlingRights;
+	private int enPassantFile;
+	private long hash; // Zobrist hash of the position, updated with each move
+	
+	/* Each executed move pushes an undo record, which packs its source and destination squares, the square of the piece it captured, 
+	 * the castling rights and the en passant file before the move, and whether it was a castling or a promotion move. 
+	 * The hash before the move is pushed onto a parallel stack. Taking back a move pops its record, so it doesn't need the move itself.
+	 */
+	private int[] undoRecords;
+	private long[] undoHashes;
+	private int undoCount;
+	
+	// Possible source squares of the move being validated. Kept between validations, so that validating a move doesn't allocate.
+	private int[] possibleSourceFiles;
+	private int[] possibleSourceRanks;
+	private int possibleSourceCount;
+	
+	// Enum values are cached, as values() returns a new array each time
+	private static final Move.File[] FILES = Move.File.values();
+	private static final Rank[] RANKS = Rank.values();
+	
+	// Offsets of the eight squares a knight can threaten a square from
+	private static final int[] KNIGHT_FILE_OFFSETS = {1, 2, 2, 1, -1, -2, -2, -1};
+	private static final int[] KNIGHT_RANK_OFFSETS = {2, 1, -1, -2, -2, -1, 1, 2};
+	
+	// Fields of an undo record. A square is file * BOARD_SIZE + rank, and takes 7 bits so that it can also be NO_SQUARE.
+	private static final int NO_SQUARE = BOARD_SIZE * BOARD_SIZE;
+	private static final int SQUARE_MASK = 0x7F;
+	private static final int DESTINATION_SHIFT = 7;
+	private static final int CAPTURED_SHIFT = 14;
+	private static final int CASTLING_RIGHTS_SHIFT = 21;
+	private static final int EN_PASSANT_FILE_SHIFT = 25; // The en passant file is stored plus one, so that NO_EN_PASSANT_FILE is zero
+	private static final int CASTLING_FLAG = 1 << 29;
+	private static final int PROMOTION_FLAG = 1 << 30;
+	private static final int INITIAL_UNDO_CAPACITY = 256; // Enough plies for most games, the stacks grow for longer ones
+	
+	/* Random keys of the Zobrist hash, for each color and piece letter on each square, for each combination of castling rights, 
+	 * for each en passant file and for black to move. The seed is fixed, so that a position has the same hash in every run.
+	 */
+	private static final long[][] PIECE_KEYS = new long[Color.values().length * PieceLetter.values().length][BOARD_SIZE * BOARD_SIZE];
+	private static final long[] CASTLING_KEYS = new long[16];
+	private static final long[] EN_PASSANT_KEYS = new long[BOARD_SIZE];
+	private static final long BLACK_TO_MOVE_KEY;
+	
+	static
+	{
+		Random random = new Random( 0x5A0B7157L);
+		for( int i = 0; i < PIECE_KEYS.length; i++)
+			for( int j = 0; j < PIECE_KEYS[i].length; j++)
+				PIECE_KEYS[i][j] = random.nextLong();
+		
+		// No castling rights hash to zero, so that an empty board hashes to zero
+		for( int i = 1; i < CASTLING_KEYS.length; i++)
+			CASTLING_KEYS[i] = random.nextLong();
+		
+		for( int i = 0; i < EN_PASSANT_KEYS.length; i++)
+			EN_PASSANT_KEYS[i] = random.nextLong();
+		
+		BLACK_TO_MOVE_KEY = random.nextLong();
+	}
+	
 	// Create an empty board.
 	public Board()
 	{
-		inGamePieces = new ArrayList<Piece>();
-		capturedPieces = new ArrayList<Piece>();
 		squares = new Piece[BOARD_SIZE][BOARD_SIZE];
+		pieces = new Piece[PIECE_COUNT];
+		capturedPieces = new Piece[PIECE_COUNT];
+		materialCounts = new int[Color.values().length][PieceLetter.values().length];
+		materialSignatures = new int[Color.values().length];
+		possibleSourceFiles = new int[BOARD_SIZE * BOARD_SIZE];
+		possibleSourceRanks = new int[BOARD_SIZE * BOARD_SIZE];
+		undoRecords = new int[INITIAL_UNDO_CAPACITY];
+		undoHashes = new long[INITIAL_UNDO_CAPACITY];
+		castlingRights = 0;
+		enPassantFile = NO_EN_PASSANT_FILE;
+		hash = 0;
 		
 		for( int i = 0; i < BOARD_SIZE; i++)
 			for( int j = 0; j < BOARD_SIZE; j++)
@@ -47,49 +143,174 @@ public class Board
 		return squares;
 	}
 	
+	// Return the piece in the given slot, whether it's on the board or captured
+	public Piece getPiece( int slot)
+	{
+		return pieces[slot];
+	}
+	
+	// Return the number of pieces on the board
+	public int getInGamePieceCount()
+	{
+		return pieceCount - capturedPieceCount;
+	}
+	
+	// Return the number of pieces on the board with the given color and piece letter
+	public int getMaterialCount( Color color, PieceLetter pieceLetter)
+	{
+		return materialCounts[color.ordinal()][pieceLetter.ordinal()];
+	}
+	
+	/* Return the material signature of the given color, which holds the number of its pieces on the board for each piece letter 
+	 * in 4 bits, starting from the lowest bits with the pawns. E.g. a king and a rook alone have the signature 0x101000.
+	 */
+	public int getMaterialSignature( Color color)
+	{
+		return materialSignatures[color.ordinal()];
+	}
+	
+	/* Return the castling rights that are left, one bit for each side of each color, e.g. WHITE_KINGSIDE_CASTLING. 
+	 * A right is lost when the king or the rook moves, or when the rook is captured, even if castling is prevented for the moment.
+	 */
+	public int getCastlingRights()
+	{
+		return castlingRights;
+	}
+	
+	// Return the file of the pawn which can be captured en passant in the next move, or NO_EN_PASSANT_FILE
+	public int getEnPassantFile()
+	{
+		return enPassantFile;
+	}
+	
+	/* Return the Zobrist hash of the position, which includes the pieces on the board, the castling rights, the en passant file and 
+	 * the side to move. The same position has the same hash, whichever moves lead to it.
+	 */
+	public long getHash()
+	{
+		return hash;
+	}
+	
+	// Put the given piece on the given square, in the next piece slot
+	private void addPiece( Piece piece, int file, int rank)
+	{
+		pieces[pieceCount] = piece;
+		pieceCount++;
+		squares[file][rank] = piece;
+		changeMaterial( piece.getColor(), piece.getRealPieceLetter(), 1);
+		hash ^= getPieceKey( piece, file, rank);
+	}
+	
+	// Move the piece on the given source square to the given destination square, which is empty
+	private void movePiece( int fileSrc, int rankSrc, int fileDest, int rankDest)
+	{
+		Piece piece = squares[fileSrc][rankSrc];
+		squares[fileDest][rankDest] = piece;
+		squares[fileSrc][rankSrc] = null;
+		hash ^= getPieceKey( piece, fileSrc, rankSrc) ^ getPieceKey( piece, fileDest, rankDest);
+	}
+	
+	// Return the Zobrist key of the given piece on the given square
+	private static long getPieceKey( Piece piece, int file, int rank)
+	{
+		return PIECE_KEYS[piece.getColor().ordinal() * PieceLetter.values().length + piece.getRealPieceLetter().ordinal()][file * BOARD_SIZE + rank];
+	}
+	
+	// Return the castling rights which are lost when a piece moves from or to the given square, the starting square of a king or a rook
+	private static int getCastlingRightsOf( int square)
+	{
+		switch( square)
+		{
+			case 4 * BOARD_SIZE: // e1
+				return WHITE_KINGSIDE_CASTLING | WHITE_QUEENSIDE_CASTLING;
+			case 7 * BOARD_SIZE: // h1
+				return WHITE_KINGSIDE_CASTLING;
+			case 0: // a1
+				return WHITE_QUEENSIDE_CASTLING;
+			case 4 * BOARD_SIZE + 7: // e8
+				return BLACK_KINGSIDE_CASTLING | BLACK_QUEENSIDE_CASTLING;
+			case 7 * BOARD_SIZE + 7: // h8
+				return BLACK_KINGSIDE_CASTLING;
+			case 7: // a8
+				return BLACK_QUEENSIDE_CASTLING;
+			default:
+				return 0;
+		}
+	}
+	
+	// Push the given undo record and the given hash before the move, growing the stacks if they are full
+	private void pushUndoRecord( int record, long previousHash)
+	{
+		if( undoCount == undoRecords.length)
+		{
+			undoRecords = Arrays.copyOf( undoRecords, 2 * undoCount);
+			undoHashes = Arrays.copyOf( undoHashes, 2 * undoCount);
+		}
+		
+		undoRecords[undoCount] = record;
+		undoHashes[undoCount] = previousHash;
+		undoCount++;
+	}
+	
+	// Push the given piece, which is captured, onto the stack of captured pieces
+	private void pushCapturedPiece( Piece piece)
+	{
+		capturedPieces[capturedPieceCount] = piece;
+		capturedPieceCount++;
+		changeMaterial( piece.getColor(), piece.getRealPieceLetter(), -1);
+	}
+	
+	// Pop the last captured piece from the stack of captured pieces, to put it back on the board
+	private Piece popCapturedPiece()
+	{
+		capturedPieceCount--;
+		Piece piece = capturedPieces[capturedPieceCount];
+		capturedPieces[capturedPieceCount] = null;
+		changeMaterial( piece.getColor(), piece.getRealPieceLetter(), 1);
+		return piece;
+	}
+	
+	// Add the given amount to the material count and the material signature of the given color and piece letter
+	private void changeMaterial( Color color, PieceLetter pieceLetter, int amount)
+	{
+		materialCounts[color.ordinal()][pieceLetter.ordinal()] += amount;
+		materialSignatures[color.ordinal()] += amount << ( 4 * pieceLetter.ordinal());
+	}
+	
 	// Fill the board with pieces in their starting positions.
 	public void initializePieces()
 	{
 		// Rank 1
 		Rook whiteRook1 = new Rook( Color.WHITE);
-		inGamePieces.add( whiteRook1);
-		squares[0][0] = whiteRook1; // a1
+		addPiece( whiteRook1, 0, 0); // a1
 		
 		Knight whiteKnight1 = new Knight( Color.WHITE);
-		inGamePieces.add( whiteKnight1);
-		squares[1][0] = whiteKnight1; // b1
+		addPiece( whiteKnight1, 1, 0); // b1
 		
 		Bishop whiteBishop1 = new Bishop( Color.WHITE);
-		inGamePieces.add( whiteBishop1);
-		squares[2][0] = whiteBishop1; // c1
+		addPiece( whiteBishop1, 2, 0); // c1
 		
 		Queen whiteQueen = new Queen( Color.WHITE);
-		inGamePieces.add( whiteQueen);
-		squares[3][0] = whiteQueen; // d1
+		addPiece( whiteQueen, 3, 0); // d1
 		
 		King whiteKing = new King( Color.WHITE);
-		inGamePieces.add( whiteKing);
-		squares[4][0] = whiteKing; // e1
+		addPiece( whiteKing, 4, 0); // e1
 		
 		Bishop whiteBishop2 = new Bishop( Color.WHITE);
-		inGamePieces.add( whiteBishop2);
-		squares[5][0] = whiteBishop2; // f1
+		addPiece( whiteBishop2, 5, 0); // f1
 		
 		Knight whiteKnight2 = new Knight( Color.WHITE);
-		inGamePieces.add( whiteKnight2);
-		squares[6][0] = whiteKnight2; // g1
+		addPiece( whiteKnight2, 6, 0); // g1
 		
 		Rook whiteRook2 = new Rook( Color.WHITE);
-		inGamePieces.add( whiteRook2);
-		squares[7][0] = whiteRook2; // h1
+		addPiece( whiteRook2, 7, 0); // h1
 		
 		// Rank 2
 		Pawn whitePawn;
 		for( int i = 0; i < BOARD_SIZE; i++)
 		{
 			whitePawn = new Pawn( Color.WHITE);
-			inGamePieces.add( whitePawn);
-			squares[i][1] = whitePawn; // a-h2
+			addPiece( whitePawn, i, 1); // a-h2
 		}
 		
 		// Rank 7
@@ -97,42 +318,37 @@ public class Board
 		for( int i = 0; i < BOARD_SIZE; i++)
 		{
 			blackPawn = new Pawn( Color.BLACK);
-			inGamePieces.add( blackPawn);
-			squares[i][6] = blackPawn; // a-h7
+			addPiece( blackPawn, i, 6); // a-h7
 		}
 		
 		// Rank 8
 		Rook blackRook1 = new Rook( Color.BLACK);
-		inGamePieces.add( blackRook1);
-		squares[0][7] = blackRook1; // a1
+		addPiece( blackRook1, 0, 7); // a1
 		
 		Knight blackKnight1 = new Knight( Color.BLACK);
-		inGamePieces.add( blackKnight1);
-		squares[1][7] = blackKnight1; // b1
+		addPiece( blackKnight1, 1, 7); // b1
 		
 		Bishop blackBishop1 = new Bishop( Color.BLACK);
-		inGamePieces.add( blackBishop1);
-		squares[2][7] = blackBishop1; // c1
+		addPiece( blackBishop1, 2, 7); // c1
 		
 		Queen blackQueen = new Queen( Color.BLACK);
-		inGamePieces.add( blackQueen);
-		squares[3][7] = blackQueen; // d1
+		addPiece( blackQueen, 3, 7); // d1
 		
 		King blackKing = new King( Color.BLACK);
-		inGamePieces.add( blackKing);
-		squares[4][7] = blackKing; // e1
+		addPiece( blackKing, 4, 7); // e1
 		
 		Bishop blackBishop2 = new Bishop( Color.BLACK);
-		inGamePieces.add( blackBishop2);
-		squares[5][7] = blackBishop2; // f1
+		addPiece( blackBishop2, 5, 7); // f1
 		
 		Knight blackKnight2 = new Knight( Color.BLACK);
-		inGamePieces.add( blackKnight2);
-		squares[6][7] = blackKnight2; // g1
+		addPiece( blackKnight2, 6, 7); // g1
 		
 		Rook blackRook2 = new Rook( Color.BLACK);
-		inGamePieces.add( blackRook2);
-		squares[7][7] = blackRook2; // h1
+		addPiece( blackRook2, 7, 7); // h1
+		
+		// No king or rook has moved yet
+		castlingRights = WHITE_KINGSIDE_CASTLING | WHITE_QUEENSIDE_CASTLING | BLACK_KINGSIDE_CASTLING | BLACK_QUEENSIDE_CASTLING;
+		hash ^= CASTLING_KEYS[castlingRights];
 	}
 
 	// Validate given move
@@ -142,15 +358,14 @@ public class Board
 		if( move instanceof CastlingMove)
 		{
 			// If the player is the black side
-			if( Color.BLACK.equals( move.getPlayerSide()))
+			if( Color.BLACK == move.getPlayerSide())
 			{
 				// If the move is a kingside castling move
 				if( ((CastlingMove)move).isKingSideCastling())
 				{
-					if( squares[4][7] != null && PieceLetter.K.equals( squares[4][7].getRealPieceLetter()) && 
-						!((King)squares[4][7]).hasMoved() &&  // King must be in e8 and mustn't have moved
-						squares[7][7] != null && PieceLetter.R.equals( squares[7][7].getRealPieceLetter()) && 
-						!((Rook)squares[7][7]).hasMoved()) // Rook must be in h8 and mustn't have moved
+					if( ( castlingRights & BLACK_KINGSIDE_CASTLING) != 0 && // Neither the king nor the rook has moved
+						squares[4][7] != null && PieceLetter.K == squares[4][7].getRealPieceLetter() && // King is in e8
+						squares[7][7] != null && PieceLetter.R == squares[7][7].getRealPieceLetter()) // Rook is in h8
 					{
 						// If e8, f8 or g8 is threatened, or f8 or g8 isn't empty, throw an invalid move exception
 						if( isThreatened( 4, 7, Color.BLACK) || squares[5][7] != null || isThreatened( 5, 7, Color.BLACK) || 
@@ -167,10 +382,9 @@ public class Board
 				}
 				else // The move is a queenside castling move
 				{
-					if( squares[4][7] != null && PieceLetter.K.equals( squares[4][7].getRealPieceLetter()) && 
-							!((King)squares[4][7]).hasMoved() &&  // King is in e8 and has not moved
-							squares[0][7] != null && PieceLetter.R.equals(squares[0][7].getRealPieceLetter()) && 
-							!((Rook)squares[0][7]).hasMoved()) // Rook is in a8 and has not moved
+					if( ( castlingRights & BLACK_QUEENSIDE_CASTLING) != 0 && // Neither the king nor the rook has moved
+							squares[4][7] != null && PieceLetter.K == squares[4][7].getRealPieceLetter() && // King is in e8
+							squares[0][7] != null && PieceLetter.R == squares[0][7].getRealPieceLetter()) // Rook is in a8
 					{
 						// If c8, d8 or e8 is threatened, or b8, c8 or d8 isn't empty, throw an invalid move exception
 						if( squares[1][7] != null || isThreatened( 2, 7, Color.BLACK) || 
@@ -192,10 +406,9 @@ public class Board
 				// If the move is a kingside castling move
 				if( ((CastlingMove)move).isKingSideCastling())
 				{
-					if( squares[4][0] != null && PieceLetter.K.equals( squares[4][0].getRealPieceLetter()) && 
-						!((King)squares[4][0]).hasMoved() &&  // King is in e1 and has not moved
-						squares[7][0] != null && PieceLetter.R.equals( squares[7][0].getRealPieceLetter()) && 
-						!((Rook)squares[7][0]).hasMoved()) // Rook is in h1 and has not moved
+					if( ( castlingRights & WHITE_KINGSIDE_CASTLING) != 0 && // Neither the king nor the rook has moved
+						squares[4][0] != null && PieceLetter.K == squares[4][0].getRealPieceLetter() && // King is in e1
+						squares[7][0] != null && PieceLetter.R == squares[7][0].getRealPieceLetter()) // Rook is in h1
 					{
 						// If e1, f1 or g1 is threatened, or f1 or g1 isn't empty, throw an invalid move exception
 						if( isThreatened( 4, 0, Color.WHITE) || squares[5][0] != null || isThreatened( 5, 0, Color.WHITE) || 
@@ -212,10 +425,9 @@ public class Board
 				}
 				else // The move is a queenside castling move
 				{
-					if( squares[4][0] != null && PieceLetter.K.equals( squares[4][0].getRealPieceLetter()) && 
-							!((King)squares[4][0]).hasMoved() &&  // King is in e1 and has not moved
-							squares[0][0] != null && PieceLetter.R.equals( squares[0][0].getRealPieceLetter()) && 
-							!((Rook)squares[0][0]).hasMoved()) // Rook is in a1 and has not moved
+					if( ( castlingRights & WHITE_QUEENSIDE_CASTLING) != 0 && // Neither the king nor the rook has moved
+							squares[4][0] != null && PieceLetter.K == squares[4][0].getRealPieceLetter() && // King is in e1
+							squares[0][0] != null && PieceLetter.R == squares[0][0].getRealPieceLetter()) // Rook is in a1
 					{
 						// If c1, d1 or e1 is threatened, or b1, c1 or d1 isn't empty, throw an invalid move exception
 						if( squares[1][0] != null || isThreatened( 2, 0, Color.WHITE) || 
@@ -235,8 +447,7 @@ public class Board
 		}
 		else // The move is not a castling move
 		{
-			ArrayList<Integer> possibleSourceFiles = new ArrayList<Integer>();
-			ArrayList<Integer> possibleSourceRanks = new ArrayList<Integer>();
+			possibleSourceCount = 0;
 			
 			// If the file of the piece before the move is not known, try to find possible files
 			if( move.getSourceFile() == null)
@@ -251,11 +462,10 @@ public class Board
 							/* If square i,j contains a piece, the type of which is the same as the type of the piece in the move, 
 							 * and belonging to the player' side, square i,j is a possible source square for this move.
 							 */
-							if( squares[i][j] != null && squares[i][j].getColor().equals( move.getPlayerSide()) && 
-								squares[i][j].getRealPieceLetter().equals( move.getPieceLetter()))
+							if( squares[i][j] != null && squares[i][j].getColor() == move.getPlayerSide() && 
+								squares[i][j].getRealPieceLetter() == move.getPieceLetter())
 							{
-								possibleSourceFiles.add( i);
-								possibleSourceRanks.add( j);
+								addPossibleSource( i, j);
 							}
 						}
 					}
@@ -268,11 +478,10 @@ public class Board
 						/* If square i,j contains a piece, the type of which is the same as the type of the piece in the move, 
 						 * and belonging to the player' side, square i,j is a possible source square for this move.
 						 */
-						if( squares[i][j] != null && squares[i][j].getColor().equals( move.getPlayerSide()) && 
-							squares[i][j].getRealPieceLetter().equals( move.getPieceLetter()))
+						if( squares[i][j] != null && squares[i][j].getColor() == move.getPlayerSide() && 
+							squares[i][j].getRealPieceLetter() == move.getPieceLetter())
 						{
-							possibleSourceFiles.add( i);
-							possibleSourceRanks.add( j);
+							addPossibleSource( i, j);
 						}
 					}
 				}
@@ -286,28 +495,26 @@ public class Board
 				{
 					for( int j = 0; j < BOARD_SIZE; j++)
 					{
-						if( squares[i][j] != null && squares[i][j].getColor().equals( move.getPlayerSide()) && 
-							squares[i][j].getRealPieceLetter().equals( move.getPieceLetter()))
+						if( squares[i][j] != null && squares[i][j].getColor() == move.getPlayerSide() && 
+							squares[i][j].getRealPieceLetter() == move.getPieceLetter())
 						{
-							possibleSourceFiles.add( i);
-							possibleSourceRanks.add( j);
+							addPossibleSource( i, j);
 						}
 					}
 				}
 				else // The rank of the piece before the move is known
 				{
 					int j = move.getSourceRank().ordinal();
-					if( squares[i][j] != null && squares[i][j].getColor().equals( move.getPlayerSide()) && 
-						squares[i][j].getRealPieceLetter().equals( move.getPieceLetter()))
+					if( squares[i][j] != null && squares[i][j].getColor() == move.getPlayerSide() && 
+						squares[i][j].getRealPieceLetter() == move.getPieceLetter())
 					{
-						possibleSourceFiles.add( i);
-						possibleSourceRanks.add( j);
+						addPossibleSource( i, j);
 					}
 				}
 			}
 			
 			// If no possible squares are found for the moving piece's position before the move, throw an invalid move exception.
-			if( possibleSourceFiles.isEmpty())
+			if( possibleSourceCount == 0)
 				throw new InvalidMoveException( "Move " + move.getTurnIndex() + ". " + 
 												move.getMoveText() + " is not a valid move.");
 			
@@ -316,9 +523,9 @@ public class Board
 			 * - The player side is white, but the piece is not moving to the 8th rank
 			 * - The player side is black, but the piece is not moving to the 1st rank
 			 */
-			if( move instanceof PromotionMove && ( !PieceLetter.P.equals( move.getPieceLetter()) || 
-				!(( Rank._8.equals( move.getDestinationRank()) && Color.WHITE.equals( move.getPlayerSide())) || 
-				( Rank._1.equals( move.getDestinationRank()) && Color.BLACK.equals( move.getPlayerSide())))))
+			if( move instanceof PromotionMove && ( PieceLetter.P != move.getPieceLetter() || 
+				!(( Rank._8 == move.getDestinationRank() && Color.WHITE == move.getPlayerSide()) || 
+				( Rank._1 == move.getDestinationRank() && Color.BLACK == move.getPlayerSide()))))
 					throw new InvalidMoveException( "Move " + move.getTurnIndex() + ". " + 
 													move.getMoveText() + " is not a valid move.");
 			
@@ -333,22 +540,21 @@ public class Board
 			 * As high performance is not too critical for this application, neater code is preferred to executing 
 			 * 0 to 7 fewer enum comparisons.
 			 */
-			for( int i = possibleSourceFiles.size() - 1; i >= 0; i--) // For each possible source square
+			for( int i = possibleSourceCount - 1; i >= 0; i--) // For each possible source square
 			{
-				int fileSrc = possibleSourceFiles.get( i);
-				int rankSrc = possibleSourceRanks.get( i);
+				int fileSrc = possibleSourceFiles[i];
+				int rankSrc = possibleSourceRanks[i];
 				
 				// If the moving piece is a pawn
-				if( PieceLetter.P.equals( move.getPieceLetter()))
+				if( PieceLetter.P == move.getPieceLetter())
 				{
 					/* Pawns can only move forward. Remove this square from the possible source squares, 
 					 * if this source-destination pair requires the pawn to go backwards/horizontally
 					 */
-					if(( Color.BLACK.equals( move.getPlayerSide()) && rankSrc <= rankDest) || 
-						( Color.WHITE.equals( move.getPlayerSide()) && rankSrc >= rankDest))
+					if(( Color.BLACK == move.getPlayerSide() && rankSrc <= rankDest) || 
+						( Color.WHITE == move.getPlayerSide() && rankSrc >= rankDest))
 					{
-						possibleSourceFiles.remove( i);
-						possibleSourceRanks.remove( i);
+						removePossibleSource( i);
 						continue;
 					}
 
@@ -357,15 +563,14 @@ public class Board
 					{
 						// Source and destination files should differ by one, destination rank should be source rank +1 (white) / -1 (black) and 
 						// destination square shouldn't be empty. Otherwise, remove this square from the possible source squares.
-						if(( possibleSourceFiles.get( i) != fileDest -1 && 
-							possibleSourceFiles.get( i) != fileDest +1) ||
-							(( Color.BLACK.equals( move.getPlayerSide()) && 
-							possibleSourceRanks.get( i) - 1 != rankDest) || 
-							( Color.WHITE.equals( move.getPlayerSide()) &&
-							possibleSourceRanks.get( i) + 1 != rankDest)))
+						if(( possibleSourceFiles[i] != fileDest -1 && 
+							possibleSourceFiles[i] != fileDest +1) ||
+							(( Color.BLACK == move.getPlayerSide() && 
+							possibleSourceRanks[i] - 1 != rankDest) || 
+							( Color.WHITE == move.getPlayerSide() &&
+							possibleSourceRanks[i] + 1 != rankDest)))
 						{
-							possibleSourceFiles.remove( i);
-							possibleSourceRanks.remove( i);
+							removePossibleSource( i);
 							continue;
 						}
 						
@@ -373,17 +578,17 @@ public class Board
 						if( squares[fileDest][rankDest] == null)
 						{
 							// Handle en passant move for the black side
-							if( Color.BLACK.equals( move.getPlayerSide()))
+							if( Color.BLACK == move.getPlayerSide())
 							{
 								/* In an en passant move by the black side, the conditions below must be true. Otherwise, throw an invalid move exception.
 								 * - The black pawn must be at rank 4 before the move
 								 * - The white pawn must be at the next rank of black pawn's destination and in the same file as the black pawn's destination
-								 * - The white pawn must be moved for the first time at the previous turn
+								 * - The white pawn must have moved two squares forward in the previous move
 								 */
-								if( possibleSourceRanks.get( i) == Rank._4.ordinal() && 
+								if( possibleSourceRanks[i] == Rank._4.ordinal() && 
 									squares[fileDest][rankDest+1] != null && 
-									PieceLetter.P.equals( squares[fileDest][rankDest+1].getRealPieceLetter()) && 
-									((Pawn)squares[fileDest][rankDest+1]).getFirstMovedOnTurn() == move.getTurnIndex()-1)
+									PieceLetter.P == squares[fileDest][rankDest+1].getRealPieceLetter() && 
+									enPassantFile == fileDest)
 								{
 									// Replace move with en passant move
 									move = new EnPassantMove( move);
@@ -397,12 +602,12 @@ public class Board
 								/* In an en passant move by the white side, the conditions below must be true. Otherwise, throw an invalid move exception.
 								 * - The white pawn must be at rank 5 before the move
 								 * - The black pawn must be at the previous rank of white pawn's destination and in the same file as the white pawn's destination
-								 * - The black pawn must be moved for the first time at the previous turn
+								 * - The black pawn must have moved two squares forward in the previous move
 								 */
-								if( possibleSourceRanks.get( i) == Rank._5.ordinal() && 
+								if( possibleSourceRanks[i] == Rank._5.ordinal() && 
 									squares[fileDest][rankDest-1] != null && 
-									PieceLetter.P.equals( squares[fileDest][rankDest-1].getRealPieceLetter()) && 
-									((Pawn)squares[fileDest][rankDest-1]).getFirstMovedOnTurn() == move.getTurnIndex()-1)
+									PieceLetter.P == squares[fileDest][rankDest-1].getRealPieceLetter() && 
+									enPassantFile == fileDest)
 								{
 									// Replace move with en passant move
 									move = new EnPassantMove( move);
@@ -414,7 +619,7 @@ public class Board
 						}
 					}
 					// If the move is not a capturing move, source and destination files should be the same
-					else if( possibleSourceFiles.get( i) == fileDest)
+					else if( possibleSourceFiles[i] == fileDest)
 					{
 						/* If none of the following is true, remove this square from the possible source squares: 
 						 * The moving pawn belongs to the black side, it is trying to move 1 square forward and the destination square is empty
@@ -422,21 +627,20 @@ public class Board
 						 * The moving pawn belongs to the white side, it is trying to move 1 square forward and the destination square is empty
 						 * The moving pawn belongs to the white side, it is trying to move 2 squares forward, is at rank 2, and rank 3 and 4 of the corresponding file is empty
 						 */
-						if(( Color.BLACK.equals( move.getPlayerSide()) && 
-							!(possibleSourceRanks.get( i) - 1 == rankDest && 
+						if(( Color.BLACK == move.getPlayerSide() && 
+							!(possibleSourceRanks[i] - 1 == rankDest && 
 							squares[fileDest][rankDest] == null) && 
-							!( possibleSourceRanks.get( i) == Rank._7.ordinal() && 
-							possibleSourceRanks.get( i) - 2 == rankDest && 
+							!( possibleSourceRanks[i] == Rank._7.ordinal() && 
+							possibleSourceRanks[i] - 2 == rankDest && 
 							squares[fileDest][rankDest+1] == null && squares[fileDest][rankDest] == null)) || 
-							( Color.WHITE.equals( move.getPlayerSide()) && 
-							!(possibleSourceRanks.get( i) + 1 == rankDest && 
+							( Color.WHITE == move.getPlayerSide() && 
+							!(possibleSourceRanks[i] + 1 == rankDest && 
 							squares[fileDest][rankDest] == null) && 
-							!( possibleSourceRanks.get( i) == Rank._2.ordinal() && 
-							possibleSourceRanks.get( i) + 2 == rankDest && 
+							!( possibleSourceRanks[i] == Rank._2.ordinal() && 
+							possibleSourceRanks[i] + 2 == rankDest && 
 							squares[fileDest][rankDest-1] == null && squares[fileDest][rankDest] == null)))
 						{
-							possibleSourceFiles.remove( i);
-							possibleSourceRanks.remove( i);
+							removePossibleSource( i);
 							continue;
 						}
 					}
@@ -445,13 +649,12 @@ public class Board
 					 */
 					else
 					{
-						possibleSourceFiles.remove( i);
-						possibleSourceRanks.remove( i);
+						removePossibleSource( i);
 						continue;
 					}
 				}
 				// If the moving piece is a knight
-				else if( PieceLetter.N.equals( move.getPieceLetter()))
+				else if( PieceLetter.N == move.getPieceLetter())
 				{
 					/* If the move is a capturing move and the destination square is empty, or the move is not a capturing move 
 					 * and the destination square is not empty, throw an invalid move exception.
@@ -465,13 +668,12 @@ public class Board
 					if( !(Math.abs( fileSrc - fileDest) == 2 && Math.abs( rankSrc - rankDest) == 1) && 
 						!(Math.abs( fileSrc - fileDest) == 1 && Math.abs( rankSrc - rankDest) == 2))
 					{
-						possibleSourceFiles.remove( i);
-						possibleSourceRanks.remove( i);
+						removePossibleSource( i);
 						continue;
 					}
 				}
 				// If the moving piece is a bishop
-				else if( PieceLetter.B.equals( move.getPieceLetter()))
+				else if( PieceLetter.B == move.getPieceLetter())
 				{
 					/* If the move is a capturing move and the destination square is empty, or the move is not a capturing move 
 					 * and the destination square is not empty, throw an invalid move exception.
@@ -484,8 +686,7 @@ public class Board
 					// If the move is not diagonal, this square is not a valid source square, remove it from the possible source squares.
 					if( !Move.isDiagonal( fileSrc, rankSrc, fileDest, rankDest))
 					{
-						possibleSourceFiles.remove( i);
-						possibleSourceRanks.remove( i);
+						removePossibleSource( i);
 						continue;
 					}
 					
@@ -500,8 +701,7 @@ public class Board
 						{
 							if( squares[fileSrc+j][rankSrc+j] != null)
 							{
-								possibleSourceFiles.remove( i);
-								possibleSourceRanks.remove( i);
+								removePossibleSource( i);
 								removed = true;
 								break; // No need to check the other squares;
 							}
@@ -519,8 +719,7 @@ public class Board
 						{
 							if( squares[fileSrc+j][rankSrc-j] != null)
 							{
-								possibleSourceFiles.remove( i);
-								possibleSourceRanks.remove( i);
+								removePossibleSource( i);
 								removed = true;
 								break; // No need to check the other squares;
 							}
@@ -538,8 +737,7 @@ public class Board
 						{
 							if( squares[fileSrc-j][rankSrc+j] != null)
 							{
-								possibleSourceFiles.remove( i);
-								possibleSourceRanks.remove( i);
+								removePossibleSource( i);
 								removed = true;
 								break; // No need to check the other squares;
 							}
@@ -557,8 +755,7 @@ public class Board
 						{
 							if( squares[fileSrc-j][rankSrc-j] != null)
 							{
-								possibleSourceFiles.remove( i);
-								possibleSourceRanks.remove( i);
+								removePossibleSource( i);
 								removed = true;
 								break; // No need to check the other squares;
 							}
@@ -568,7 +765,7 @@ public class Board
 					}
 				}
 				// If the moving piece is a rook
-				else if( PieceLetter.R.equals( move.getPieceLetter()))
+				else if( PieceLetter.R == move.getPieceLetter())
 				{
 					/* If the move is a capturing move and the destination square is empty, or the move is not a capturing move 
 					 * and the destination square is not empty, throw an invalid move exception.
@@ -581,8 +778,7 @@ public class Board
 					// If the move is not horizontal or vertical, this square is not a valid source square, remove it from the possible source squares.
 					if( !Move.isHorizontalOrVertical( fileSrc, rankSrc, fileDest, rankDest))
 					{
-						possibleSourceFiles.remove( i);
-						possibleSourceRanks.remove( i);
+						removePossibleSource( i);
 						continue;
 					}
 					
@@ -599,8 +795,7 @@ public class Board
 							{
 								if( squares[fileSrc][rankSrc+j] != null)
 								{
-									possibleSourceFiles.remove( i);
-									possibleSourceRanks.remove( i);
+									removePossibleSource( i);
 									removed = true;
 									break; // No need to check the other squares;
 								}
@@ -618,8 +813,7 @@ public class Board
 							{
 								if( squares[fileSrc][rankSrc-j] != null)
 								{
-									possibleSourceFiles.remove( i);
-									possibleSourceRanks.remove( i);
+									removePossibleSource( i);
 									removed = true;
 									break; // No need to check the other squares;
 								}
@@ -640,8 +834,7 @@ public class Board
 							{
 								if( squares[fileSrc+j][rankSrc] != null)
 								{
-									possibleSourceFiles.remove( i);
-									possibleSourceRanks.remove( i);
+									removePossibleSource( i);
 									removed = true;
 									break; // No need to check the other squares;
 								}
@@ -659,8 +852,7 @@ public class Board
 							{
 								if( squares[fileSrc-j][rankSrc] != null)
 								{
-									possibleSourceFiles.remove( i);
-									possibleSourceRanks.remove( i);
+									removePossibleSource( i);
 									removed = true;
 									break; // No need to check the other squares;
 								}
@@ -671,7 +863,7 @@ public class Board
 					}
 				}
 				// If the moving piece is a queen
-				else if( PieceLetter.Q.equals( move.getPieceLetter()))
+				else if( PieceLetter.Q == move.getPieceLetter())
 				{
 					/* If the move is a capturing move and the destination square is empty, or the move is not a capturing move 
 					 * and the destination square is not empty, throw an invalid move exception.
@@ -682,11 +874,10 @@ public class Board
 								move.getMoveText() + " is not a valid move.");
 					
 					// If the move is not horizontal or vertical or diagonal, this square is not a valid source square, remove it from the possible source squares.
-					if( !Move.isHorizontalOrVertical( possibleSourceFiles.get( i), possibleSourceRanks.get( i), fileDest, rankDest) && 
-						!Move.isDiagonal( possibleSourceFiles.get( i), possibleSourceRanks.get( i), fileDest, rankDest))
+					if( !Move.isHorizontalOrVertical( possibleSourceFiles[i], possibleSourceRanks[i], fileDest, rankDest) && 
+						!Move.isDiagonal( possibleSourceFiles[i], possibleSourceRanks[i], fileDest, rankDest))
 					{
-						possibleSourceFiles.remove( i);
-						possibleSourceRanks.remove( i);
+						removePossibleSource( i);
 						continue;
 					}
 					
@@ -705,8 +896,7 @@ public class Board
 								{
 									if( squares[fileSrc][rankSrc+j] != null)
 									{
-										possibleSourceFiles.remove( i);
-										possibleSourceRanks.remove( i);
+										removePossibleSource( i);
 										removed = true;
 										break; // No need to check the other squares;
 									}
@@ -724,8 +914,7 @@ public class Board
 								{
 									if( squares[fileSrc][rankSrc-j] != null)
 									{
-										possibleSourceFiles.remove( i);
-										possibleSourceRanks.remove( i);
+										removePossibleSource( i);
 										removed = true;
 										break; // No need to check the other squares;
 									}
@@ -746,8 +935,7 @@ public class Board
 								{
 									if( squares[fileSrc+j][rankSrc] != null)
 									{
-										possibleSourceFiles.remove( i);
-										possibleSourceRanks.remove( i);
+										removePossibleSource( i);
 										removed = true;
 										break; // No need to check the other squares;
 									}
@@ -765,8 +953,7 @@ public class Board
 								{
 									if( squares[fileSrc-j][rankSrc] != null)
 									{
-										possibleSourceFiles.remove( i);
-										possibleSourceRanks.remove( i);
+										removePossibleSource( i);
 										removed = true;
 										break; // No need to check the other squares;
 									}
@@ -776,7 +963,7 @@ public class Board
 							}
 						}
 					}
-					else if( Move.isDiagonal( possibleSourceFiles.get( i), possibleSourceRanks.get( i), fileDest, rankDest)) // The move is diagonal
+					else if( Move.isDiagonal( possibleSourceFiles[i], possibleSourceRanks[i], fileDest, rankDest)) // The move is diagonal
 					{
 						if( fileSrc < fileDest && rankSrc < rankDest) // The move is towards the upper right corner
 						{
@@ -788,8 +975,7 @@ public class Board
 							{
 								if( squares[fileSrc+j][rankSrc+j] != null)
 								{
-									possibleSourceFiles.remove( i);
-									possibleSourceRanks.remove( i);
+									removePossibleSource( i);
 									removed = true;
 									break; // No need to check the other squares;
 								}
@@ -807,8 +993,7 @@ public class Board
 							{
 								if( squares[fileSrc+j][rankSrc-j] != null)
 								{
-									possibleSourceFiles.remove( i);
-									possibleSourceRanks.remove( i);
+									removePossibleSource( i);
 									removed = true;
 									break; // No need to check the other squares;
 								}
@@ -826,8 +1011,7 @@ public class Board
 							{
 								if( squares[fileSrc-j][rankSrc+j] != null)
 								{
-									possibleSourceFiles.remove( i);
-									possibleSourceRanks.remove( i);
+									removePossibleSource( i);
 									removed = true;
 									break; // No need to check the other squares;
 								}
@@ -845,8 +1029,7 @@ public class Board
 							{
 								if( squares[fileSrc-j][rankSrc-j] != null)
 								{
-									possibleSourceFiles.remove( i);
-									possibleSourceRanks.remove( i);
+									removePossibleSource( i);
 									removed = true;
 									break; // No need to check the other squares;
 								}
@@ -857,7 +1040,7 @@ public class Board
 					}
 				}
 				// If the moving piece is a king
-				else if( PieceLetter.K.equals( move.getPieceLetter()))
+				else if( PieceLetter.K == move.getPieceLetter())
 				{
 					/* If the move is a capturing move and the destination square is empty, or the move is not a capturing move 
 					 * and the destination square is not empty, throw an invalid move exception.
@@ -874,8 +1057,7 @@ public class Board
 					int rankDifference = Math.abs( rankSrc - rankDest);
 					if( fileDifference > 1 || rankDifference > 1 || (fileDifference == 0 && rankDifference == 0))
 					{
-						possibleSourceFiles.remove( i);
-						possibleSourceRanks.remove( i);
+						removePossibleSource( i);
 						continue;
 					}
 				}
@@ -895,24 +1077,23 @@ public class Board
 				// If the move results in a discovered check, this square is not a valid source square, remove it from the possible source squares.
 				if( checkingCondition)
 				{
-					possibleSourceFiles.remove( i);
-					possibleSourceRanks.remove( i);
+					removePossibleSource( i);
 				}
 			}
 			
 			// If there are no more possible source squares/more than one possible source square after removing the invalid ones, throw an invalid move exception.
-			if( possibleSourceFiles.isEmpty())
+			if( possibleSourceCount == 0)
 				throw new InvalidMoveException( "Move " + move.getTurnIndex() + ". " + 
 												move.getMoveText() + " is not a valid move.");
-			else if( possibleSourceFiles.size() > 1)
+			else if( possibleSourceCount > 1)
 				throw new InvalidMoveException( "Move " + move.getTurnIndex() + ". " + 
 						move.getMoveText() + " is ambigious.");
 			else // There is only one possible source square, set the source file/rank of the move if it's not already known.
 			{
 				if( move.getSourceFile() == null)
-					move.setSourceFile( Move.File.class.getEnumConstants()[ possibleSourceFiles.get(0)]);
+					move.setSourceFile( FILES[ possibleSourceFiles[0]]);
 				if( move.getSourceRank() == null)
-					move.setSourceRank( Move.Rank.class.getEnumConstants()[ possibleSourceRanks.get(0)]);
+					move.setSourceRank( RANKS[ possibleSourceRanks[0]]);
 			}
 		}
 		
@@ -921,6 +1102,24 @@ public class Board
 		return move;
 	}
 	
+	// Add the given square to the possible source squares of the move being validated.
+	private void addPossibleSource( int file, int rank)
+	{
+		possibleSourceFiles[possibleSourceCount] = file;
+		possibleSourceRanks[possibleSourceCount] = rank;
+		possibleSourceCount++;
+	}
+	
+	/* Remove the possible source square at the given index, by moving the last possible source square to its place. 
+	 * The possible source squares are checked from the last one to the first one, so the moved square is already checked.
+	 */
+	private void removePossibleSource( int index)
+	{
+		possibleSourceCount--;
+		possibleSourceFiles[index] = possibleSourceFiles[possibleSourceCount];
+		possibleSourceRanks[index] = possibleSourceRanks[possibleSourceCount];
+	}
+	
 	// Check if given position is threatened by any of the opponents pieces.
 	private boolean isThreatened( int i, int j, Color playerSide)
 	{
@@ -928,7 +1127,7 @@ public class Board
 		int f, r;
 		
 		// Find the opponent's color
-		if( Color.BLACK.equals( playerSide))
+		if( Color.BLACK == playerSide)
 			otherPlayer = Color.WHITE;
 		else
 			otherPlayer = Color.BLACK;
@@ -939,22 +1138,22 @@ public class Board
 			if( squares[f][r] != null)
 			{
 				// If the piece on the board belongs to the player, stop checking this diagonal.
-				if( playerSide.equals( squares[f][r].getColor()))
+				if( playerSide == squares[f][r].getColor())
 					break;
 				else // The piece on the board belongs to the opponent, take action depending on type of the piece.
 				{
 					// Knight and rook cannot threaten diagonally, stop checking this diagonal.
-					if( PieceLetter.N.equals( squares[f][r].getRealPieceLetter()) || 
-						PieceLetter.R.equals( squares[f][r].getRealPieceLetter()))
+					if( PieceLetter.N == squares[f][r].getRealPieceLetter() || 
+						PieceLetter.R == squares[f][r].getRealPieceLetter())
 						break;
 					// Bishop and queen can threaten diagonally, return true.
-					else if( PieceLetter.B.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.Q.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.B == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.Q == squares[f][r].getRealPieceLetter())
 						return true;
 					/* King can threaten diagonally, but only the square immediately next to itself. 
 					 * Check if that's the case and return true if necessary, otherwise stop checking this diagonal.
 					 */
-					else if( PieceLetter.K.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.K == squares[f][r].getRealPieceLetter())
 					{
 						if( r == j+1)
 							return true;
@@ -967,8 +1166,8 @@ public class Board
 					*/
 					else
 					{
-						assert PieceLetter.P.equals( squares[f][r].getRealPieceLetter()) : squares[f][r].getRealPieceLetter();
-						if( r == j+1 && Color.WHITE.equals( playerSide))
+						assert PieceLetter.P == squares[f][r].getRealPieceLetter() : squares[f][r].getRealPieceLetter();
+						if( r == j+1 && Color.WHITE == playerSide)
 							return true;
 						else
 							break;
@@ -983,22 +1182,22 @@ public class Board
 			if( squares[f][r] != null)
 			{
 				// If the piece on the board belongs to the player, stop checking this diagonal.
-				if( playerSide.equals( squares[f][r].getColor()))
+				if( playerSide == squares[f][r].getColor())
 					break;
 				else // The piece on the board belongs to the opponent, take action depending on type of the piece.
 				{
 					// Knight and rook cannot threaten diagonally, stop checking this diagonal.
-					if( PieceLetter.N.equals( squares[f][r].getRealPieceLetter()) || 
-						PieceLetter.R.equals( squares[f][r].getRealPieceLetter()))
+					if( PieceLetter.N == squares[f][r].getRealPieceLetter() || 
+						PieceLetter.R == squares[f][r].getRealPieceLetter())
 						break;
 					// Bishop and queen can threaten diagonally, return true.
-					else if( PieceLetter.B.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.Q.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.B == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.Q == squares[f][r].getRealPieceLetter())
 						return true;
 					/* King can threaten diagonally, but only the square immediately next to itself. 
 					 * Check if that's the case and return true if necessary, otherwise stop checking this diagonal.
 					 */
-					else if( PieceLetter.K.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.K == squares[f][r].getRealPieceLetter())
 					{
 						if( r == j+1)
 							return true;
@@ -1011,8 +1210,8 @@ public class Board
 					 */
 					else
 					{
-						assert PieceLetter.P.equals( squares[f][r].getRealPieceLetter()) : squares[f][r].getRealPieceLetter();
-						if( r == j+1 && Color.WHITE.equals( playerSide))
+						assert PieceLetter.P == squares[f][r].getRealPieceLetter() : squares[f][r].getRealPieceLetter();
+						if( r == j+1 && Color.WHITE == playerSide)
 							return true;
 						else
 							break;
@@ -1027,22 +1226,22 @@ public class Board
 			if( squares[f][r] != null)
 			{
 				// If the piece on the board belongs to the player, stop checking this diagonal.
-				if( playerSide.equals( squares[f][r].getColor()))
+				if( playerSide == squares[f][r].getColor())
 					break;
 				else // The piece on the board belongs to the opponent, take action depending on type of the piece.
 				{
 					// Knight and rook cannot threaten diagonally, stop checking this diagonal.
-					if( PieceLetter.N.equals( squares[f][r].getRealPieceLetter()) || 
-						PieceLetter.R.equals( squares[f][r].getRealPieceLetter()))
+					if( PieceLetter.N == squares[f][r].getRealPieceLetter() || 
+						PieceLetter.R == squares[f][r].getRealPieceLetter())
 						break;
 					// Bishop and queen can threaten diagonally, return true.
-					else if( PieceLetter.B.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.Q.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.B == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.Q == squares[f][r].getRealPieceLetter())
 						return true;
 					/* King can threaten diagonally, but only the square immediately next to itself. 
 					 * Check if that's the case and return true if necessary, otherwise stop checking this diagonal.
 					 */
-					else if( PieceLetter.K.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.K == squares[f][r].getRealPieceLetter())
 					{
 						if( r == j-1)
 							return true;
@@ -1055,8 +1254,8 @@ public class Board
 					 */
 					else
 					{
-						assert PieceLetter.P.equals( squares[f][r].getRealPieceLetter()) : squares[f][r].getRealPieceLetter();
-						if( r == j-1 && Color.BLACK.equals( playerSide))
+						assert PieceLetter.P == squares[f][r].getRealPieceLetter() : squares[f][r].getRealPieceLetter();
+						if( r == j-1 && Color.BLACK == playerSide)
 							return true;
 						else
 							break;
@@ -1071,22 +1270,22 @@ public class Board
 			if( squares[f][r] != null)
 			{
 				// If the piece on the board belongs to the player, stop checking this diagonal.
-				if( playerSide.equals( squares[f][r].getColor()))
+				if( playerSide == squares[f][r].getColor())
 					break;
 				else // The piece on the board belongs to the opponent, take action depending on type of the piece.
 				{
 					// Knight and rook cannot threaten diagonally, stop checking this diagonal.
-					if( PieceLetter.N.equals( squares[f][r].getRealPieceLetter()) || 
-						PieceLetter.R.equals( squares[f][r].getRealPieceLetter()))
+					if( PieceLetter.N == squares[f][r].getRealPieceLetter() || 
+						PieceLetter.R == squares[f][r].getRealPieceLetter())
 						break;
 					// Bishop and queen can threaten diagonally, return true.
-					else if( PieceLetter.B.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.Q.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.B == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.Q == squares[f][r].getRealPieceLetter())
 						return true;
 					/* King can threaten diagonally, but only the square immediately next to itself. 
 					 * Check if that's the case and return true if necessary, otherwise stop checking this diagonal.
 					 */
-					else if( PieceLetter.K.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.K == squares[f][r].getRealPieceLetter())
 					{
 						if( r == j-1)
 							return true;
@@ -1099,8 +1298,8 @@ public class Board
 					 */
 					else
 					{
-						assert PieceLetter.P.equals( squares[f][r].getRealPieceLetter()) : squares[f][r].getRealPieceLetter();
-						if( r == j-1 && Color.BLACK.equals( playerSide))
+						assert PieceLetter.P == squares[f][r].getRealPieceLetter() : squares[f][r].getRealPieceLetter();
+						if( r == j-1 && Color.BLACK == playerSide)
 							return true;
 						else
 							break;
@@ -1115,25 +1314,25 @@ public class Board
 			if( squares[f][r] != null)
 			{
 				// If the piece on the board belongs to the player, stop checking this rank.
-				if( playerSide.equals( squares[f][r].getColor()))
+				if( playerSide == squares[f][r].getColor())
 					break;
 				else // The piece on the board belongs to the opponent, take action depending on type of the piece.
 				{
 					// Pawn, knight and bishop cannot threaten horizontally, stop checking this rank.
-					if( PieceLetter.P.equals( squares[f][r].getRealPieceLetter()) || 
-						PieceLetter.N.equals( squares[f][r].getRealPieceLetter()) || 
-						PieceLetter.B.equals( squares[f][r].getRealPieceLetter()))
+					if( PieceLetter.P == squares[f][r].getRealPieceLetter() || 
+						PieceLetter.N == squares[f][r].getRealPieceLetter() || 
+						PieceLetter.B == squares[f][r].getRealPieceLetter())
 						break;
 					// Rook and queen can threaten horizontally, return true.
-					else if( PieceLetter.R.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.Q.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.R == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.Q == squares[f][r].getRealPieceLetter())
 						return true;
 					/* The only remaining piece to check is king. King can threaten horizontally, but only the square immediately next to itself. 
 					 * Check if that's the case and return true if necessary, otherwise stop checking this rank.
 					 */
 					else
 					{
-						assert PieceLetter.K.equals( squares[f][r].getRealPieceLetter()) : squares[f][r].getRealPieceLetter();
+						assert PieceLetter.K == squares[f][r].getRealPieceLetter() : squares[f][r].getRealPieceLetter();
 						if( f == i-1)
 							return true;
 						else
@@ -1149,25 +1348,25 @@ public class Board
 			if( squares[f][r] != null)
 			{
 				// If the piece on the board belongs to the player, stop checking this rank.
-				if( playerSide.equals( squares[f][r].getColor()))
+				if( playerSide == squares[f][r].getColor())
 					break;
 				else // The piece on the board belongs to the opponent, take action depending on type of the piece.
 				{
 					// Pawn, knight and bishop cannot threaten horizontally, stop checking this rank.
-					if( PieceLetter.P.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.N.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.B.equals( squares[f][r].getRealPieceLetter()))
+					if( PieceLetter.P == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.N == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.B == squares[f][r].getRealPieceLetter())
 						break;
 					// Rook and queen can threaten horizontally, return true.
-					else if( PieceLetter.R.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.Q.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.R == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.Q == squares[f][r].getRealPieceLetter())
 						return true;
 					/* The only remaining piece to check is king. King can threaten horizontally, but only the square immediately next to itself. 
 					 * Check if that's the case and return true if necessary, otherwise stop checking this rank.
 					 */
 					else
 					{
-						assert PieceLetter.K.equals( squares[f][r].getRealPieceLetter()) : squares[f][r].getRealPieceLetter();
+						assert PieceLetter.K == squares[f][r].getRealPieceLetter() : squares[f][r].getRealPieceLetter();
 						if( f == i+1)
 							return true;
 						else
@@ -1183,25 +1382,25 @@ public class Board
 			if( squares[f][r] != null)
 			{
 				// If the piece on the board belongs to the player, stop checking this file.
-				if( playerSide.equals( squares[f][r].getColor()))
+				if( playerSide == squares[f][r].getColor())
 					break;
 				else // The piece on the board belongs to the opponent, take action depending on type of the piece.
 				{
 					// Pawn, knight and bishop cannot threaten vertically, stop checking this file.
-					if( PieceLetter.P.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.N.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.B.equals( squares[f][r].getRealPieceLetter()))
+					if( PieceLetter.P == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.N == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.B == squares[f][r].getRealPieceLetter())
 						break;
 					// Rook and queen can threaten vertically, return true.
-					else if( PieceLetter.R.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.Q.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.R == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.Q == squares[f][r].getRealPieceLetter())
 						return true;
 					/* The only remaining piece to check is king. King can threaten vertically, but only the square immediately next to itself. 
 					 * Check if that's the case and return true if necessary, otherwise stop checking this file.
 					 */
 					else
 					{
-						assert PieceLetter.K.equals( squares[f][r].getRealPieceLetter()) : squares[f][r].getRealPieceLetter();
+						assert PieceLetter.K == squares[f][r].getRealPieceLetter() : squares[f][r].getRealPieceLetter();
 						if( r == j+1)
 							return true;
 						else
@@ -1217,25 +1416,25 @@ public class Board
 			if( squares[f][r] != null)
 			{
 				// If the piece on the board belongs to the player, stop checking this file.
-				if( playerSide.equals( squares[f][r].getColor()))
+				if( playerSide == squares[f][r].getColor())
 					break;
 				else // The piece on the board belongs to the opponent, take action depending on type of the piece.
 				{
 					// Pawn, knight and bishop cannot threaten vertically, stop checking this file.
-					if( PieceLetter.P.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.N.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.B.equals( squares[f][r].getRealPieceLetter()))
+					if( PieceLetter.P == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.N == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.B == squares[f][r].getRealPieceLetter())
 						break;
 					// Rook and queen can threaten vertically, return true.
-					else if( PieceLetter.R.equals( squares[f][r].getRealPieceLetter()) || 
-							PieceLetter.Q.equals( squares[f][r].getRealPieceLetter()))
+					else if( PieceLetter.R == squares[f][r].getRealPieceLetter() || 
+							PieceLetter.Q == squares[f][r].getRealPieceLetter())
 						return true;
 					/* The only remaining piece to check is king. King can threaten vertically, but only the square immediately next to itself. 
 					 * Check if that's the case and return true if necessary, otherwise stop checking this file.
 					 */
 					else
 					{
-						assert PieceLetter.K.equals( squares[f][r].getRealPieceLetter()) : squares[f][r].getRealPieceLetter();
+						assert PieceLetter.K == squares[f][r].getRealPieceLetter() : squares[f][r].getRealPieceLetter();
 						if( r == j-1)
 							return true;
 						else
@@ -1246,19 +1445,16 @@ public class Board
 		}
 		
 		// Check for knights. There are eight possible locations for knights to threaten this square.
-		int[] possibleKnightFiles = {i+1, i+2, i+2, i+1, i-1, i-2, i-2, i-1};
-		int[] possibleKnightRanks = {j+2, j+1, j-1, j-2, j-2, j-1, j+1, j+2};
-		
-		for( int index = 0; index < possibleKnightFiles.length; index++)
+		for( int index = 0; index < KNIGHT_FILE_OFFSETS.length; index++)
 		{
-			f = possibleKnightFiles[index];
-			r = possibleKnightRanks[index];
+			f = i + KNIGHT_FILE_OFFSETS[index];
+			r = j + KNIGHT_RANK_OFFSETS[index];
 			// Check if the possible knight location is within the board.
 			if( f >= 0 && f < BOARD_SIZE && r >= 0 && r < BOARD_SIZE)
 			{
 				// If the square contains a knight belonging to the opponent, return true.
-				if( squares[f][r] != null && otherPlayer.equals( squares[f][r].getColor()) &&
-					PieceLetter.N.equals( squares[f][r].getRealPieceLetter()))
+				if( squares[f][r] != null && otherPlayer == squares[f][r].getColor() &&
+					PieceLetter.N == squares[f][r].getRealPieceLetter())
 					return true;
 			}
 		}
@@ -1266,6 +1462,12 @@ public class Board
 		return false;
 	}
 	
+	// Return if the king of the given side is in check
+	public boolean isInCheck( Color playerSide)
+	{
+		return checkCheckingCondition( playerSide);
+	}
+	
 	// Find position of the player's king and check if it's threatened
 	private boolean checkCheckingCondition( Color playerSide)
 	{
@@ -1273,8 +1475,8 @@ public class Board
 		{
 			for( int j = 0; j < BOARD_SIZE; j++)
 			{
-				if( squares[i][j] != null && PieceLetter.K.equals( squares[i][j].getRealPieceLetter()) && 
-					playerSide.equals( squares[i][j].getColor()))
+				if( squares[i][j] != null && PieceLetter.K == squares[i][j].getRealPieceLetter() && 
+					playerSide == squares[i][j].getColor())
 					return isThreatened( i, j, playerSide);
 			}
 		}
@@ -1283,323 +1485,165 @@ public class Board
 		return false;
 	}
 	
-	// Execute given move
+	/* Execute given move, and push its undo record. Castling rights and the en passant file are updated for the next move, 
+	 * and the hash is updated with the changes instead of being calculated again.
+	 */
 	public void executeMove( Move move) throws IllegalPromotionException, InvalidMoveException
 	{
+		int sourceSquare, destinationSquare, capturedSquare = NO_SQUARE;
+		int record = ( castlingRights << CASTLING_RIGHTS_SHIFT) | (( enPassantFile + 1) << EN_PASSANT_FILE_SHIFT);
+		long previousHash = hash;
+		
+		// A pawn can only be captured en passant immediately after it moves two squares forward
+		if( enPassantFile != NO_EN_PASSANT_FILE)
+		{
+			hash ^= EN_PASSANT_KEYS[enPassantFile];
+			enPassantFile = NO_EN_PASSANT_FILE;
+		}
+		
 		// If the move is a castling move
 		if( move instanceof CastlingMove)
 		{
-			// If the move is a kingside castling move
+			int rank = ( Color.BLACK == move.getPlayerSide()) ? 7 : 0;
+			
+			// If the move is a kingside castling move, move king from e1/e8 to g1/g8, and rook from h1/h8 to f1/f8
 			if( ((CastlingMove)move).isKingSideCastling())
 			{
-				// For the black side; move king from e8 to g8, and rook from h8 to f8
-				if( Color.BLACK.equals( move.getPlayerSide()))
-				{
-					Piece king = squares[4][7]; // e8
-					Piece rook = squares[7][7]; // h8
-
-					squares[6][7] = king; // g8
-					squares[5][7] = rook; // f8
-
-					squares[4][7] = null;
-					squares[7][7] = null;
-				}
-				else // For the white side; move king from e1 to g1, and rook from h1 to f1
-				{
-					Piece king = squares[4][0]; // e1
-					Piece rook = squares[7][0]; // h1
-
-					squares[6][0] = king; // g1
-					squares[5][0] = rook; // f1
-
-					squares[4][0] = null;
-					squares[7][0] = null;
-				}
+				movePiece( 4, rank, 6, rank);
+				movePiece( 7, rank, 5, rank);
+				destinationSquare = 6 * BOARD_SIZE + rank;
 			}
-			else //The move is a queenside castling move
+			else // The move is a queenside castling move, move king from e1/e8 to c1/c8, and rook from a1/a8 to d1/d8
 			{
-				// For the black side; move king from e8 to c8, and rook from a8 to d8
-				if( Color.BLACK.equals( move.getPlayerSide()))
-				{
-					Piece king = squares[4][7]; // e8
-					Piece rook = squares[0][7]; // a8
-
-					squares[2][7] = king; // c8
-					squares[3][7] = rook; // d8
-
-					squares[4][7] = null;
-					squares[0][7] = null;
-				}
-				else // For the white side; move king from e1 to c1, and rook from a1 to d1
-				{
-					Piece king = squares[4][0]; // e1
-					Piece rook = squares[0][0]; // a1
-
-					squares[2][0] = king; // c1
-					squares[3][0] = rook; // d1
-
-					squares[4][0] = null;
-					squares[0][0] = null;
-				}
+				movePiece( 4, rank, 2, rank);
+				movePiece( 0, rank, 3, rank);
+				destinationSquare = 2 * BOARD_SIZE + rank;
 			}
+			
+			sourceSquare = 4 * BOARD_SIZE + rank;
+			record |= CASTLING_FLAG;
 		}
 		else // The move is not a castling move
 		{
+			int fileSrc = move.getSourceFile().ordinal();
+			int rankSrc = move.getSourceRank().ordinal();
+			int fileDest = move.getDestinationFile().ordinal();
+			int rankDest = move.getDestinationRank().ordinal();
+			
 			// Get the moving piece from the source square
-			Piece source = squares[move.getSourceFile().ordinal()][move.getSourceRank().ordinal()];
+			Piece source = squares[fileSrc][rankSrc];
 			
-			// If it's a capturing move
+			// If it's a capturing move, get the captured piece and set it as captured
 			if( move.isCapture())
 			{
-				// If it's an en passant move
-				if( move instanceof EnPassantMove)
-				{
-					/* En passant move is an exception in that the captured piece is not in the destination square of the capturing piece.
-					 * For the black side, the captured white pawn is in the next rank, compared to the destination of the capturing black pawn.
-					 * Get the captured piece, which is at destination file/destination rank+1, and set it as captured.
-					 */
-					if( Color.BLACK.equals( move.getPlayerSide()))
-					{
-						Piece capturedPiece = squares[move.getDestinationFile().ordinal()][move.getDestinationRank().ordinal()+1];
-						capturedPiece.setCaptured( true);
-						capturedPiece.setCapturedOnFile( move.getDestinationFile());
-						capturedPiece.setCapturedOnRank( Rank.values()[move.getDestinationRank().ordinal()+1]);
-						
-						capturedPieces.add( capturedPiece);
-						inGamePieces.remove( capturedPiece);
-						
-						if( move.getCapturedPiece() == null)
-							move.setCapturedPiece( capturedPiece);
-						
-						squares[move.getDestinationFile().ordinal()][move.getDestinationRank().ordinal()+1] = null;
-					}
-					/* For the white side, the captured black pawn is in the previous rank, compared to the destination of the capturing white pawn.
-					 * Get the captured piece, which is at destination file/destination rank-1, and set it as captured.
-					 */
-					else
-					{
-						Piece capturedPiece = squares[move.getDestinationFile().ordinal()][move.getDestinationRank().ordinal()-1];
-						capturedPiece.setCaptured( true);
-						capturedPiece.setCapturedOnFile( move.getDestinationFile());
-						capturedPiece.setCapturedOnRank( Rank.values()[move.getDestinationRank().ordinal()-1]);
-						
-						capturedPieces.add( capturedPiece);
-						inGamePieces.remove( capturedPiece);
-
-						if( move.getCapturedPiece() == null)
-							move.setCapturedPiece( capturedPiece);
-						
-						squares[move.getDestinationFile().ordinal()][move.getDestinationRank().ordinal()-1] = null;
-					}
-				}
-				else // The move is not an en passant move, get the captured piece, which is at destination file/destination rank, and set it as captured.
-				{
-					Piece capturedPiece = squares[move.getDestinationFile().ordinal()][move.getDestinationRank().ordinal()];
-					capturedPiece.setCaptured( true);
-					capturedPiece.setCapturedOnFile( move.getDestinationFile());
-					capturedPiece.setCapturedOnRank( move.getDestinationRank());
-					
-					capturedPieces.add( capturedPiece);
-					inGamePieces.remove( capturedPiece);
-
-					if( move.getCapturedPiece() == null)
-						move.setCapturedPiece( capturedPiece);
-				}
+				/* En passant move is an exception in that the captured piece is not in the destination square of the capturing piece.
+				 * The captured pawn is next to the capturing pawn, in the destination file and the source rank.
+				 */
+				int capturedRank = ( move instanceof EnPassantMove) ? rankSrc : rankDest;
+				Piece capturedPiece = squares[fileDest][capturedRank];
+				capturedPiece.setCaptured( true);
+				capturedPiece.setCapturedOnFile( move.getDestinationFile());
+				capturedPiece.setCapturedOnRank( RANKS[capturedRank]);
+				
+				pushCapturedPiece( capturedPiece);
+				hash ^= getPieceKey( capturedPiece, fileDest, capturedRank);
+				squares[fileDest][capturedRank] = null;
+				capturedSquare = fileDest * BOARD_SIZE + capturedRank;
 			}
 			
 			// Move the moving piece from the source square to the destination square.
-			squares[move.getSourceFile().ordinal()][move.getSourceRank().ordinal()] = null;
-			squares[move.getDestinationFile().ordinal()][move.getDestinationRank().ordinal()] = source;
+			movePiece( fileSrc, rankSrc, fileDest, rankDest);
 			
-			/* We should know if and when a pawn has moved, as en passant move can only occur immediately after a pawn moves two ranks forward from its starting position.
-			 * So, set the pawn as first moved in this turn, if it hasn't moved already.
-			 */
-			if( PieceLetter.P.equals( source.getRealPieceLetter()))
+			if( PieceLetter.P == source.getRealPieceLetter())
 			{
-				if( ((Pawn)source).getFirstMovedOnTurn() == -1)
-					((Pawn)source).setFirstMovedOnTurn( move.getTurnIndex());
+				// If the pawn moved two squares forward, it can be captured en passant in the next move.
+				if( Math.abs( rankDest - rankSrc) == 2)
+				{
+					enPassantFile = fileDest;
+					hash ^= EN_PASSANT_KEYS[enPassantFile];
+				}
 				
 				// If this is a promotion move, promote the moved pawn.
 				if( move instanceof PromotionMove)
-					((Pawn)source).promote( ((PromotionMove)move).getPromotedPieceLetter());
-			}
-			// We should know if and when a rook/king has moved, to handle castling. So, set the rook/king as first moved in this turn, if it hasn't moved already.
-			else if( PieceLetter.R.equals( source.getRealPieceLetter()))
-				if( !((Rook)source).hasMoved())
 				{
-					((Rook)source).setHasMoved( true);
-					((Rook)source).setFirstMovedOnTurn( move.getTurnIndex());
-				}
-			else if( PieceLetter.K.equals( source.getRealPieceLetter()))
-				if( !((King)source).hasMoved())
-				{
-					((King)source).setHasMoved( true);
-					((King)source).setFirstMovedOnTurn( move.getTurnIndex());
+					hash ^= getPieceKey( source, fileDest, rankDest);
+					((Pawn)source).promote( ((PromotionMove)move).getPromotedPieceLetter());
+					changeMaterial( source.getColor(), PieceLetter.P, -1);
+					changeMaterial( source.getColor(), source.getRealPieceLetter(), 1);
+					hash ^= getPieceKey( source, fileDest, rankDest);
+					record |= PROMOTION_FLAG;
 				}
+			}
+			
+			sourceSquare = fileSrc * BOARD_SIZE + rankSrc;
+			destinationSquare = fileDest * BOARD_SIZE + rankDest;
 		}
+		
+		// A king or a rook moving from its starting square, or a rook captured on its starting square, loses its castling rights
+		int newCastlingRights = castlingRights & ~( getCastlingRightsOf( sourceSquare) | getCastlingRightsOf( destinationSquare));
+		hash ^= CASTLING_KEYS[castlingRights] ^ CASTLING_KEYS[newCastlingRights];
+		castlingRights = newCastlingRights;
+		
+		// The other side is to move
+		hash ^= BLACK_TO_MOVE_KEY;
+		
+		pushUndoRecord( record | sourceSquare | ( destinationSquare << DESTINATION_SHIFT) | ( capturedSquare << CAPTURED_SHIFT), previousHash);
 	}
 
-	// Take back given move
-	public void takeBackMove( Move move) throws IllegalPromotionException, InvalidMoveException
+	/* Take back the last executed move, by popping its undo record. The castling rights, the en passant file and the hash 
+	 * before the move are restored from the record, so the moves before it don't need to be looked at.
+	 */
+	public void takeBackMove() throws IllegalPromotionException, InvalidMoveException
 	{
-		// If the move was a castling move
-		if( move instanceof CastlingMove)
+		undoCount--;
+		int record = undoRecords[undoCount];
+		int sourceSquare = record & SQUARE_MASK;
+		int destinationSquare = ( record >>> DESTINATION_SHIFT) & SQUARE_MASK;
+		int capturedSquare = ( record >>> CAPTURED_SHIFT) & SQUARE_MASK;
+		int fileSrc = sourceSquare / BOARD_SIZE, rankSrc = sourceSquare % BOARD_SIZE;
+		int fileDest = destinationSquare / BOARD_SIZE, rankDest = destinationSquare % BOARD_SIZE;
+		
+		// Move the moving piece back from the destination square to the source square. For a castling move, this is the king.
+		Piece source = squares[fileDest][rankDest];
+		squares[fileSrc][rankSrc] = source;
+		squares[fileDest][rankDest] = null;
+		
+		// If the move was a castling move, move the rook back from f1/f8 to h1/h8 for kingside castling, or from d1/d8 to a1/a8 for queenside castling
+		if(( record & CASTLING_FLAG) != 0)
 		{
-			// If the move was a kingside castling move
-			if( ((CastlingMove)move).isKingSideCastling())
+			if( fileDest == 6)
 			{
-				// For the black side; move king back from g8 to e8, and rook from f8 to h8
-				if( Color.BLACK.equals( move.getPlayerSide()))
-				{
-					Piece king = squares[6][7]; // g8
-					Piece rook = squares[5][7]; // f8
-
-					squares[4][7] = king; // e8
-					squares[7][7] = rook; // h8
-
-					squares[6][7] = null;
-					squares[5][7] = null;
-				}
-				else // For the white side; move king back from g1 to e1, and rook from f1 to h1
-				{
-					Piece king = squares[6][0]; // g1
-					Piece rook = squares[5][0]; // f1
-
-					squares[4][0] = king; // e1
-					squares[7][0] = rook; // h1
-
-					squares[6][0] = null;
-					squares[5][0] = null;
-				}
+				squares[7][rankDest] = squares[5][rankDest];
+				squares[5][rankDest] = null;
 			}
-			else // The move was a queenside castling move
+			else
 			{
-				// For the black side; move king back from c8 to e8, and rook from d8 to a8
-				if( Color.BLACK.equals( move.getPlayerSide()))
-				{
-					Piece king = squares[2][7]; // c8
-					Piece rook = squares[3][7]; // d8
-
-					squares[4][7] = king; // e8
-					squares[0][7] = rook; // a8
-
-					squares[2][7] = null;
-					squares[3][7] = null;
-				}
-				else // For the white side; move king back from c1 to e1, and rook from d1 to a1
-				{
-					Piece king = squares[2][0]; // c1
-					Piece rook = squares[3][0]; // d1
-
-					squares[4][0] = king; // e1
-					squares[0][0] = rook; // a1
-
-					squares[2][0] = null;
-					squares[3][0] = null;
-				}
+				squares[0][rankDest] = squares[3][rankDest];
+				squares[3][rankDest] = null;
 			}
 		}
-		else // The move was not a castling move
+		
+		// If this was a promotion move, demote the moved pawn.
+		if(( record & PROMOTION_FLAG) != 0)
 		{
-			// Get the moving piece from the destination square
-			Piece source = squares[move.getDestinationFile().ordinal()][move.getDestinationRank().ordinal()];
-
-			// If it was a capturing move
-			if( move.isCapture())
-			{
-				// If it was an en passant move
-				if( move instanceof EnPassantMove)
-				{
-					/* En passant move is an exception in that the captured piece is not in the destination square of the capturing piece.
-					 * For the black side, the captured white pawn is in the next rank, compared to the destination of the capturing black pawn.
-					 * Get the captured piece from the move, set it as not captured, and put it back on the board at destination file/destination rank+1.
-					 */
-					if( Color.BLACK.equals( move.getPlayerSide()))
-					{
-						Piece capturedPiece = move.getCapturedPiece();
-						capturedPiece.setCaptured( false);
-						capturedPiece.setCapturedOnFile( null);
-						capturedPiece.setCapturedOnRank( null);
-						
-						capturedPieces.remove( capturedPiece);
-						inGamePieces.add( capturedPiece);
-						
-						if( move.getCapturedPiece() != null)
-							move.setCapturedPiece( null);
-
-						squares[move.getDestinationFile().ordinal()][move.getDestinationRank().ordinal()+1] = capturedPiece;
-					}
-					/* For the white side, the captured black pawn is in the previous rank, compared to the destination of the capturing white pawn.
-					 * Get the captured piece from the move, set it as not captured, and put it back on the board at destination file/destination rank-1.
-					 */
-					else
-					{
-						Piece capturedPiece = move.getCapturedPiece();
-						capturedPiece.setCaptured( false);
-						capturedPiece.setCapturedOnFile( null);
-						capturedPiece.setCapturedOnRank( null);
-						
-						capturedPieces.remove( capturedPiece);
-						inGamePieces.add( capturedPiece);
-
-						if( move.getCapturedPiece() != null)
-							move.setCapturedPiece( null);
-
-						squares[move.getDestinationFile().ordinal()][move.getDestinationRank().ordinal()-1] = capturedPiece;
-					}
-				}
-				/* If the move is not an en passant move, get the captured piece from the move, set it as not captured, 
-				 * and put it back on the board at destination file/destination rank.
-				 */
-				else
-				{
-					Piece capturedPiece = move.getCapturedPiece();
-					capturedPiece.setCaptured( false);
-					capturedPiece.setCapturedOnFile( null);
-					capturedPiece.setCapturedOnRank( null);
-					
-					capturedPieces.remove( capturedPiece);
-					inGamePieces.add( capturedPiece);
-
-					if( move.getCapturedPiece() != null)
-						move.setCapturedPiece( null);
-
-					squares[move.getDestinationFile().ordinal()][move.getDestinationRank().ordinal()] = capturedPiece;
-				}
-			}
-			else // The move was not a capturing move, it means the destination square was empty before the move, so it should be empty after taking the move back.
-			{
-				squares[move.getDestinationFile().ordinal()][move.getDestinationRank().ordinal()] = null;
-			}
+			changeMaterial( source.getColor(), source.getRealPieceLetter(), -1);
+			changeMaterial( source.getColor(), PieceLetter.P, 1);
+			((Pawn)source).demote();
+		}
+		
+		// If the move captured a piece, get the last captured piece, set it as not captured, and put it back on the board where it was captured.
+		if( capturedSquare != NO_SQUARE)
+		{
+			Piece capturedPiece = popCapturedPiece();
+			capturedPiece.setCaptured( false);
+			capturedPiece.setCapturedOnFile( null);
+			capturedPiece.setCapturedOnRank( null);
 			
-			// Move the moving piece back from the destination square to the source square.
-			squares[move.getSourceFile().ordinal()][move.getSourceRank().ordinal()] = source;
-
-			/* We should know if and when a pawn has moved, as en passant move can only occur immediately after a pawn moves two ranks forward from its starting position.
-			 * So, if the pawn has moved for the first time in this turn, set it as not moved.
-			 */
-			if( source instanceof Pawn)
-			{
-				if( ((Pawn)source).getFirstMovedOnTurn() == move.getTurnIndex())
-					((Pawn)source).setFirstMovedOnTurn( -1);
-
-				// If this was a promotion move, demote the moved pawn.
-				if( move instanceof PromotionMove)
-					((Pawn)source).demote();
-			}
-			// We should know if and when a rook/king has moved, to handle castling. So, if the rook/king has moved for the first time in this turn, set it as not moved.
-			else if( PieceLetter.R.equals( source.getRealPieceLetter()))
-				if( ((Rook)source).hasMoved() && ((Rook)source).getFirstMovedOnTurn() == move.getTurnIndex())
-				{
-					((Rook)source).setHasMoved( false);
-					((Rook)source).setFirstMovedOnTurn( -1);
-				}
-			else if( PieceLetter.K.equals( source.getRealPieceLetter()))
-				if( ((King)source).hasMoved() && ((King)source).getFirstMovedOnTurn() == move.getTurnIndex())
-				{
-					((King)source).setHasMoved( false);
-					((King)source).setFirstMovedOnTurn( -1);
-				}
+			squares[capturedSquare / BOARD_SIZE][capturedSquare % BOARD_SIZE] = capturedPiece;
 		}
+		
+		castlingRights = ( record >>> CASTLING_RIGHTS_SHIFT) & 0xF;
+		enPassantFile = (( record >>> EN_PASSANT_FILE_SHIFT) & 0xF) - 1;
+		hash = undoHashes[undoCount];
 	}
 }
@@ -1,37 +1,47 @@
 /**
- * Model of the MVC pattern. Contains a board, list of moves and some additional elements pertaining to game info and state.
+ * Model of the MVC pattern. Contains list of moves and some additional elements pertaining to game info.
+ * The moves are validated once, and they are not modified after they are validated. Replay state is held by a game cursor, 
+ * so one game can be replayed by several cursors at the same time.
+ * A game may be created from its tags only, with its movetext loaded by a subclass the first time its moves or its result are accessed.
  */
 
 package chessreplayer.model;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
-import chessreplayer.move.CastlingMove;
 import chessreplayer.move.IllegalPromotionException;
 import chessreplayer.move.InvalidMoveException;
 import chessreplayer.move.Move;
-import chessreplayer.piece.Color;
 
 public class Game
 {
 	public static enum Result { BLACK_WINS, WHITE_WINS, DRAW };
 								
 	private ArrayList<Move> moveList;
-	private HashMap<String,String> tagMap;
+	private final int[] tags; // Ids of the names and values of the tags in the shared tag dictionary, one tag after another
 	private Result result;
 	private ArrayList<String> trailingCommentsList;
+	private ArrayList<Variation> variationList; // Variations of the main line, holding their nested variations
 	
-	private Board board;
+	private volatile boolean movetextLoaded; // Moves, result, trailing comments and variations are set
 	
-	private int lastPlayedMoveIndex;
+	private Board validationBoard; // Kept between validation steps, until all moves are validated
+	
+	private volatile int validatedMoveCount; // Moves before this index are validated and can be played
 	
 	private static final String newLine = System.getProperty( "line.separator");
 	
 	// Create a new game from given list of moves, game tags, game result and ending comments
-	public Game( ArrayList<Move> moveList, HashMap<String,String> tagMap, Result result, ArrayList<String> trailingCommentsList)
+	public Game( ArrayList<Move> moveList, Map<String,String> tagMap, Result result, ArrayList<String> trailingCommentsList)
+	{
+		this( moveList, tagMap, result, trailingCommentsList, null);
+	}
+	
+	// Create a new game from given list of moves, game tags, game result, ending comments and variations of the main line
+	public Game( ArrayList<Move> moveList, Map<String,String> tagMap, Result result, ArrayList<String> trailingCommentsList, 
+				ArrayList<Variation> variationList)
 	{
 		if( moveList == null)
 			this.moveList = new ArrayList<Move>();
@@ -39,94 +49,148 @@ public class Game
 			this.moveList = moveList;
 
 		if( tagMap == null)
-			this.tagMap = new HashMap<String,String>();
+			this.tags = new int[0];
 		else
-			this.tagMap = tagMap;
+			this.tags = TagDictionary.getSharedDictionary().intern( tagMap);
 		
 		this.result = result;
 		this.trailingCommentsList = trailingCommentsList;
+		
+		if( variationList == null)
+			this.variationList = new ArrayList<Variation>();
+		else
+			this.variationList = variationList;
+		
+		for( Variation variation : this.variationList)
+			variation.setGame( this);
+		
+		this.movetextLoaded = true;
 	}
 	
-	public Result getResult()
+	// Create a game from its tags only. Its movetext is loaded by loadMovetext when it's first needed.
+	protected Game( Map<String,String> tagMap)
 	{
-		return result;
+		this( null, tagMap, null, new ArrayList<String>(), null);
+		this.movetextLoaded = false;
 	}
 	
-	// Return a deep copy of tagMap
-	public HashMap<String,String> getTagMap()
+	/* Load the movetext of a game created from its tags only, by setting the movetext of a game parsed from it. Called once, 
+	 * the first time the movetext is needed. If it cannot be loaded, the game has no moves.
+	 */
+	protected void loadMovetext()
 	{
-		HashMap<String,String> deepCopy = new HashMap<String,String>();
+	}
+	
+	// Take the moves, result, trailing comments and variations of the given game, which isn't used afterwards.
+	protected void setMovetext( Game game)
+	{
+		moveList = game.moveList;
+		result = game.result;
+		trailingCommentsList = game.trailingCommentsList;
+		variationList = game.variationList;
 		
-		for( String key : tagMap.keySet())
+		for( Variation variation : variationList)
+			variation.setGame( this);
+	}
+	
+	public boolean isMovetextLoaded()
+	{
+		return movetextLoaded;
+	}
+	
+	// Load the movetext if it's not loaded yet. Loading is synchronized, so the movetext is loaded once even if several threads need it.
+	private void ensureMovetextLoaded()
+	{
+		if( !movetextLoaded)
 		{
-			String value = tagMap.get( key);
-			deepCopy.put( key, value);
+			synchronized( this)
+			{
+				if( !movetextLoaded)
+				{
+					loadMovetext();
+					movetextLoaded = true;
+				}
+			}
 		}
-		
-		return deepCopy;
 	}
 	
-	public void initializeBoard()
+	public Result getResult()
 	{
-		this.board = new Board();
-		board.initializePieces();
-		lastPlayedMoveIndex = 0;
+		ensureMovetextLoaded();
+		return result;
+	}
+	
+	// Return a read-only view of the tags, in the order of the input
+	public Map<String,String> getTagMap()
+	{
+		return TagDictionary.getSharedDictionary().createTagMap( tags);
 	}
 	
-	// Validate the move list. Throws InvalidMoveException or IllegalPromotionException in case of invalid moves.
+	// Validate the rest of the move list. Throws InvalidMoveException or IllegalPromotionException in case of invalid moves.
 	public void validateMoves() throws InvalidMoveException, IllegalPromotionException
 	{
-		Board validationBoard = new Board();
-		validationBoard.initializePieces();
-		
-		for( int i = 0; i < moveList.size(); i++)
-		{
-			Move move = moveList.get( i);
-			moveList.set( i, validationBoard.validateMove( move));
-		}
+		validateMoves( getMoveCount());
 	}
 	
-	// Play one turn and increment last played move index, if the game hasn't ended already.
-	public void playTurn()
+	/* Validate the given number of moves following the moves that are already validated, and return the number of validated moves. 
+	 * Validation can be done in steps from a background thread, while the validated moves are played by game cursors. Throws InvalidMoveException 
+	 * or IllegalPromotionException in case of invalid moves.
+	 */
+	public synchronized int validateMoves( int count) throws InvalidMoveException, IllegalPromotionException
 	{
-		if( !hasEnded())
+		ensureMovetextLoaded();
+		
+		if( validationBoard == null && validatedMoveCount < moveList.size())
 		{
-			try {
-				board.executeMove( moveList.get( lastPlayedMoveIndex));
-			} catch (IllegalPromotionException e) { // Should never happen, the exception should be thrown during validateMoves
-			} catch (InvalidMoveException e) {} // Should never happen, the exception should be thrown during validateMoves
-			
-			lastPlayedMoveIndex++;
+			validationBoard = new Board();
+			validationBoard.initializePieces();
 		}
-	}
-
-	// Take back one turn and decrement last played move index, if the game hasn't ended already.
-	public void takeBackTurn()
-	{
-		if( hasStarted())
+		
+		int end = Math.min( moveList.size(), validatedMoveCount + count);
+		for( int i = validatedMoveCount; i < end; i++)
 		{
-			try {
-				lastPlayedMoveIndex--;
-				board.takeBackMove( moveList.get( lastPlayedMoveIndex));
-			} catch (IllegalPromotionException e) { // Should never happen, the exception should be thrown during validateMoves
-			} catch (InvalidMoveException e) {} // Should never happen, the exception should be thrown during validateMoves
-			
+			Move move = moveList.get( i);
+			moveList.set( i, validationBoard.validateMove( move));
+			validatedMoveCount = i + 1;
 		}
+		
+		// The validation board is not needed anymore after all moves are validated, unless the game is in progress and more moves may be appended
+		if( validatedMoveCount == moveList.size() && result != null)
+			validationBoard = null;
+		
+		return validatedMoveCount;
 	}
 	
-	public boolean hasEnded()
+	/* Append the given moves to the list of moves of a game in progress, e.g. a game whose file is followed as its moves are played, and set 
+	 * the result of the game, which is null while it's in progress. The appended moves are validated by the next validation step, 
+	 * on the board the validated moves were played on.
+	 */
+	public synchronized void appendMoves( List<Move> moves, Result result) throws InvalidMoveException, IllegalPromotionException
 	{
-		return( moveList != null && moveList.size() == lastPlayedMoveIndex);
+		ensureMovetextLoaded();
+		
+		// If the validation board was dropped, e.g. the game had ended, play the validated moves on a new one
+		if( validationBoard == null && validatedMoveCount > 0 && !moves.isEmpty())
+		{
+			validationBoard = new Board();
+			validationBoard.initializePieces();
+			for( int i = 0; i < validatedMoveCount; i++)
+				validationBoard.executeMove( moveList.get( i));
+		}
+		
+		moveList.addAll( moves);
+		this.result = result;
 	}
 	
-	public boolean hasStarted()
+	public int getValidatedMoveCount()
 	{
-		return( lastPlayedMoveIndex > 0);
+		return validatedMoveCount;
 	}
 	
 	// Return a string list containing move texts of the moves in list of moves
 	public List<String> getFullTextList()
 	{
+		ensureMovetextLoaded();
 		List<String> fullTextList = new ArrayList<String>();
 		
 		if( moveList != null)
@@ -140,154 +204,71 @@ public class Game
 		return fullTextList;
 	}
 	
-	public int getLastPlayedMoveIndex()
+	// Return the comments following the result of the game
+	public List<String> getTrailingCommentsList()
 	{
-		return lastPlayedMoveIndex;
+		ensureMovetextLoaded();
+		return new ArrayList<String>( trailingCommentsList);
 	}
 	
-	// Get ordinal of source file of the last played move, adjusted from 0-7 range to 1-8 range
-	public int lastPlayedFromFileOrdinal()
+	// Return the number of moves in the list of moves
+	public int getMoveCount()
 	{
-		// Return -1 if the game hasn't started yet
-		if( lastPlayedMoveIndex < 1)
-			return -1;
-		
-		Move move = moveList.get( lastPlayedMoveIndex-1);
-		
-		// Handle castling moves by using source and destination of the king in the castling
-		if( move instanceof CastlingMove)
-		{
-			if( ((CastlingMove)move).isKingSideCastling())
-			{
-				if( Color.BLACK.equals( move.getPlayerSide()))
-					return Move.File.E.ordinal() + 1; // From e8
-				else
-					return Move.File.E.ordinal() + 1; // From e1
-			}
-			else
-			{
-				if( Color.BLACK.equals( move.getPlayerSide()))
-					return Move.File.E.ordinal() + 1; // From e8
-				else
-					return Move.File.E.ordinal() + 1; // From e1
-			}
-		}
-		else // For non-castling moves, simply return the ordinal of source file
-			return moveList.get( lastPlayedMoveIndex-1).getSourceFile().ordinal() + 1;
+		ensureMovetextLoaded();
+		return moveList.size();
 	}
-
-	// Get ordinal of source rank of the last played move, adjusted from 0-7 range to 1-8 range
-	public int lastPlayedFromRankOrdinal()
+	
+	// Return the move at the given index of the list of moves
+	public Move getMove( int index)
 	{
-		if( lastPlayedMoveIndex < 1)
-			return -1;
-		
-		Move move = moveList.get( lastPlayedMoveIndex-1);
-		
-		// Handle castling moves by using source and destination of the king in the castling
-		if( move instanceof CastlingMove)
-		{
-			if( ((CastlingMove)move).isKingSideCastling())
-			{
-				if( Color.BLACK.equals( move.getPlayerSide()))
-					return Move.Rank._8.ordinal() + 1; // From e8
-				else
-					return Move.Rank._1.ordinal() + 1; // From e1
-			}
-			else
-			{
-				if( Color.BLACK.equals( move.getPlayerSide()))
-					return Move.Rank._8.ordinal() + 1; // From e8
-				else
-					return Move.Rank._1.ordinal() + 1; // From e1
-			}
-		}
-		else // For non-castling moves, simply return the ordinal of source rank
-			return moveList.get( lastPlayedMoveIndex-1).getSourceRank().ordinal() + 1;
+		ensureMovetextLoaded();
+		return moveList.get( index);
 	}
-
-	// Get ordinal of destination file of the last played move, adjusted from 0-7 range to 1-8 range
-	public int lastPlayedToFileOrdinal()
+	
+	// Return the variations of the main line
+	public List<Variation> getVariations()
 	{
-		if( lastPlayedMoveIndex < 1)
-			return -1;
-		
-		Move move = moveList.get( lastPlayedMoveIndex-1);
-		
-		// Handle castling moves by using source and destination of the king in the castling
-		if( move instanceof CastlingMove)
-		{
-			if( ((CastlingMove)move).isKingSideCastling())
-			{
-				if( Color.BLACK.equals( move.getPlayerSide()))
-					return Move.File.G.ordinal() + 1; // To g8
-				else
-					return Move.File.G.ordinal() + 1; // To g1
-			}
-			else
-			{
-				if( Color.BLACK.equals( move.getPlayerSide()))
-					return Move.File.C.ordinal() + 1; // To c8
-				else
-					return Move.File.C.ordinal() + 1; // To c1
-			}
-		}
-		else // For non-castling moves, simply return the ordinal of destination file
-			return moveList.get( lastPlayedMoveIndex-1).getDestinationFile().ordinal() + 1;
+		ensureMovetextLoaded();
+		return new ArrayList<Variation>( variationList);
 	}
-
-	// Get ordinal of destination rank of the last played move, adjusted from 0-7 range to 1-8 range
-	public int lastPlayedToRankOrdinal()
+	
+	// Return the variations replacing the move at the given index of the main line
+	public List<Variation> getVariations( int index)
 	{
-		if( lastPlayedMoveIndex < 1)
-			return -1;
-		
-		Move move = moveList.get( lastPlayedMoveIndex-1);
-		
-		// Handle castling moves by using source and destination of the king in the castling
-		if( move instanceof CastlingMove)
-		{
-			if( ((CastlingMove)move).isKingSideCastling())
-			{
-				if( Color.BLACK.equals( move.getPlayerSide()))
-					return Move.Rank._8.ordinal() + 1; // To g8
-				else
-					return Move.Rank._1.ordinal() + 1; // To g1
-			}
-			else
-			{
-				if( Color.BLACK.equals( move.getPlayerSide()))
-					return Move.Rank._8.ordinal() + 1; // To c8
-				else
-					return Move.Rank._1.ordinal() + 1; // To c1
-			}
-		}
-		else // For non-castling moves, simply return the ordinal of destination rank
-			return moveList.get( lastPlayedMoveIndex-1).getDestinationRank().ordinal() + 1;
+		ensureMovetextLoaded();
+		return getVariations( variationList, index);
 	}
 	
-	public Board retrieveBoard()
+	// Return the variations in the given list that replace the move at the given index of their parent line
+	static List<Variation> getVariations( List<Variation> variationList, int index)
 	{
-		return board;
+		List<Variation> variations = new ArrayList<Variation>();
+		for( Variation variation : variationList)
+		{
+			if( variation.getBranchIndex() == index)
+				variations.add( variation);
+		}
+		
+		return variations;
 	}
-
+	
 	@Override
 	public String toString()
 	{
-		String str = "Game:" + newLine;
+		ensureMovetextLoaded();
+		StringBuilder str = new StringBuilder( "Game:").append( newLine);
 		
-		Set<String> keySet = tagMap.keySet();
-		for( String key : keySet)
-			str += key + " : " + tagMap.get( key) + newLine;
+		for( Map.Entry<String,String> tag : getTagMap().entrySet())
+			str.append( tag.getKey()).append( " : ").append( tag.getValue()).append( newLine);
 		
 		for( Move move : moveList)
-			str += move.toString() + newLine;
+			str.append( move).append( newLine);
 		
-		str += "Result : " + result + newLine;
+		str.append( "Result : ").append( result).append( newLine);
 		
 		for( String trailingComment : trailingCommentsList)
-			str += trailingComment + newLine;
+			str.append( trailingComment).append( newLine);
 		
-		return str;
+		return str.toString();
 	}
 }
@@ -0,0 +1,278 @@
+/**
+ * A replay of a game. Holds the mutable replay state: a board of its own and the index of the last played move. The game is only read, 
+ * so several cursors can replay the same game at the same time, e.g. for different views or in different threads, without parsing it again.
+ * A cursor replays the main line of the game, or the line of one of its variations. It can enter a variation of the line it replays, and leave it
+ * again, keeping the moves that the lines share on its board. A cursor itself is not thread safe, it should be used by one thread at a time.
+ */
+
+package chessreplayer.model;
+
+import java.util.List;
+
+import chessreplayer.move.CastlingMove;
+import chessreplayer.move.IllegalPromotionException;
+import chessreplayer.move.InvalidMoveException;
+import chessreplayer.move.Move;
+import chessreplayer.piece.Color;
+
+public class GameCursor
+{
+	private final Game game;
+	private Variation variation; // Variation being replayed, or null for the main line
+	private Board board;
+	private int lastPlayedMoveIndex;
+	
+	// Create a cursor at the beginning of the given game, with the pieces in their starting positions.
+	public GameCursor( Game game)
+	{
+		this.game = game;
+		this.board = new Board();
+		board.initializePieces();
+		lastPlayedMoveIndex = 0;
+	}
+	
+	// Create a cursor at the beginning of the given variation, which is validated first if it's not yet validated.
+	public GameCursor( Variation variation) throws InvalidMoveException, IllegalPromotionException
+	{
+		this( variation.getGame());
+		variation.validateMoves();
+		this.variation = variation;
+	}
+	
+	public Game getGame()
+	{
+		return game;
+	}
+	
+	// Return the variation being replayed, or null if the main line is replayed
+	public Variation getVariation()
+	{
+		return variation;
+	}
+	
+	// Return the variations of the line being replayed that replace the move at the given index, which the cursor can enter
+	public List<Variation> getVariations( int index)
+	{
+		return ( variation == null) ? game.getVariations( index) : variation.getVariations( index);
+	}
+	
+	/* Replay the given variation of the line being replayed from the current position, which is validated first if it's not yet validated.
+	 * If the cursor is past the first move of the variation, the moves after it are taken back, so the board is in the position before the variation.
+	 */
+	public void enterVariation( Variation variation) throws InvalidMoveException, IllegalPromotionException
+	{
+		if( variation.getParent() != this.variation || variation.getGame() != game)
+			throw new IllegalArgumentException( "Not a variation of the line being replayed");
+		
+		variation.validateMoves();
+		
+		while( lastPlayedMoveIndex > variation.getBranchIndex())
+			takeBackTurn();
+		
+		this.variation = variation;
+	}
+	
+	/* Go back to the parent line of the variation being replayed, in the position before the variation. Do nothing if the main line is replayed.
+	 * The moves of the variation that were played are taken back.
+	 */
+	public void leaveVariation()
+	{
+		if( variation != null)
+		{
+			while( lastPlayedMoveIndex > variation.getBranchIndex())
+				takeBackTurn();
+			
+			variation = variation.getParent();
+		}
+	}
+	
+	// A turn can be played if the game hasn't ended and the next move is validated
+	public boolean canPlayTurn()
+	{
+		return( lastPlayedMoveIndex < getValidatedMoveCount());
+	}
+	
+	// Play one turn and increment last played move index, if the game hasn't ended already and the next move is validated.
+	public void playTurn()
+	{
+		if( canPlayTurn())
+		{
+			try {
+				board.executeMove( getMove( lastPlayedMoveIndex));
+			} catch (IllegalPromotionException e) { // Should never happen, the exception should be thrown during validateMoves
+			} catch (InvalidMoveException e) {} // Should never happen, the exception should be thrown during validateMoves
+			
+			lastPlayedMoveIndex++;
+		}
+	}
+
+	// Take back one turn and decrement last played move index, if the game has started.
+	public void takeBackTurn()
+	{
+		if( hasStarted())
+		{
+			try {
+				lastPlayedMoveIndex--;
+				board.takeBackMove();
+			} catch (IllegalPromotionException e) { // Should never happen, the exception should be thrown during validateMoves
+			} catch (InvalidMoveException e) {} // Should never happen, the exception should be thrown during validateMoves
+		}
+	}
+	
+	public boolean hasEnded()
+	{
+		return( getMoveCount() == lastPlayedMoveIndex);
+	}
+	
+	public boolean hasStarted()
+	{
+		return( lastPlayedMoveIndex > 0);
+	}
+	
+	public int getLastPlayedMoveIndex()
+	{
+		return lastPlayedMoveIndex;
+	}
+	
+	// Get ordinal of source file of the last played move, adjusted from 0-7 range to 1-8 range
+	public int lastPlayedFromFileOrdinal()
+	{
+		// Return -1 if the game hasn't started yet
+		if( lastPlayedMoveIndex < 1)
+			return -1;
+		
+		Move move = getMove( lastPlayedMoveIndex-1);
+		
+		// Handle castling moves by using source and destination of the king in the castling
+		if( move instanceof CastlingMove)
+		{
+			if( ((CastlingMove)move).isKingSideCastling())
+			{
+				if( Color.BLACK.equals( move.getPlayerSide()))
+					return Move.File.E.ordinal() + 1; // From e8
+				else
+					return Move.File.E.ordinal() + 1; // From e1
+			}
+			else
+			{
+				if( Color.BLACK.equals( move.getPlayerSide()))
+					return Move.File.E.ordinal() + 1; // From e8
+				else
+					return Move.File.E.ordinal() + 1; // From e1
+			}
+		}
+		else // For non-castling moves, simply return the ordinal of source file
+			return getMove( lastPlayedMoveIndex-1).getSourceFile().ordinal() + 1;
+	}
+
+	// Get ordinal of source rank of the last played move, adjusted from 0-7 range to 1-8 range
+	public int lastPlayedFromRankOrdinal()
+	{
+		if( lastPlayedMoveIndex < 1)
+			return -1;
+		
+		Move move = getMove( lastPlayedMoveIndex-1);
+		
+		// Handle castling moves by using source and destination of the king in the castling
+		if( move instanceof CastlingMove)
+		{
+			if( ((CastlingMove)move).isKingSideCastling())
+			{
+				if( Color.BLACK.equals( move.getPlayerSide()))
+					return Move.Rank._8.ordinal() + 1; // From e8
+				else
+					return Move.Rank._1.ordinal() + 1; // From e1
+			}
+			else
+			{
+				if( Color.BLACK.equals( move.getPlayerSide()))
+					return Move.Rank._8.ordinal() + 1; // From e8
+				else
+					return Move.Rank._1.ordinal() + 1; // From e1
+			}
+		}
+		else // For non-castling moves, simply return the ordinal of source rank
+			return getMove( lastPlayedMoveIndex-1).getSourceRank().ordinal() + 1;
+	}
+
+	// Get ordinal of destination file of the last played move, adjusted from 0-7 range to 1-8 range
+	public int lastPlayedToFileOrdinal()
+	{
+		if( lastPlayedMoveIndex < 1)
+			return -1;
+		
+		Move move = getMove( lastPlayedMoveIndex-1);
+		
+		// Handle castling moves by using source and destination of the king in the castling
+		if( move instanceof CastlingMove)
+		{
+			if( ((CastlingMove)move).isKingSideCastling())
+			{
+				if( Color.BLACK.equals( move.getPlayerSide()))
+					return Move.File.G.ordinal() + 1; // To g8
+				else
+					return Move.File.G.ordinal() + 1; // To g1
+			}
+			else
+			{
+				if( Color.BLACK.equals( move.getPlayerSide()))
+					return Move.File.C.ordinal() + 1; // To c8
+				else
+					return Move.File.C.ordinal() + 1; // To c1
+			}
+		}
+		else // For non-castling moves, simply return the ordinal of destination file
+			return getMove( lastPlayedMoveIndex-1).getDestinationFile().ordinal() + 1;
+	}
+
+	// Get ordinal of destination rank of the last played move, adjusted from 0-7 range to 1-8 range
+	public int lastPlayedToRankOrdinal()
+	{
+		if( lastPlayedMoveIndex < 1)
+			return -1;
+		
+		Move move = getMove( lastPlayedMoveIndex-1);
+		
+		// Handle castling moves by using source and destination of the king in the castling
+		if( move instanceof CastlingMove)
+		{
+			if( ((CastlingMove)move).isKingSideCastling())
+			{
+				if( Color.BLACK.equals( move.getPlayerSide()))
+					return Move.Rank._8.ordinal() + 1; // To g8
+				else
+					return Move.Rank._1.ordinal() + 1; // To g1
+			}
+			else
+			{
+				if( Color.BLACK.equals( move.getPlayerSide()))
+					return Move.Rank._8.ordinal() + 1; // To c8
+				else
+					return Move.Rank._1.ordinal() + 1; // To c1
+			}
+		}
+		else // For non-castling moves, simply return the ordinal of destination rank
+			return getMove( lastPlayedMoveIndex-1).getDestinationRank().ordinal() + 1;
+	}
+	
+	public Board retrieveBoard()
+	{
+		return board;
+	}
+	
+	// Return the move at the given index of the line being replayed
+	private Move getMove( int index)
+	{
+		return ( variation == null) ? game.getMove( index) : variation.getMove( index);
+	}
+	
+	private int getMoveCount()
+	{
+		return ( variation == null) ? game.getMoveCount() : variation.getMoveCount();
+	}
+	
+	private int getValidatedMoveCount()
+	{
+		return ( variation == null) ? game.getValidatedMoveCount() : variation.getValidatedMoveCount();
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ * A dictionary shared by all games, which interns tag names and tag values to int ids. The same names, and many of the same values,
+ * e.g. player names, events and sites, repeat in every game of a collection, so each game stores its tags as an int array of ids,
+ * and each distinct string is kept once. Strings are never removed from the dictionary. It's thread safe, so games can be parsed in parallel.
+ */
+
+package chessreplayer.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TagDictionary
+{
+	public static final int NO_ID = -1; // Id of a string that isn't in the dictionary
+
+	private static final TagDictionary sharedDictionary = new TagDictionary();
+
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private volatile String[] strings = new String[ 256]; // Strings by their ids
+	private int stringCount; // Guarded by the dictionary
+
+	// Return the dictionary shared by all games
+	public static TagDictionary getSharedDictionary()
+	{
+		return sharedDictionary;
+	}
+
+	// Return the id of the given string, adding it to the dictionary if it's not there yet.
+	public int intern( String string)
+	{
+		Integer id = ids.get( string);
+		if( id != null)
+			return id;
+
+		synchronized( this)
+		{
+			// Another thread may have added it meanwhile
+			id = ids.get( string);
+			if( id != null)
+				return id;
+
+			if( stringCount == strings.length)
+				strings = Arrays.copyOf( strings, 2 * strings.length);
+
+			// The string is stored before its id is published, so whoever finds the id can find the string
+			strings[ stringCount] = string;
+			ids.put( string, stringCount);
+			return stringCount++;
+		}
+	}
+
+	// Return the id of the given string, or NO_ID if it's not in the dictionary. The string isn't added.
+	public int getId( String string)
+	{
+		Integer id = ids.get( string);
+		return ( id == null) ? NO_ID : id;
+	}
+
+	public String getString( int id)
+	{
+		return strings[ id];
+	}
+
+	// Return the number of strings in the dictionary
+	public int size()
+	{
+		return ids.size();
+	}
+
+	/* Intern the names and values of the given tags, and return them as an array of ids: the name and the value of each tag one after another,
+	 * in the iteration order of the map.
+	 */
+	public int[] intern( Map<String,String> tagMap)
+	{
+		int[] tags = new int[ 2 * tagMap.size()];
+		int index = 0;
+		for( Map.Entry<String,String> tag : tagMap.entrySet())
+		{
+			tags[ index++] = intern( tag.getKey());
+			tags[ index++] = intern( tag.getValue());
+		}
+
+		return tags;
+	}
+
+	/* Return a read-only map view of the given array of tag ids, which isn't copied. Tags are few, so a tag is found by comparing the ids
+	 * of the tag names rather than by hashing.
+	 */
+	public Map<String,String> createTagMap( int[] tags)
+	{
+		return new TagMap( tags);
+	}
+
+	private class TagMap extends AbstractMap<String,String>
+	{
+		private final int[] tags;
+
+		public TagMap( int[] tags)
+		{
+			this.tags = tags;
+		}
+
+		@Override
+		public String get( Object key)
+		{
+			int index = indexOf( key);
+			return ( index < 0) ? null : getString( tags[ index + 1]);
+		}
+
+		@Override
+		public boolean containsKey( Object key)
+		{
+			return indexOf( key) >= 0;
+		}
+
+		@Override
+		public int size()
+		{
+			return tags.length / 2;
+		}
+
+		// Return the index of the name of the tag with the given name in the array, or -1 if there's no such tag
+		private int indexOf( Object key)
+		{
+			if( !( key instanceof String))
+				return -1;
+
+			int id = getId( (String) key);
+			for( int i = 0; id != NO_ID && i < tags.length; i += 2)
+			{
+				if( tags[i] == id)
+					return i;
+			}
+
+			return -1;
+		}
+
+		@Override
+		public Set<Map.Entry<String,String>> entrySet()
+		{
+			return new AbstractSet<Map.Entry<String,String>>()
+				{
+					@Override
+					public Iterator<Map.Entry<String,String>> iterator()
+					{
+						return new Iterator<Map.Entry<String,String>>()
+							{
+								private int index = 0;
+
+								public boolean hasNext()
+								{
+									return index < tags.length;
+								}
+
+								public Map.Entry<String,String> next()
+								{
+									if( !hasNext())
+										throw new NoSuchElementException();
+
+									Map.Entry<String,String> entry = new AbstractMap.SimpleImmutableEntry<String,String>( getString( tags[ index]), getString( tags[ index + 1]));
+									index += 2;
+									return entry;
+								}
+
+								public void remove()
+								{
+									throw new UnsupportedOperationException();
+								}
+							};
+					}
+
+					@Override
+					public int size()
+					{
+						return TagMap.this.size();
+					}
+				};
+		}
+	}
+}
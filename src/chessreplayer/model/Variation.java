@@ -0,0 +1,168 @@
+/**
+ * A recursive variation of a game, i.e. an alternative line of moves that replaces a move of its parent line and the moves following it.
+ * The parent line is the main line of the game, or another variation. A variation only holds its own moves: the moves before it are read
+ * from its parent line, so the line of a variation is indexed like the main line, from the first move of the game.
+ * The moves of a variation are validated when they are first needed, e.g. when a cursor enters the variation, not when the game is loaded.
+ */
+
+package chessreplayer.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import chessreplayer.move.IllegalPromotionException;
+import chessreplayer.move.InvalidMoveException;
+import chessreplayer.move.Move;
+import chessreplayer.piece.Color;
+
+public class Variation
+{
+	private final int branchIndex; // Index of the move of the parent line that the first move of the variation replaces
+	private final ArrayList<Move> moveList;
+	private final ArrayList<Variation> variationList;
+
+	private Game game;
+	private Variation parent; // Null if the parent line is the main line
+
+	private volatile int validatedMoveCount; // Moves of the variation before this index are validated
+
+	// Create a variation replacing the move at the given index of its parent line, with the given moves and nested variations.
+	public Variation( int branchIndex, ArrayList<Move> moveList, ArrayList<Variation> variationList)
+	{
+		this.branchIndex = branchIndex;
+		this.moveList = moveList;
+
+		if( variationList == null)
+			this.variationList = new ArrayList<Variation>();
+		else
+			this.variationList = variationList;
+
+		for( Variation variation : this.variationList)
+			variation.parent = this;
+	}
+
+	// Attach the variation and its nested variations to the given game, whose main line they start from.
+	void setGame( Game game)
+	{
+		this.game = game;
+		for( Variation variation : variationList)
+			variation.setGame( game);
+	}
+
+	public Game getGame()
+	{
+		return game;
+	}
+
+	// Return the parent variation, or null if the variation replaces a move of the main line
+	public Variation getParent()
+	{
+		return parent;
+	}
+
+	public int getBranchIndex()
+	{
+		return branchIndex;
+	}
+
+	// Return the variations nested in this variation
+	public List<Variation> getVariations()
+	{
+		return new ArrayList<Variation>( variationList);
+	}
+
+	// Return the nested variations replacing the move at the given index of the line
+	public List<Variation> getVariations( int index)
+	{
+		return Game.getVariations( variationList, index);
+	}
+
+	// Return the number of moves of the line, from the first move of the game to the last move of the variation
+	public int getMoveCount()
+	{
+		return branchIndex + moveList.size();
+	}
+
+	// Return the move at the given index of the line, which is a move of the parent line if it precedes the variation
+	public Move getMove( int index)
+	{
+		if( index < branchIndex)
+			return getParentMove( index);
+
+		return moveList.get( index - branchIndex);
+	}
+
+	/* Return the number of validated moves of the line. Until the variation is validated, only the moves of the parent line preceding it
+	 * can be played.
+	 */
+	public int getValidatedMoveCount()
+	{
+		if( validatedMoveCount > 0)
+			return branchIndex + validatedMoveCount;
+
+		int parentValidatedMoveCount = ( parent == null) ? game.getValidatedMoveCount() : parent.getValidatedMoveCount();
+		return Math.min( branchIndex, parentValidatedMoveCount);
+	}
+
+	public boolean isValidated()
+	{
+		return validatedMoveCount == moveList.size();
+	}
+
+	/* Validate the moves of the variation, after validating the moves of the parent lines preceding it. The position before the variation
+	 * is reached by playing the moves of the parent line, which are validated once for all their variations. Throws InvalidMoveException
+	 * or IllegalPromotionException in case of invalid moves, and the variation can be played up to the invalid move.
+	 */
+	public synchronized void validateMoves() throws InvalidMoveException, IllegalPromotionException
+	{
+		if( isValidated())
+			return;
+
+		if( parent == null)
+		{
+			if( game.getValidatedMoveCount() < branchIndex)
+				game.validateMoves( branchIndex - game.getValidatedMoveCount());
+		}
+		else
+			parent.validateMoves();
+
+		// Play the moves preceding the moves to be validated
+		Board board = new Board();
+		board.initializePieces();
+		for( int i = 0; i < branchIndex + validatedMoveCount; i++)
+			board.executeMove( getMove( i));
+
+		for( int i = validatedMoveCount; i < moveList.size(); i++)
+		{
+			moveList.set( i, board.validateMove( moveList.get( i)));
+			validatedMoveCount = i + 1;
+		}
+	}
+
+	private Move getParentMove( int index)
+	{
+		return ( parent == null) ? game.getMove( index) : parent.getMove( index);
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder str = new StringBuilder( "(");
+		for( int i = 0; i < moveList.size(); i++)
+		{
+			Move move = moveList.get( i);
+			if( i > 0)
+				str.append( ' ');
+
+			// The first move of a black variation is numbered with an ellipsis
+			if( Color.WHITE == move.getPlayerSide())
+				str.append( move.getTurnIndex()).append( ". ");
+			else if( i == 0)
+				str.append( move.getTurnIndex()).append( "... ");
+
+			str.append( move.getMoveText());
+		}
+
+		return str.append( ')').toString();
+	}
+}
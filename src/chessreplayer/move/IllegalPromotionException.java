@@ -8,8 +8,9 @@ public class IllegalPromotionException extends Exception
 {
 	private static final long serialVersionUID = 5304278853811683007L;
 	
+	// Without a stack trace, like the other exceptions about invalid input
 	public IllegalPromotionException( String message)
 	{
-		super( message);
+		super( message, null, false, false);
 	}
 }
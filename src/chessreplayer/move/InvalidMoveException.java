@@ -8,8 +8,9 @@ public class InvalidMoveException extends Exception
 {
 	private static final long serialVersionUID = -3038267357513634108L;
 
+	// Stack trace is not filled in, as it only points at the board, not at the invalid move in the input
 	public InvalidMoveException( String message)
 	{
-		super( message);
+		super( message, null, false, false);
 	}
 }
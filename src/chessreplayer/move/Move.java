@@ -8,7 +8,6 @@ package chessreplayer.move;
 import java.util.ArrayList;
 
 import chessreplayer.piece.Color;
-import chessreplayer.piece.Piece;
 
 public class Move
 {
@@ -31,8 +30,6 @@ public class Move
 	private Rank sourceRank;
 	private PieceLetter pieceLetter;
 	
-	private Piece capturedPiece;
-	
 	private boolean isCapture;
 	private boolean isCheck;
 	private boolean isCheckMate;
@@ -160,16 +157,6 @@ public class Move
 		this.pieceLetter = pieceLetter;
 	}
 
-	public Piece getCapturedPiece()
-	{
-		return capturedPiece;
-	}
-
-	public void setCapturedPiece( Piece capturedPiece)
-	{
-		this.capturedPiece = capturedPiece;
-	}
-
 	public boolean isCapture()
 	{
 		return isCapture;
@@ -213,18 +200,18 @@ public class Move
 	// Create a move text by concatenating turn index, move text, comments and recursive variations; and return it.
 	public String getFullText()
 	{
-		String str = turnIndex + ". " + moveText;
+		StringBuilder str = new StringBuilder().append( turnIndex).append( ". ").append( moveText);
 		
 		if( numericalAnnotationGlyph != null)
-			str += numericalAnnotationGlyph;
+			str.append( numericalAnnotationGlyph);
 		
 		for( String s : commentList)
-			str += newLine + s;
+			str.append( newLine).append( s);
 		
 		for( String s : recursiveVariationList)
-			str += newLine + s;
+			str.append( newLine).append( s);
 		
-		return str;
+		return str.toString();
 	}
 	
 	// Decide if the given move is a diagonal move (file displacement=rank displacement)
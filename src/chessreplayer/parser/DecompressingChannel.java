@@ -0,0 +1,253 @@
+/**
+ * Opens PGN input that may be compressed, recognizing gzip and zip inputs by their magic numbers rather than by file names.
+ * Compressed input is decompressed in a thread of its own, a few chunks ahead of the reader of the channel, so that decompression
+ * and parsing run at the same time. The entries of a zip archive are read one after another, as if they were a single PGN database.
+ */
+
+package chessreplayer.parser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class DecompressingChannel implements ReadableByteChannel
+{
+	private static final int GZIP_MAGIC = 0x1F8B;
+	private static final int ZIP_MAGIC = 0x504B; // "PK", followed by 3 and 4 for an entry, or by 5 and 6 for an empty archive
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final int CHUNK_COUNT = 16; // Chunks decompressed ahead of the reader
+	private static final byte[] END = new byte[0]; // Marks the end of the decompressed input
+
+	private final InputStream inputStream;
+	private final BlockingQueue<byte[]> chunks;
+	private final Thread decompressor;
+	private volatile IOException decompressionException;
+	private ByteBuffer chunk; // Chunk being read, null after the end
+	private boolean open;
+
+	// Create a channel of the decompressed bytes of the given gzip or zip input stream, and start decompressing it.
+	private DecompressingChannel( final InputStream compressedStream, boolean zip) throws IOException
+	{
+		this.inputStream = zip ? new ZipInputStream( compressedStream) : new GZIPInputStream( compressedStream, CHUNK_SIZE);
+		this.chunks = new ArrayBlockingQueue<byte[]>( CHUNK_COUNT);
+		this.chunk = ByteBuffer.allocate( 0);
+		this.open = true;
+
+		final boolean isZip = zip;
+		this.decompressor = new Thread( new Runnable()
+			{
+				public void run()
+				{
+					decompress( isZip);
+				}
+			}, "Decompressor"
+		);
+		this.decompressor.setDaemon( true);
+		this.decompressor.start();
+	}
+
+	/* Open the given file for reading. If it's compressed with gzip or zip, the returned channel reads its decompressed bytes. Otherwise, the file channel 
+	 * itself is returned, so that an uncompressed file is read directly into the buffer of the reader, without copying it through a stream.
+	 */
+	public static ReadableByteChannel open( File inputFile) throws IOException
+	{
+		FileChannel fileChannel = FileChannel.open( inputFile.toPath(), StandardOpenOption.READ);
+
+		try {
+			// Peek at the first two bytes
+			ByteBuffer magicBytes = ByteBuffer.allocate( 2);
+			while( magicBytes.hasRemaining())
+			{
+				if( fileChannel.read( magicBytes) < 0)
+					break;
+			}
+			fileChannel.position( 0);
+
+			int magic = ( magicBytes.position() < 2) ? -1 : ( magicBytes.getShort( 0) & 0xFFFF);
+			if( magic == GZIP_MAGIC)
+				return new DecompressingChannel( new BufferedInputStream( Channels.newInputStream( fileChannel), CHUNK_SIZE), false);
+			else if( magic == ZIP_MAGIC)
+				return new DecompressingChannel( new BufferedInputStream( Channels.newInputStream( fileChannel), CHUNK_SIZE), true);
+		} catch( IOException e) {
+			fileChannel.close();
+			throw e;
+		}
+
+		return fileChannel;
+	}
+
+	/* Open the given file for reading from the given offset of its decompressed bytes, e.g. the offset of a game returned by the splitter.
+	 * An uncompressed file is positioned at the offset, while a compressed file is decompressed up to the offset and its bytes are skipped.
+	 */
+	public static ReadableByteChannel open( File inputFile, long offset) throws IOException
+	{
+		ReadableByteChannel channel = open( inputFile);
+
+		try {
+			if( channel instanceof FileChannel)
+				(( FileChannel) channel).position( offset);
+			else
+			{
+				ByteBuffer buffer = ByteBuffer.allocate( CHUNK_SIZE);
+				long remaining = offset;
+				while( remaining > 0)
+				{
+					buffer.clear();
+					buffer.limit( (int) Math.min( buffer.capacity(), remaining));
+					int count = channel.read( buffer);
+					if( count < 0)
+						break;
+					remaining -= count;
+				}
+			}
+		} catch( IOException e) {
+			channel.close();
+			throw e;
+		}
+
+		return channel;
+	}
+
+	/* Return a channel reading the given input stream. If the stream is compressed with gzip or zip, the returned channel reads its decompressed bytes.
+	 * The stream is closed when the channel is closed.
+	 */
+	public static ReadableByteChannel open( InputStream inputStream) throws IOException
+	{
+		BufferedInputStream bufferedStream = new BufferedInputStream( inputStream, CHUNK_SIZE);
+
+		try {
+			// Peek at the first two bytes
+			bufferedStream.mark( 2);
+			int magic = ( bufferedStream.read() << 8) | bufferedStream.read();
+			bufferedStream.reset();
+
+			if( magic == GZIP_MAGIC)
+				return new DecompressingChannel( bufferedStream, false);
+			else if( magic == ZIP_MAGIC)
+				return new DecompressingChannel( bufferedStream, true);
+		} catch( IOException e) {
+			bufferedStream.close();
+			throw e;
+		}
+
+		return Channels.newChannel( bufferedStream);
+	}
+
+	/* Decompress the input into chunks, until it ends or the channel is closed. The entries of a zip archive are separated by a newline,
+	 * so that the last line of an entry and the first line of the next entry don't join.
+	 */
+	private void decompress( boolean zip)
+	{
+		try {
+			try {
+				if( zip)
+				{
+					ZipInputStream zipStream = (ZipInputStream) inputStream;
+					ZipEntry entry;
+					while(( entry = zipStream.getNextEntry()) != null)
+					{
+						if( !entry.isDirectory())
+						{
+							copyChunks();
+							chunks.put( new byte[] { '\n'});
+						}
+					}
+				}
+				else
+					copyChunks();
+			} catch( IOException e) {
+				decompressionException = e;
+			}
+
+			chunks.put( END);
+		} catch( InterruptedException e) {} // The channel is closed
+	}
+
+	// Read the current input into chunks, and put them into the queue.
+	private void copyChunks() throws IOException, InterruptedException
+	{
+		while( true)
+		{
+			byte[] bytes = new byte[ CHUNK_SIZE];
+			int length = 0;
+			int count;
+			while( length < bytes.length && ( count = inputStream.read( bytes, length, bytes.length - length)) != -1)
+				length += count;
+
+			if( length > 0)
+				chunks.put( length == bytes.length ? bytes : Arrays.copyOf( bytes, length));
+
+			if( length < bytes.length)
+				return;
+		}
+	}
+
+	// Read decompressed bytes into the given buffer, waiting for the decompressor if it's behind. Return -1 at the end of the input.
+	@Override
+	public int read( ByteBuffer buffer) throws IOException
+	{
+		if( !open)
+			throw new ClosedChannelException();
+
+		if( chunk == null)
+			return -1;
+
+		while( !chunk.hasRemaining())
+		{
+			byte[] bytes;
+			try {
+				bytes = chunks.take();
+			} catch( InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException( "Interrupted while waiting for decompression");
+			}
+
+			if( bytes == END)
+			{
+				chunk = null;
+				if( decompressionException != null)
+					throw decompressionException;
+				return -1;
+			}
+
+			chunk = ByteBuffer.wrap( bytes);
+		}
+
+		int count = Math.min( buffer.remaining(), chunk.remaining());
+		buffer.put( chunk.array(), chunk.position(), count);
+		chunk.position( chunk.position() + count);
+		return count;
+	}
+
+	@Override
+	public boolean isOpen()
+	{
+		return open;
+	}
+
+	// Stop the decompressor and close the input stream.
+	@Override
+	public void close() throws IOException
+	{
+		if( open)
+		{
+			open = false;
+			decompressor.interrupt();
+			inputStream.close();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * A game whose tags are parsed when it's created, and whose movetext is kept as raw bytes until its moves are first accessed.
+ * Listing the games of a large database only costs parsing their tag sections, and the memory of their movetext bytes.
+ * The movetext is parsed once, the first time the moves, the result or the variations of the game are needed, and its bytes are dropped then.
+ */
+
+package chessreplayer.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Map;
+
+import chessreplayer.model.Game;
+import chessreplayer.move.IllegalPromotionException;
+import chessreplayer.move.InvalidMoveException;
+
+public class LazyGame extends Game
+{
+	private byte[] movetext; // Raw bytes of the movetext, until it's parsed
+	private PortableGameNotationException movetextException;
+
+	// Create a game with the given tags, and the given raw movetext bytes to be parsed when they're needed.
+	public LazyGame( Map<String,String> tagMap, byte[] movetext)
+	{
+		super( tagMap);
+		this.movetext = movetext;
+	}
+
+	// Parse the movetext now, if it's not parsed yet. Throws the exception of the parse if the movetext isn't syntactically correct.
+	public void parseMovetext() throws PortableGameNotationException
+	{
+		getMoveCount(); // The movetext is parsed on the first access to the moves
+		if( movetextException != null)
+			throw movetextException;
+	}
+
+	// Return the exception of the parse if the movetext couldn't be parsed, or null
+	public PortableGameNotationException getMovetextException()
+	{
+		return movetextException;
+	}
+
+	@Override
+	protected void loadMovetext()
+	{
+		try {
+			setMovetext( new PortableGameNotationParser().parse( Channels.newChannel( new ByteArrayInputStream( movetext))));
+		} catch( PortableGameNotationException e) {
+			movetextException = e;
+		} catch( IOException e) { // Should never happen, bytes in memory are read
+			movetextException = new PortableGameNotationException( e.getMessage());
+		}
+
+		movetext = null;
+	}
+
+	// A game whose movetext cannot be parsed has no valid moves, so its validation fails with the reason of the parse.
+	@Override
+	public synchronized int validateMoves( int count) throws InvalidMoveException, IllegalPromotionException
+	{
+		int validatedMoveCount = super.validateMoves( count);
+		if( movetextException != null)
+			throw new InvalidMoveException( movetextException.getMessage());
+
+		return validatedMoveCount;
+	}
+}
@@ -1,15 +1,19 @@
 /**
- * An interface declaring the methods every parser should have. It has only one method, which parses the given input file and returns a game object.
+ * An interface declaring the methods every parser should have. They parse the given input file, input stream or channel, and return a game object.
  */
 
 package chessreplayer.parser;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
 
 import chessreplayer.model.Game;
 
 public interface Parser
 {
 	public Game parse( File inputFile) throws PortableGameNotationException, IOException;
+	public Game parse( InputStream inputStream) throws PortableGameNotationException, IOException;
+	public Game parse( ReadableByteChannel channel) throws PortableGameNotationException, IOException;
 }
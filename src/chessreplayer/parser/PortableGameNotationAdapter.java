@@ -0,0 +1,20 @@
+/**
+ * An abstract adapter class for receiving PGN parser events. Its methods are empty, so a listener that only needs some of the events, 
+ * e.g. only the tags, can extend this class and override only the methods it needs.
+ */
+
+package chessreplayer.parser;
+
+import chessreplayer.piece.Color;
+
+public abstract class PortableGameNotationAdapter implements PortableGameNotationListener
+{
+	public void onTag( String tagName, String tagValue) {}
+	public void onMove( String moveText, int turnIndex, Color playerSide) {}
+	public void onNumericAnnotationGlyph( String numericAnnotationGlyph) {}
+	public void onComment( String comment) {}
+	public void onVariationStart() {}
+	public void onVariationEnd() {}
+	public void onResult( String result) {}
+	public void onGameEnd() {}
+}
@@ -8,8 +8,11 @@ public class PortableGameNotationException extends Exception
 {
 	private static final long serialVersionUID = 307553191195476544L;
 
+	/* The exception describes invalid input, so its stack trace isn't needed. It's not filled in, which makes the exception cheap to create 
+	 * when many invalid games are imported.
+	 */
 	public PortableGameNotationException( String message)
 	{
-		super( message);
+		super( message, null, false, false);
 	}
 }
@@ -0,0 +1,21 @@
+/**
+ * An interface declaring the callbacks of an event driven PGN parser. The parser calls them while it reads the input, in the order of the input, 
+ * without building a parse tree or a game. Texts are passed as they are in the input, e.g. a tag value with its quotes and a comment with its braces, 
+ * the same as in a parsed game.
+ */
+
+package chessreplayer.parser;
+
+import chessreplayer.piece.Color;
+
+public interface PortableGameNotationListener
+{
+	public void onTag( String tagName, String tagValue);
+	public void onMove( String moveText, int turnIndex, Color playerSide); // A move of the main line or of the current recursive variation
+	public void onNumericAnnotationGlyph( String numericAnnotationGlyph);
+	public void onComment( String comment);
+	public void onVariationStart(); // The moves until the variation ends are an alternative to the last move
+	public void onVariationEnd();
+	public void onResult( String result);
+	public void onGameEnd();
+}
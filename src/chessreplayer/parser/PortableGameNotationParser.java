@@ -39,20 +39,25 @@
 
 package chessreplayer.parser;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import chessreplayer.model.Game;
 import chessreplayer.model.Game.Result;
+import chessreplayer.model.Variation;
 import chessreplayer.move.CastlingMove;
 import chessreplayer.move.Move;
 import chessreplayer.move.PromotionMove;
@@ -97,6 +102,10 @@ public class PortableGameNotationParser implements Parser
 	private static final char CH_SLASH = '/';
 	private static final char CH_NEWLINE = '\n';
 	private static final char CH_CARRIAGE_RETURN = '\r';
+	private static final char CH_FIRST_PRINTABLE = ' ';
+	private static final char CH_LAST_PRINTABLE = '~';
+	
+	private static final int BUFFER_SIZE = 64 * 1024; // Bytes read from the input at a time
 	
 	// Define the regex strings as static final, to avoid using literals inside the code.
 	private static final String KINGSIDE_CASTLING = "O-O";
@@ -111,9 +120,9 @@ public class PortableGameNotationParser implements Parser
 	
 	private static final String GAME_TERMINATION_REGEX = GAME_TERMINATION_WHITE_WINS_REGEX + "|" + GAME_TERMINATION_BLACK_WINS_REGEX + "|" + 
 															GAME_TERMINATION_DRAW_REGEX + "|" + GAME_TERMINATION_UNKNOWN_REGEX;
+	private static final Pattern GAME_TERMINATION_PATTERN = Pattern.compile( GAME_TERMINATION_REGEX); // Matched against every token
 	private static final String CHECKING_REGEX = "[\\+#]{1}";
 	private static final String NAG_REGEX = "[!\\?]{1,2}";
-	private static final String PRINTABLE_REGEX = "\\p{Print}";
 	
 	/* Define the regex for a Standard Algebraic Notation move, and compile it into a pattern.
 	 * 
@@ -145,20 +154,57 @@ public class PortableGameNotationParser implements Parser
 									QUEENSIDE_CASTLING + "))[\\+#]?[!\\?]{0,2}";
 	private Pattern sanPattern = Pattern.compile( SAN_REGEX);
 	
-	/* Parse the given input file and return a game object. If there is a problem while reading the file, throw an IO exception. 
+	// Receives the tokens of the input one by one, in the order of the input, as soon as the tokenizer finds them.
+	public interface TokenHandler
+	{
+		public void handleToken( NodeType nodeType, String text) throws PortableGameNotationException;
+	}
+	
+	/* Parse the given input file, which may be compressed with gzip or zip, and return a game object. If there is a problem while reading the file, throw an IO exception. 
 	 * If the input file isn't syntactically correct according to portable game notation, throw a portable game notation exception.
 	 */
 	@Override
 	public Game parse( File inputFile) throws PortableGameNotationException, IOException
+	{
+		// Get the leaf nodes by tokenizing the input file
+		return parse( this.tokenize( inputFile));
+	}
+	
+	/* Parse the game read from the given input stream, which may be compressed with gzip or zip, and return a game object. 
+	 * The stream is read to its end, and closed.
+	 */
+	@Override
+	public Game parse( InputStream inputStream) throws PortableGameNotationException, IOException
+	{
+		ReadableByteChannel channel = DecompressingChannel.open( inputStream);
+		try {
+			return parse( channel);
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {} // Nothing to do here
+		}
+	}
+	
+	/* Parse the game read from the given channel, e.g. a game split from a file holding several games, and return a game object. 
+	 * The channel is read to its end, but it's not closed. Its bytes are parsed as they are, they are not decompressed.
+	 */
+	@Override
+	public Game parse( ReadableByteChannel channel) throws PortableGameNotationException, IOException
+	{
+		return parse( this.tokenize( channel));
+	}
+	
+	// Build the parse tree from the given leaf nodes, and create a game from it.
+	private Game parse( ArrayList<LeafNode> tokens) throws PortableGameNotationException
 	{
 		Game game = null;
 		ArrayList<Move> moveList = null;
 		HashMap<String,String> tagMap = null;
 		ArrayList<String> trailingCommentsList = null;
+		ArrayList<Variation> variationList = null;
 		String result = null;
 		
-		// Get the leaf nodes by tokenizing the input file
-		ArrayList<LeafNode> tokens = this.tokenize( inputFile);
 		ArrayList<Node> nodes = new ArrayList<Node>();
 		
 		for( LeafNode t : tokens)
@@ -170,6 +216,7 @@ public class PortableGameNotationParser implements Parser
 		// Generate/extract different game elements from the parse tree.
 		tagMap = generateTagMap( root);
 		moveList = generateMoveList( root);
+		variationList = generateVariationList( root);
 		result = extractResult( root);
 		trailingCommentsList = extractTrailingCommentsList( root);
 		
@@ -182,177 +229,285 @@ public class PortableGameNotationParser implements Parser
 			gameResult = Result.DRAW;
 		
 		// Using the elements generated/extracted fro mthe parse tree, create and return a game.
-		game = new Game( moveList, tagMap, gameResult, trailingCommentsList);
+		game = new Game( moveList, tagMap, gameResult, trailingCommentsList, variationList);
 		return game;
 	}
 	
+	/* Parse the games in the given input file, and pass their elements to the given listener as they are read, without building a parse tree 
+	 * or a game. Unlike parse( File), the file may hold any number of games. Moves are checked against the SAN syntax, but they aren't validated.
+	 */
+	public void parse( File inputFile, PortableGameNotationListener listener) throws PortableGameNotationException, IOException
+	{
+		ReadableByteChannel channel = DecompressingChannel.open( inputFile);
+		try {
+			parse( channel, listener);
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {} // Nothing to do here
+		}
+	}
+	
+	// Parse the games read from the given channel, and pass their elements to the given listener as they are read.
+	public void parse( ReadableByteChannel channel, PortableGameNotationListener listener) throws PortableGameNotationException, IOException
+	{
+		ListenerTokenHandler handler = new ListenerTokenHandler( listener);
+		tokenize( channel, handler);
+		handler.endInput();
+	}
+	
+	/* Parse the tags of the given game, e.g. a game split from a database, and return a game holding the rest of the bytes as its raw movetext.
+	 * The movetext is parsed when the moves of the game are first accessed.
+	 */
+	public LazyGame parseLazily( byte[] gameBytes) throws PortableGameNotationException, IOException
+	{
+		int movetextStart = findMovetextStart( gameBytes);
+		final HashMap<String,String> tagMap = new LinkedHashMap<String,String>();
+		
+		parse( Channels.newChannel( new ByteArrayInputStream( gameBytes, 0, movetextStart)), new PortableGameNotationAdapter()
+			{
+				@Override
+				public void onTag( String tagName, String tagValue)
+				{
+					tagMap.put( tagName, tagValue);
+				}
+			}
+		);
+		
+		return new LazyGame( tagMap, Arrays.copyOfRange( gameBytes, movetextStart, gameBytes.length));
+	}
+	
+	/* Split the given input file, which may hold any number of games and may be compressed with gzip or zip, into games, and parse only 
+	 * their tags. Return the games in the order of the file, each parsing its movetext when its moves are first accessed.
+	 */
+	public ArrayList<LazyGame> parseLazily( File inputFile) throws PortableGameNotationException, IOException
+	{
+		ReadableByteChannel channel = DecompressingChannel.open( inputFile);
+		try {
+			PortableGameNotationSplitter splitter = new PortableGameNotationSplitter( channel);
+			ArrayList<LazyGame> games = new ArrayList<LazyGame>();
+			byte[] gameBytes;
+			while(( gameBytes = splitter.nextGame()) != null)
+				games.add( parseLazily( gameBytes));
+			
+			return games;
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {} // Nothing to do here
+		}
+	}
+	
+	// Return the index of the first byte of the movetext of the given game, i.e. the first byte that isn't whitespace or a part of a tag pair.
+	private static int findMovetextStart( byte[] gameBytes)
+	{
+		boolean tagPair = false;
+		boolean string = false; // Inside the tag value of a tag pair
+		int index;
+		for( index = 0; index < gameBytes.length; index++)
+		{
+			byte ch = gameBytes[index];
+			if( string)
+			{
+				if( ch == CH_BACKSLASH)
+					index++; // Skip the escaped character
+				else if( ch == CH_QUOTE)
+					string = false;
+			}
+			else if( tagPair)
+			{
+				if( ch == CH_QUOTE)
+					string = true;
+				else if( ch == CH_RIGHT_BRACKET)
+					tagPair = false;
+			}
+			else if( ch == CH_LEFT_BRACKET)
+				tagPair = true;
+			else if( ch > CH_FIRST_PRINTABLE) // Not whitespace
+				break;
+		}
+		
+		return Math.min( index, gameBytes.length);
+	}
+	
 	// Tokenize the input file into leaf nodes by using a finite state machine (FSM) to parse the input file.
 	public ArrayList<LeafNode> tokenize( File inputFile) throws PortableGameNotationException, IOException
 	{
-		ArrayList<LeafNode> nodeList = new ArrayList<LeafNode>();
-		
-		// Create a buffered reader to read the input file
-		FileInputStream fis = null;
-		InputStreamReader isr = null;
-		BufferedReader br = null;
+		ReadableByteChannel channel = DecompressingChannel.open( inputFile);
 		try {
-			fis = new FileInputStream( inputFile);
-			isr = new InputStreamReader( fis, Charset.forName( "ISO-8859-1"));
-			br = new BufferedReader( isr);
-		} catch( FileNotFoundException e) {
-			throw e;
+			return tokenize( channel);
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {} // Nothing to do here
 		}
+	}
+	
+	// Tokenize the input read from the given channel into leaf nodes.
+	public ArrayList<LeafNode> tokenize( ReadableByteChannel channel) throws PortableGameNotationException, IOException
+	{
+		final ArrayList<LeafNode> nodeList = new ArrayList<LeafNode>();
+		tokenize( channel, new TokenHandler()
+			{
+				public void handleToken( NodeType nodeType, String text)
+				{
+					nodeList.add( new LeafNode( nodeType, text));
+				}
+			}
+		);
+		
+		return nodeList;
+	}
+	
+	/* Tokenize the input read from the given channel by using a finite state machine (FSM), and pass each token to the given token handler 
+	 * as soon as it ends. The input is read in chunks of bytes and scanned byte by byte. PGN is encoded in ISO-8859-1, which maps each byte 
+	 * to the character with the same value, so bytes are collected into the token as they are, and decoded only when the token ends.
+	 */
+	public void tokenize( ReadableByteChannel channel, TokenHandler tokenHandler) throws PortableGameNotationException, IOException
+	{
+		LastTokenHandler handler = new LastTokenHandler( tokenHandler);
+		ByteBuffer buffer = ByteBuffer.allocate( BUFFER_SIZE);
+		byte[] bytes = buffer.array();
+		TokenBuffer token = new TokenBuffer();
 		
 		ParserState parserStatus = ParserState.INITIALIZING; // Set the initial state of FSM to initializing
-		String token = null;
-		int i;
+		int position, limit;
 		char ch;
 		boolean continueWithCurrentChar;
-		try {
-			i = br.read();
-			while( i != -1) // While there are more characters to read, read them
+		while( channel.read( buffer) != -1) // While there are more bytes to read, read them
+		{
+			limit = buffer.position();
+			position = 0;
+			while( position < limit)
 			{
-				ch = (char) i;
+				ch = (char)( bytes[position] & 0xFF);
 				continueWithCurrentChar = false;
 	
-				if( ParserState.INITIALIZING.equals( parserStatus)) // If FSM state is initializing
+				if( ParserState.INITIALIZING == parserStatus) // If FSM state is initializing
 				{
 					/* A dot forms a one-character token. Create a leaf node and add it to the list. 
 					 * FSM state is still initializing, as we're expecting a new token to start.
 					 */
 					if( ch == CH_DOT)
 					{
-						nodeList.add( new LeafNode( NodeType.PERIOD, Character.toString( ch)));
+						handler.handleToken( NodeType.PERIOD, Character.toString( ch));
 					}
 					/* An asterisk forms a one-character token. Create a leaf node and add it to the list. 
 					 * FSM state is still initializing, as we're expecting a new token to start.
 					 */
 					else if( ch == CH_ASTERISK)
 					{
-						nodeList.add( new LeafNode( NodeType.ASTERISK, Character.toString( ch)));
+						handler.handleToken( NodeType.ASTERISK, Character.toString( ch));
 					}
 					/* A left bracket forms a one-character token. Create a leaf node and add it to the list. 
 					 * FSM state is still initializing, as we're expecting a new token to start.
 					 */
 					else if( ch == CH_LEFT_BRACKET)
 					{
-						nodeList.add( new LeafNode( NodeType.LEFT_BRACKET, Character.toString( ch)));
+						handler.handleToken( NodeType.LEFT_BRACKET, Character.toString( ch));
 					}
 					/* An right bracket forms a one-character token. Create a leaf node and add it to the list. 
 					 * FSM state is still initializing, as we're expecting a new token to start.
 					 */
 					else if( ch == CH_RIGHT_BRACKET)
 					{
-						nodeList.add( new LeafNode( NodeType.RIGHT_BRACKET, Character.toString( ch)));
+						handler.handleToken( NodeType.RIGHT_BRACKET, Character.toString( ch));
 					}
 					/* An left parenthesis forms a one-character token. Create a leaf node and add it to the list. 
 					 * FSM state is still initializing, as we're expecting a new token to start.
 					 */
 					else if( ch == CH_LEFT_PARENTHESIS)
 					{
-						nodeList.add( new LeafNode( NodeType.LEFT_PARENTHESIS, Character.toString( ch)));
+						handler.handleToken( NodeType.LEFT_PARENTHESIS, Character.toString( ch));
 					}
 					/* An right parenthesis forms a one-character token. Create a leaf node and add it to the list. 
 					 * FSM state is still initializing, as we're expecting a new token to start.
 					 */
 					else if( ch == CH_RIGHT_PARENTHESIS)
 					{
-						nodeList.add( new LeafNode( NodeType.RIGHT_PARENTHESIS, Character.toString( ch)));
+						handler.handleToken( NodeType.RIGHT_PARENTHESIS, Character.toString( ch));
 					}
 					/* An left chevron forms a one-character token. Create a leaf node and add it to the list. 
 					 * FSM state is still initializing, as we're expecting a new token to start.
 					 */
 					else if( ch == CH_LEFT_CHEVRON)
 					{
-						nodeList.add( new LeafNode( NodeType.LEFT_CHEVRON, Character.toString( ch)));
+						handler.handleToken( NodeType.LEFT_CHEVRON, Character.toString( ch));
 					}
 					/* A right chevron forms a one-character token. Create a leaf node and add it to the list. 
 					 * FSM state is still initializing, as we're expecting a new token to start.
 					 */
 					else if( ch == CH_RIGHT_CHEVRON)
 					{
-						nodeList.add( new LeafNode( NodeType.RIGHT_CHEVRON, Character.toString( ch)));
+						handler.handleToken( NodeType.RIGHT_CHEVRON, Character.toString( ch));
 					}
 					// A quote starts a string token. Create a token from the quote and set FSM state to string token.
 					else if( ch == CH_QUOTE)
 					{
-						token = Character.toString( ch);
+						token.append( ch);
 						parserStatus = ParserState.STRING_TOKEN;
 					}
 					// A dollar sign starts a NAG (numeric annotation glyph). Create a token from the dollar sign and set FSM state to NAG.
 					else if( ch == CH_DOLLAR_SIGN)
 					{
-						token = Character.toString( ch);
+						token.append( ch);
 						parserStatus = ParserState.NAG;
 					}
 					// A left brace starts a brace comment. Create a token from the left brace and set FSM state to brace comment.
 					else if( ch == CH_LEFT_BRACE)
 					{
-						token = Character.toString( ch);
+						token.append( ch);
 						parserStatus = ParserState.BRACE_COMMENT;
 					}
 					// A semicolon starts a rest of line comment. Create a token from the semicolon and set FSM state to rest of line comment.
 					else if( ch == CH_SEMICOLON)
 					{
-						token = Character.toString( ch);
+						token.append( ch);
 						parserStatus = ParserState.REST_OF_LINE_COMMENT;
 					}
 					// A digit starts an integer token. Create a token from the digit and set FSM state to integer token.
 					else if( Character.isDigit( ch))
 					{
-						token = Character.toString( ch);
+						token.append( ch);
 						parserStatus = ParserState.INTEGER_TOKEN;
 					}
 					// A letter starts a symbol token. Create a token from the letter and set FSM state to symbol token.
 					else if( Character.isLetter( ch))
 					{
-						token = Character.toString( ch);
+						token.append( ch);
 						parserStatus = ParserState.SYMBOL_TOKEN;
 					}
 					else if( !Character.isWhitespace( ch)) // If Character.isWhitespace( ch), do nothing
 					{
-						try {
-							br.close();
-							
-							if( nodeList.isEmpty())
-								throw new PortableGameNotationException( "Invalid token at the beginning of the file");
-							else
-								throw new PortableGameNotationException( "Invalid token after " + nodeList.get( nodeList.size()-1).getText());
-						} catch (IOException e) {} // Nothing to do here
-						
-						try {
-							br.close();
-						} catch (IOException e) {} // Nothing to do here
+						throw handler.createInvalidTokenException();
 					}
 				}
-				else if( ParserState.STRING_TOKEN.equals( parserStatus)) // If FSM state is string token
+				else if( ParserState.STRING_TOKEN == parserStatus) // If FSM state is string token
 				{
 					/* A quote that's not escaped using a backslash ends a string token. Create a leaf node from the string token and add it to the list. 
 					 * Set FSM state to initializing, as we're expecting a new token to start.
 					 */
 					if( ch == CH_QUOTE && token.charAt( token.length()-1) != CH_BACKSLASH)
 					{
-						nodeList.add( new LeafNode( NodeType.STRING_TOKEN, token + ch));
-						token = null;
+						token.append( ch);
+						handler.handleToken( NodeType.STRING_TOKEN, token.toString());
+						token.clear();
 						parserStatus = ParserState.INITIALIZING;
 					}
 					// Extend the string token by appending the printable character. FSM state is still string token.
-					else if( Pattern.matches( PRINTABLE_REGEX, Character.toString( ch)))
-						token += ch;
+					else if( ch >= CH_FIRST_PRINTABLE && ch <= CH_LAST_PRINTABLE)
+						token.append( ch);
 					// Non-printing characters are not permitted inside of strings. Throw a portable game notation exception.
 					else // if( ch is a non printing character)
 					{
-						if( nodeList.isEmpty())
-							throw new PortableGameNotationException( "Invalid token at the beginning of the file");
-						else
-							throw new PortableGameNotationException( "Invalid token after " + nodeList.get( nodeList.size()-1).getText());
+						throw handler.createInvalidTokenException();
 					}
 				}
-				else if( ParserState.INTEGER_TOKEN.equals( parserStatus)) // If FSM state is integer token
+				else if( ParserState.INTEGER_TOKEN == parserStatus) // If FSM state is integer token
 				{
 					// Extend the integer token by appending the digit. FSM state is still integer token.
 					if( Character.isDigit( ch))
-						token += ch;
+						token.append( ch);
 					/* If faced with a non-digit symbol continuation character, set FSM state to symbol token and 
 					 * extend the symbol token by appending the non-digit symbol continuation character.
 					 */
@@ -360,7 +515,7 @@ public class PortableGameNotationParser implements Parser
 							ch == CH_COLON || ch == CH_DASH || ch == CH_SLASH || Character.isLetterOrDigit( ch))
 					{
 						parserStatus = ParserState.SYMBOL_TOKEN;
-						token += ch;
+						token.append( ch);
 					}
 					/* An integer token is terminated just prior to the first non-symbol character following the integer digit sequence. 
 					 * Create a leaf node from the integer token and add it to the list. Set FSM state to initializing, as we're expecting a new token to start. 
@@ -368,19 +523,19 @@ public class PortableGameNotationParser implements Parser
 					 */
 					else
 					{
-						nodeList.add( new LeafNode( NodeType.INTEGER_TOKEN, token));
-						token = null;
+						handler.handleToken( NodeType.INTEGER_TOKEN, token.toString());
+						token.clear();
 						parserStatus = ParserState.INITIALIZING;
 						continueWithCurrentChar = true;
 					}
 				}
-				else if( ParserState.SYMBOL_TOKEN.equals( parserStatus)) // If FSM state is symbol token
+				else if( ParserState.SYMBOL_TOKEN == parserStatus) // If FSM state is symbol token
 				{
 					// Extend the symbol token by appending the symbol continuation character. FSM state is still symbol token.
 					if( ch == CH_UNDERSCORE || ch == CH_PLUS || ch == CH_HASH || ch == CH_EQUAL_SIGN || 
 						ch == CH_COLON || ch == CH_DASH || ch == CH_SLASH || Character.isLetterOrDigit( ch))
 					{
-						token += ch;
+						token.append( ch);
 					}
 					/* A symbol token is terminated just prior to the first non-symbol character following the symbol character sequence. 
 					 * Create a leaf node from the symbol token and add it to the list. Set FSM state to initializing, as we're expecting a new token to start. 
@@ -388,114 +543,351 @@ public class PortableGameNotationParser implements Parser
 					 */
 					else
 					{
-						nodeList.add( new LeafNode( NodeType.SYMBOL_TOKEN, token));
-						token = null;
+						handler.handleToken( NodeType.SYMBOL_TOKEN, token.toString());
+						token.clear();
 						parserStatus = ParserState.INITIALIZING;
 						continueWithCurrentChar = true;
 					}
 				}
-				else if( ParserState.NAG.equals( parserStatus)) // If FSM state is NAG
+				else if( ParserState.NAG == parserStatus) // If FSM state is NAG
 				{
 					// Extend the NAG by appending the digit. FSM state is still NAG.
 					if( Character.isDigit( ch))
-						token += ch;
+						token.append( ch);
 					/* A NAG is terminated just prior to the first non-digit character following the digit sequence. 
 					 * Create a leaf node from the NAG and add it to the list. Set FSM state to initializing, as we're expecting a new token to start. 
 					 * As the non-digit character isn't part of the NAG, continue with the current character.
 					 */
 					else
 					{
-						nodeList.add( new LeafNode( NodeType.NAG, token));
-						token = null;
+						handler.handleToken( NodeType.NAG, token.toString());
+						token.clear();
 						parserStatus = ParserState.INITIALIZING;
 						continueWithCurrentChar = true;
 					}
 				}
-				else if( ParserState.BRACE_COMMENT.equals( parserStatus)) // If FSM state is brace comment
+				else if( ParserState.BRACE_COMMENT == parserStatus) // If FSM state is brace comment
 				{
 					/* A right brace ends a brace comment. Create a leaf node from the brace comment and add it to the list. 
 					 * Set FSM state to initializing, as we're expecting a new token to start.
 					 */
 					if( ch == CH_RIGHT_BRACE)
 					{
-						nodeList.add( new LeafNode( NodeType.BRACE_COMMENT, token + ch));
-						token = null;
+						token.append( ch);
+						handler.handleToken( NodeType.BRACE_COMMENT, token.toString());
+						token.clear();
 						parserStatus = ParserState.INITIALIZING;
 					}
 					// Extend the brace comment by appending the character. FSM state is still brace comment.
 					else
-						token += ch;
+						token.append( ch);
 				}
-				else if( ParserState.REST_OF_LINE_COMMENT.equals( parserStatus)) // If FSM state is rest of line comment
+				else if( ParserState.REST_OF_LINE_COMMENT == parserStatus) // If FSM state is rest of line comment
 				{
 					/* A newline character ends a rest of line comment. Create a leaf node from the rest of line comment and add it to the list. 
 					 * Set FSM state to initializing, as we're expecting a new token to start.
 					 */
 					if( ch == CH_NEWLINE)
 					{
-						nodeList.add( new LeafNode( NodeType.REST_OF_LINE_COMMENT, token));
-						token = null;
+						handler.handleToken( NodeType.REST_OF_LINE_COMMENT, token.toString());
+						token.clear();
 						parserStatus = ParserState.INITIALIZING;
 					}
 					/* Extend the rest of line comment by appending the character, unless it's a carriage return character, which is used together with 
 					 * a newline character in some systems, to denote a new line. FSM state is still rest of line comment.
 					 */
 					else if( ch != CH_CARRIAGE_RETURN)
-						token += ch;
+						token.append( ch);
 				}
 				
-				// Read a new character, if we're not continuing with the current one
+				// Move to the next character, if we're not continuing with the current one
 				if( !continueWithCurrentChar)
-					i = br.read();
+					position++;
 			}
-			
-			// Handle last token of the file. The file may end while a token is still going.
-			if( i == -1)
+			buffer.clear();
+		}
+		
+		// Handle last token of the file. The file may end while a token is still going.
+		/* String tokens and brace comments have explicit ending characters. Therefore, if the file ends while 
+		 * a string token or brace comment is still going, throw a portable game notation exception.
+		 */
+		if( ParserState.STRING_TOKEN == parserStatus || ParserState.BRACE_COMMENT == parserStatus)
+		{
+			throw handler.createInvalidTokenException();
+		}
+		/* If the file ends while an integer token, a symbol token, a NAG or a rest of line comment is still going, 
+		 * create a leaf node from the token and add it to the list.
+		 */
+		else if( ParserState.INTEGER_TOKEN == parserStatus)
+			handler.handleToken( NodeType.INTEGER_TOKEN, token.toString());
+		else if( ParserState.SYMBOL_TOKEN == parserStatus)
+			handler.handleToken( NodeType.SYMBOL_TOKEN, token.toString());
+		else if( ParserState.NAG == parserStatus)
+			handler.handleToken( NodeType.NAG, token.toString());
+		else if( ParserState.REST_OF_LINE_COMMENT == parserStatus)
+			handler.handleToken( NodeType.REST_OF_LINE_COMMENT, token.toString());
+		// if( ParserState.INITIALIZING == parserStatus), do nothing
+	}
+	
+	// Passes tokens on to another token handler, and keeps the text of the last token for error messages.
+	private static class LastTokenHandler implements TokenHandler
+	{
+		private final TokenHandler handler;
+		private String lastTokenText;
+		
+		public LastTokenHandler( TokenHandler handler)
+		{
+			this.handler = handler;
+		}
+		
+		public void handleToken( NodeType nodeType, String text) throws PortableGameNotationException
+		{
+			lastTokenText = text;
+			handler.handleToken( nodeType, text);
+		}
+		
+		// Create an exception for an invalid token following the last token
+		public PortableGameNotationException createInvalidTokenException()
+		{
+			if( lastTokenText == null)
+				return new PortableGameNotationException( "Invalid token at the beginning of the file");
+			else
+				return new PortableGameNotationException( "Invalid token after " + lastTokenText);
+		}
+	}
+	
+	/* Turns the tokens of the input into the events of a listener. Tags are passed when their right bracket is read, moves when they are read. 
+	 * The turn index and the player side of a move follow from the moves before it, and are reset by a move number indication, as in "12..." 
+	 * for a move of the black side. A recursive variation replaces the last move, so it starts from the turn of the last move, which is 
+	 * continued after the variation ends. A game ends at the first tag or move after its game termination, so the comments following the 
+	 * game termination are passed before the end of the game.
+	 */
+	private class ListenerTokenHandler implements TokenHandler
+	{
+		private final PortableGameNotationListener listener;
+		private boolean gameStarted;
+		private boolean movetext; // If any movetext of the game is read
+		private boolean resultRead; // If the game termination is read; the game ends at the next tag or move, so comments after it belong to it
+		private int tagState; // Number of tag pair tokens read, from the left bracket to the tag value, or zero outside a tag pair
+		private String tagName;
+		private String tagValue;
+		private boolean moveNumber; // If the last token is a move number, or a period following it
+		private int periodCount;
+		private int turnIndex;
+		private Color playerSide;
+		private int lastTurnIndex; // Turn and side of the last move, from which a recursive variation starts
+		private Color lastPlayerSide;
+		private ArrayDeque<VariationStart> variations; // Open recursive variations, innermost first
+		
+		public ListenerTokenHandler( PortableGameNotationListener listener)
+		{
+			this.listener = listener;
+			this.variations = new ArrayDeque<VariationStart>();
+			startGame();
+		}
+		
+		public void handleToken( NodeType nodeType, String text) throws PortableGameNotationException
+		{
+			// Comments after the game termination belong to the game, any other token starts the next game
+			if( resultRead)
 			{
-				/* String tokens and brace comments have explicit ending characters. Therefore, if the file ends while 
-				 * a string token or brace comment is still going, throw a portable game notation exception.
-				 */
-				if( ParserState.STRING_TOKEN.equals( parserStatus) || ParserState.BRACE_COMMENT.equals( parserStatus))
+				if( NodeType.BRACE_COMMENT == nodeType || NodeType.REST_OF_LINE_COMMENT == nodeType)
 				{
-					try {
-						br.close();
-					} catch (IOException e) {} // Nothing to do here
-					
-					if( nodeList.isEmpty())
-						throw new PortableGameNotationException( "Invalid token at the beginning of the file");
-					else
-						throw new PortableGameNotationException( "Invalid token after " + nodeList.get( nodeList.size()-1).getText());
+					listener.onComment( text);
+					return;
 				}
-				/* If the file ends while an integer token, a symbol token, a NAG or a rest of line comment is still going, 
-				 * create a leaf node from the token and add it to the list.
-				 */
-				else if( ParserState.INTEGER_TOKEN.equals( parserStatus))
-					nodeList.add( new LeafNode( NodeType.INTEGER_TOKEN, token));
-				else if( ParserState.SYMBOL_TOKEN.equals( parserStatus))
-					nodeList.add( new LeafNode( NodeType.SYMBOL_TOKEN, token));
-				else if( ParserState.NAG.equals( parserStatus))
-					nodeList.add( new LeafNode( NodeType.NAG, token));
-				else if( ParserState.REST_OF_LINE_COMMENT.equals( parserStatus))
-					nodeList.add( new LeafNode( NodeType.REST_OF_LINE_COMMENT, token));
-				// if( ParserStatus.INITIALIZING.equals( parserStatus)), do nothing
+				endGame();
 			}
-		} catch (IOException e) {
-			try {
-				br.close();
-			} catch (IOException ioe) {} // Nothing to do here
-			throw e;
-		} catch (PortableGameNotationException e) {
-			try {
-				br.close();
-			} catch (IOException ioe) {} // Nothing to do here
-			throw e;
+			// A left bracket after the movetext starts the next game, even if the previous game has no game termination
+			else if( tagState == 0 && NodeType.LEFT_BRACKET == nodeType && movetext)
+				endGame();
+			
+			gameStarted = true;
+			boolean continuesMoveNumber = false;
+			
+			// Tag pair: [ <tag-name> <tag-value> ]
+			if( tagState > 0 || NodeType.LEFT_BRACKET == nodeType)
+			{
+				handleTagPairToken( nodeType, text);
+				return;
+			}
+			
+			movetext = true;
+			if( NodeType.INTEGER_TOKEN == nodeType)
+			{
+				try {
+					turnIndex = Integer.parseInt( text);
+				} catch( NumberFormatException e) {
+					throw new PortableGameNotationException( "Invalid move number " + text);
+				}
+				playerSide = Color.WHITE;
+				periodCount = 0;
+				continuesMoveNumber = true;
+			}
+			// A move number followed by three periods indicates a move of the black side
+			else if( NodeType.PERIOD == nodeType && moveNumber)
+			{
+				periodCount++;
+				if( periodCount > 1)
+					playerSide = Color.BLACK;
+				continuesMoveNumber = true;
+			}
+			else if( NodeType.ASTERISK == nodeType || 
+					( NodeType.SYMBOL_TOKEN == nodeType && GAME_TERMINATION_PATTERN.matcher( text).matches()))
+			{
+				listener.onResult( text);
+				resultRead = true;
+			}
+			else if( NodeType.SYMBOL_TOKEN == nodeType)
+			{
+				if( !sanPattern.matcher( text).matches())
+					throw new PortableGameNotationException( "Invalid move text " + text);
+				
+				listener.onMove( text, turnIndex, playerSide);
+				lastTurnIndex = turnIndex;
+				lastPlayerSide = playerSide;
+				if( Color.BLACK == playerSide)
+					turnIndex++;
+				playerSide = ( Color.WHITE == playerSide) ? Color.BLACK : Color.WHITE;
+			}
+			else if( NodeType.NAG == nodeType)
+				listener.onNumericAnnotationGlyph( text);
+			else if( NodeType.BRACE_COMMENT == nodeType || NodeType.REST_OF_LINE_COMMENT == nodeType)
+				listener.onComment( text);
+			else if( NodeType.LEFT_PARENTHESIS == nodeType)
+			{
+				variations.push( new VariationStart( turnIndex, playerSide, lastTurnIndex, lastPlayerSide));
+				turnIndex = lastTurnIndex;
+				playerSide = lastPlayerSide;
+				listener.onVariationStart();
+			}
+			else if( NodeType.RIGHT_PARENTHESIS == nodeType)
+			{
+				if( variations.isEmpty())
+					throw new PortableGameNotationException( "Right parenthesis without a recursive variation");
+				
+				VariationStart variation = variations.pop();
+				turnIndex = variation.turnIndex;
+				playerSide = variation.playerSide;
+				lastTurnIndex = variation.lastTurnIndex;
+				lastPlayerSide = variation.lastPlayerSide;
+				listener.onVariationEnd();
+			}
+			else if( NodeType.LEFT_CHEVRON != nodeType && NodeType.RIGHT_CHEVRON != nodeType) // Chevrons are reserved, they are ignored
+				throw new PortableGameNotationException( "Invalid token " + text);
+			
+			moveNumber = continuesMoveNumber;
 		}
 		
-		try {
-			br.close();
-		} catch (IOException e) {} // Nothing to do here
+		// Handle the given token of a tag pair, and pass the tag to the listener when the tag pair ends.
+		private void handleTagPairToken( NodeType nodeType, String text) throws PortableGameNotationException
+		{
+			if( tagState == 0 && NodeType.LEFT_BRACKET == nodeType)
+				tagState = 1;
+			else if( tagState == 1 && NodeType.SYMBOL_TOKEN == nodeType)
+			{
+				tagName = text;
+				tagState = 2;
+			}
+			else if( tagState == 2 && NodeType.STRING_TOKEN == nodeType)
+			{
+				tagValue = text;
+				tagState = 3;
+			}
+			else if( tagState == 3 && NodeType.RIGHT_BRACKET == nodeType)
+			{
+				listener.onTag( tagName, tagValue);
+				tagState = 0;
+			}
+			else
+				throw new PortableGameNotationException( "Invalid tag pair at " + text);
+		}
 		
-		return nodeList;
+		// End the input. If a game is still going, e.g. it has no game termination, end it.
+		public void endInput() throws PortableGameNotationException
+		{
+			if( tagState > 0)
+				throw new PortableGameNotationException( "Tag pair isn't complete at the end of the input");
+			
+			if( gameStarted)
+				endGame();
+		}
+		
+		private void endGame()
+		{
+			listener.onGameEnd();
+			startGame();
+		}
+		
+		private void startGame()
+		{
+			gameStarted = false;
+			movetext = false;
+			resultRead = false;
+			tagState = 0;
+			moveNumber = false;
+			turnIndex = 1;
+			playerSide = Color.WHITE;
+			lastTurnIndex = 1;
+			lastPlayerSide = Color.WHITE;
+			variations.clear();
+		}
+	}
+	
+	// The turn to continue with after a recursive variation ends, and the last move before the variation started.
+	private static class VariationStart
+	{
+		private final int turnIndex;
+		private final Color playerSide;
+		private final int lastTurnIndex;
+		private final Color lastPlayerSide;
+		
+		public VariationStart( int turnIndex, Color playerSide, int lastTurnIndex, Color lastPlayerSide)
+		{
+			this.turnIndex = turnIndex;
+			this.playerSide = playerSide;
+			this.lastTurnIndex = lastTurnIndex;
+			this.lastPlayerSide = lastPlayerSide;
+		}
+	}
+	
+	/* A growing buffer of the bytes of the current token, reused for every token. Each byte is an ISO-8859-1 character, 
+	 * so the token is decoded into a string only when it's complete.
+	 */
+	private static class TokenBuffer
+	{
+		private byte[] bytes = new byte[ 64];
+		private int length = 0;
+		
+		public void append( char ch)
+		{
+			if( length == bytes.length)
+				bytes = Arrays.copyOf( bytes, 2 * length);
+			
+			bytes[length] = (byte) ch;
+			length++;
+		}
+		
+		public int length()
+		{
+			return length;
+		}
+		
+		public char charAt( int index)
+		{
+			return (char)( bytes[index] & 0xFF);
+		}
+		
+		public void clear()
+		{
+			length = 0;
+		}
+		
+		@Override
+		public String toString()
+		{
+			return new String( bytes, 0, length, StandardCharsets.ISO_8859_1);
+		}
 	}
 	
 	// Bottom-up tree building
@@ -609,7 +1001,7 @@ public class PortableGameNotationParser implements Parser
 			node = nodeList.get( reverseIndex);
 			
 			// If it is found, set the game termination index and break the loop
-			if( Pattern.matches( GAME_TERMINATION_REGEX, node.getText()))
+			if( GAME_TERMINATION_PATTERN.matcher( node.getText()).matches())
 			{
 				gameTerminationIndex = reverseIndex;
 				break;
@@ -924,7 +1316,7 @@ public class PortableGameNotationParser implements Parser
 	// Find tags in the parse tree and generate a map containing tag name-value pairs.
 	public HashMap<String,String> generateTagMap( InternalNode root)
 	{
-		HashMap<String,String> tagMap = new HashMap<String,String>();
+		HashMap<String,String> tagMap = new LinkedHashMap<String,String>(); // Keeps the order of the input
 		
 		InternalNode tagSection = ((InternalNode)(root.getChildren( 0))); // As <PGN-game> ::= <tag-section> <movetext-section>, the first child of the root is the tag section
 		InternalNode tagPair = null;
@@ -1050,6 +1442,113 @@ public class PortableGameNotationParser implements Parser
 		return moveList;
 	}
 
+	/* Find recursive variation nodes in the parse tree and generate a list of variations of the main line, holding their nested variations.
+	 * A variation replaces the move preceding it. The moves of the variations are parsed here, but they are validated only when they are played.
+	 */
+	public ArrayList<Variation> generateVariationList( InternalNode root) throws PortableGameNotationException
+	{
+		ArrayList<Variation> variationList = new ArrayList<Variation>();
+		
+		// The element sequence is the first child of the move text section, which is the second child of the root
+		InternalNode elementSequence = ((InternalNode)(((InternalNode)(root.getChildren( 1))).getChildren( 0)));
+		int moveCount = 0;
+		
+		for( int i = 0; i < elementSequence.getDegree(); i++)
+		{
+			InternalNode fullTurn = ((InternalNode)(elementSequence.getChildren( i)));
+			for( int j = 0; j < fullTurn.getDegree(); j++)
+			{
+				Node node = fullTurn.getChildren( j);
+				if( NodeType.SAN_MOVE.equals( node.getNodeType()))
+					++moveCount;
+				else if( NodeType.RECURSIVE_VARIATION.equals( node.getNodeType()))
+				{
+					if( moveCount == 0)
+						throw new PortableGameNotationException( "Recursive variation before first move: " + node.getText());
+					
+					// The children of a recursive variation node are the tokens between its outermost parentheses, nested variations included
+					InternalNode recursiveVariation = (InternalNode) node;
+					variationList.add( buildVariation( recursiveVariation, 1, recursiveVariation.getDegree() - 1, moveCount - 1));
+				}
+			}
+		}
+		
+		return variationList;
+	}
+	
+	/* Build a variation replacing the move at the given index of its parent line from the children of the given recursive variation node
+	 * between the given start index and the given end index, which is the index of the right parenthesis closing the variation.
+	 */
+	private Variation buildVariation( InternalNode recursiveVariation, int start, int end, int branchIndex) throws PortableGameNotationException
+	{
+		ArrayList<Move> moveList = new ArrayList<Move>();
+		ArrayList<Variation> variationList = new ArrayList<Variation>();
+		ArrayList<String> leadingCommentList = new ArrayList<String>(); // Comments before the first move, e.g. the reason for the variation
+		Move move = null;
+		
+		for( int i = start; i < end; i++)
+		{
+			Node node = recursiveVariation.getChildren( i);
+			int moveIndex = branchIndex + moveList.size(); // Index of the next move in the line of the variation
+			
+			if( NodeType.SYMBOL_TOKEN.equals( node.getNodeType()))
+			{
+				if( !sanPattern.matcher( node.getText()).matches())
+					throw new PortableGameNotationException( "Syntax error on SAN move token " + node.getText() + " in recursive variation");
+				
+				move = parseMoveText( node.getText(), moveIndex/2 + 1, ( moveIndex % 2 == 0) ? Color.WHITE : Color.BLACK);
+				for( String comment : leadingCommentList)
+					move.addComment( comment);
+				leadingCommentList.clear();
+				moveList.add( move);
+			}
+			else if( NodeType.INTEGER_TOKEN.equals( node.getNodeType()))
+			{
+				if( !node.getText().equals( String.valueOf( moveIndex/2 + 1)))
+					throw new PortableGameNotationException( "Wrong move number " + node.getText() + " in recursive variation, it should be " + ( moveIndex/2 + 1));
+			}
+			else if( NodeType.NAG.equals( node.getNodeType()))
+			{
+				if( move == null)
+					throw new PortableGameNotationException( "NAG token before first move of recursive variation: " + node.getText());
+				
+				move.setNumericalAnnotationGlyph( node.getText());
+			}
+			else if( NodeType.BRACE_COMMENT.equals( node.getNodeType()) || NodeType.REST_OF_LINE_COMMENT.equals( node.getNodeType()))
+			{
+				if( move == null)
+					leadingCommentList.add( node.getText());
+				else
+					move.addComment( node.getText());
+			}
+			// A nested variation replaces the last move, and ends at the matching right parenthesis
+			else if( NodeType.LEFT_PARENTHESIS.equals( node.getNodeType()))
+			{
+				if( move == null)
+					throw new PortableGameNotationException( "Recursive variation before first move of recursive variation");
+				
+				int nestedEnd = i + 1;
+				for( int depth = 1; ; nestedEnd++)
+				{
+					NodeType nodeType = recursiveVariation.getChildren( nestedEnd).getNodeType();
+					if( NodeType.LEFT_PARENTHESIS.equals( nodeType))
+						++depth;
+					else if( NodeType.RIGHT_PARENTHESIS.equals( nodeType) && --depth == 0)
+						break;
+				}
+				
+				variationList.add( buildVariation( recursiveVariation, i + 1, nestedEnd, moveIndex - 1));
+				i = nestedEnd;
+			}
+			// Periods of move number indications are skipped
+		}
+		
+		if( moveList.isEmpty())
+			throw new PortableGameNotationException( "Empty recursive variation after move " + ( branchIndex/2 + 1));
+		
+		return new Variation( branchIndex, moveList, variationList);
+	}
+	
 	// Find the game termination node in the parse tree and return its text as the game result.
 	public String extractResult( InternalNode root)
 	{
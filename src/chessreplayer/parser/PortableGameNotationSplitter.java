@@ -0,0 +1,230 @@
+/**
+ * Splits the input of a PGN database, which holds several games one after another, into the bytes of each game, without parsing them.
+ * A game starts at a line that starts with a left bracket, i.e. a tag pair, following the movetext of the previous game.
+ * Brace comments may span several lines, so a line starting with a left bracket inside a brace comment doesn't start a game.
+ * In lenient mode, a line starting with an Event tag starts a game even inside a brace comment, so that a comment which isn't closed 
+ * breaks only its own game, and the splitter is synchronized with the input again at the next game.
+ */
+
+package chessreplayer.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+public class PortableGameNotationSplitter
+{
+	private static final byte CH_LEFT_BRACKET = '[';
+	private static final byte CH_LEFT_BRACE = '{';
+	private static final byte CH_RIGHT_BRACE = '}';
+	private static final byte CH_SEMICOLON = ';';
+	private static final byte CH_NEWLINE = '\n';
+	private static final byte[] EVENT_TAG = { '[', 'E', 'v', 'e', 'n', 't', ' '};
+
+	private static final int BUFFER_SIZE = 64 * 1024; // Bytes read from the input at a time
+
+	private ReadableByteChannel channel;
+	private boolean lenient;
+	private ByteBuffer buffer;
+	private boolean endOfInput;
+	private ByteArrayOutputStream game; // Bytes of the game being split
+	private long offset; // Offset of the next byte to scan in the input
+	private long gameOffset; // Offset of the first byte of the game being split in the input
+	private long lastGameOffset; // Offset of the game returned last
+
+	// State of the scan, kept between the games
+	private boolean lineStart;
+	private boolean tagLine; // If the current line starts with a left bracket
+	private boolean braceComment;
+	private boolean restOfLineComment;
+	private boolean movetext; // If the game being split has any movetext yet
+	private boolean empty; // If the game being split has only whitespace yet
+
+	// Create a splitter reading the given channel. The channel is not closed by the splitter.
+	public PortableGameNotationSplitter( ReadableByteChannel channel)
+	{
+		this( channel, false);
+	}
+
+	// Create a splitter reading the given channel, which resynchronizes at Event tags if it's lenient.
+	public PortableGameNotationSplitter( ReadableByteChannel channel, boolean lenient)
+	{
+		this.channel = channel;
+		this.lenient = lenient;
+		this.buffer = ByteBuffer.allocate( BUFFER_SIZE);
+		this.buffer.flip(); // Start with an empty buffer, to be filled at the first read
+		this.game = new ByteArrayOutputStream();
+		this.lineStart = true;
+		this.empty = true;
+	}
+
+	/* Return the bytes of the next game in the input, or null if there are no more games. Whitespace before a game is included in the game,
+	 * and whitespace at the end of the input is not returned as a game.
+	 */
+	public byte[] nextGame() throws IOException
+	{
+		while( true)
+		{
+			if( !buffer.hasRemaining() && ( endOfInput || !fill()))
+			{
+				// The last game ends at the end of the input
+				if( empty)
+					return null;
+
+				return finishGame();
+			}
+
+			// Scan the bytes in the buffer, and add them to the current game at once
+			byte[] bytes = buffer.array();
+			int start = buffer.position();
+			int limit = buffer.limit();
+			int end = limit;
+			boolean readMore = false;
+			for( int i = start; i < limit; i++)
+			{
+				// A tag pair at the start of a line after the movetext starts the next game. The current game ends before it.
+				if( lineStart && bytes[i] == CH_LEFT_BRACKET && movetext)
+				{
+					boolean gameStarts = !braceComment;
+					if( !gameStarts && lenient)
+					{
+						// The whole tag name must be in the buffer to be compared. Otherwise, read more bytes and scan again from the left bracket.
+						if( limit - i < EVENT_TAG.length && !endOfInput)
+						{
+							end = i;
+							readMore = true;
+							break;
+						}
+
+						gameStarts = isEventTag( bytes, i, limit);
+					}
+
+					if( gameStarts)
+					{
+						game.write( bytes, start, i - start);
+						buffer.position( i);
+						offset += i - start;
+
+						byte[] gameBytes = finishGame();
+						gameOffset = offset;
+						return gameBytes;
+					}
+				}
+
+				scan( bytes[i]);
+			}
+
+			game.write( bytes, start, end - start);
+			buffer.position( end);
+			offset += end - start;
+
+			if( readMore)
+				readMore( EVENT_TAG.length);
+		}
+	}
+
+	// Return the offset of the game returned last in the input, in bytes
+	public long getGameOffset()
+	{
+		return lastGameOffset;
+	}
+
+	// Update the state of the scan with the given byte, which is added to the current game.
+	private void scan( byte ch)
+	{
+		boolean whitespace = ch == ' ' || ch == '\t' || ch == '\r' || ch == CH_NEWLINE;
+
+		if( !whitespace)
+			empty = false;
+
+		if( braceComment)
+		{
+			if( ch == CH_RIGHT_BRACE)
+				braceComment = false;
+		}
+		else if( restOfLineComment)
+		{
+			if( ch == CH_NEWLINE)
+				restOfLineComment = false;
+		}
+		else if( !whitespace)
+		{
+			if( lineStart)
+				tagLine = ch == CH_LEFT_BRACKET;
+
+			// Braces and semicolons inside tag values are not comments
+			if( !tagLine)
+			{
+				movetext = true;
+				if( ch == CH_LEFT_BRACE)
+					braceComment = true;
+				else if( ch == CH_SEMICOLON)
+					restOfLineComment = true;
+			}
+		}
+
+		// Leading whitespace doesn't end the start of a line
+		if( ch == CH_NEWLINE)
+			lineStart = true;
+		else if( !whitespace)
+			lineStart = false;
+	}
+
+	// Return the bytes of the current game, and start the next game.
+	private byte[] finishGame()
+	{
+		byte[] bytes = game.toByteArray();
+		game.reset();
+		lastGameOffset = gameOffset;
+		movetext = false;
+		empty = true;
+		braceComment = false;
+		return bytes;
+	}
+
+	// Return if the bytes from the given index to the given limit start with an Event tag
+	private static boolean isEventTag( byte[] bytes, int index, int limit)
+	{
+		if( limit - index < EVENT_TAG.length)
+			return false;
+
+		for( int i = 0; i < EVENT_TAG.length; i++)
+		{
+			if( bytes[index + i] != EVENT_TAG[i])
+				return false;
+		}
+
+		return true;
+	}
+
+	// Keep the remaining bytes in the buffer, and read more bytes after them until the buffer holds at least the given number of bytes, or the input ends.
+	private void readMore( int count) throws IOException
+	{
+		buffer.compact();
+		while( buffer.position() < count)
+		{
+			if( channel.read( buffer) < 0)
+			{
+				endOfInput = true;
+				break;
+			}
+		}
+		buffer.flip();
+	}
+
+	// Read more bytes from the channel into the buffer. Return false if the input has ended.
+	private boolean fill() throws IOException
+	{
+		buffer.clear();
+		int count = 0;
+		while( count == 0)
+			count = channel.read( buffer);
+		buffer.flip();
+
+		if( count < 0)
+			endOfInput = true;
+
+		return count > 0;
+	}
+}
@@ -0,0 +1,479 @@
+/**
+ * Writes games in PGN export format to a writer or a channel: the tag pairs, a blank line, the movetext wrapped at the line length,
+ * and a blank line after the game. The movetext holds the comments, the NAGs and the recursive variations of the game.
+ * Games are appended to a buffer that is reused for all games, and the buffer is written out when it's full, so that a whole database
+ * can be written with few writes and little garbage.
+ * Optionally, comments are stripped, and moves are written in canonical SAN, i.e. rebuilt from the board instead of copied from the input:
+ * without the pawn letter, with only the disambiguation needed, and with NAGs instead of move suffix annotations.
+ */
+
+package chessreplayer.parser;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import chessreplayer.model.Board;
+import chessreplayer.model.Game;
+import chessreplayer.model.Game.Result;
+import chessreplayer.model.Variation;
+import chessreplayer.move.CastlingMove;
+import chessreplayer.move.IllegalPromotionException;
+import chessreplayer.move.InvalidMoveException;
+import chessreplayer.move.Move;
+import chessreplayer.move.Move.File;
+import chessreplayer.move.Move.PieceLetter;
+import chessreplayer.move.Move.Rank;
+import chessreplayer.move.PromotionMove;
+import chessreplayer.piece.Color;
+
+public class PortableGameNotationWriter
+{
+	public static final int DEFAULT_LINE_LENGTH = 79;
+
+	private static final int BUFFER_SIZE = 64 * 1024; // Characters buffered before they are written out
+	private static final char CH_NEWLINE = '\n';
+
+	// Move suffix annotations, and the NAGs they are written as in canonical SAN
+	private static final String[] SUFFIX_ANNOTATIONS = { "!", "?", "!!", "??", "!?", "?!"};
+	private static final String[] SUFFIX_ANNOTATION_GLYPHS = { "$1", "$2", "$3", "$4", "$5", "$6"};
+
+	private Writer writer;
+	private WritableByteChannel channel;
+	private CharsetEncoder encoder;
+	private ByteBuffer byteBuffer;
+
+	private StringBuilder output; // Characters not written out yet
+	private StringBuilder token; // Token being built, e.g. a move with its suffix
+	private int column; // Length of the current line of the output
+
+	private int lineLength = DEFAULT_LINE_LENGTH;
+	private boolean stripComments;
+	private boolean canonicalSan;
+
+	// Create a writer writing to the given writer. The characters are buffered here, so the given writer needn't be buffered.
+	public PortableGameNotationWriter( Writer writer)
+	{
+		this.writer = writer;
+		this.output = new StringBuilder( BUFFER_SIZE + BUFFER_SIZE / 4);
+		this.token = new StringBuilder();
+	}
+
+	// Create a writer writing to the given channel. Characters are encoded in ISO 8859-1, the character set of PGN files.
+	public PortableGameNotationWriter( WritableByteChannel channel)
+	{
+		this( (Writer) null);
+		this.channel = channel;
+		this.encoder = StandardCharsets.ISO_8859_1.newEncoder().onMalformedInput( CodingErrorAction.REPLACE).onUnmappableCharacter( CodingErrorAction.REPLACE);
+		this.byteBuffer = ByteBuffer.allocate( BUFFER_SIZE);
+	}
+
+	public int getLineLength()
+	{
+		return lineLength;
+	}
+
+	// Set the length movetext lines are wrapped at. A token longer than a line, e.g. a long word of a comment, is written on a line of its own.
+	public void setLineLength( int lineLength)
+	{
+		this.lineLength = lineLength;
+	}
+
+	public boolean isStripComments()
+	{
+		return stripComments;
+	}
+
+	public void setStripComments( boolean stripComments)
+	{
+		this.stripComments = stripComments;
+	}
+
+	public boolean isCanonicalSan()
+	{
+		return canonicalSan;
+	}
+
+	/* Set if moves are written in canonical SAN. The moves of a game, and of its variations, are validated to be written in canonical SAN,
+	 * and the moves from an invalid move on are written as they were read. A move is marked as checkmate only if it was read so.
+	 */
+	public void setCanonicalSan( boolean canonicalSan)
+	{
+		this.canonicalSan = canonicalSan;
+	}
+
+	// Write the given game. It's written out when the buffer is full, or when the writer is flushed.
+	public void write( Game game) throws IOException
+	{
+		for( Map.Entry<String,String> tag : game.getTagMap().entrySet())
+			output.append( '[').append( tag.getKey()).append( ' ').append( tag.getValue()).append( ']').append( CH_NEWLINE);
+		output.append( CH_NEWLINE);
+
+		Board board = null;
+		if( canonicalSan)
+		{
+			try {
+				game.validateMoves();
+			} catch( InvalidMoveException | IllegalPromotionException e) {
+				// The moves up to the invalid move are written in canonical SAN
+			}
+
+			board = new Board();
+			board.initializePieces();
+		}
+
+		column = 0;
+		writeLine( game, null, board);
+		writeToken( getResultText( game.getResult()));
+
+		if( !stripComments)
+		{
+			for( String comment : game.getTrailingCommentsList())
+				writeComment( comment);
+		}
+
+		if( column > 0)
+			output.append( CH_NEWLINE);
+		output.append( CH_NEWLINE);
+
+		if( output.length() >= BUFFER_SIZE)
+			writeOutput();
+	}
+
+	// Write out the buffered characters, and flush the underlying writer.
+	public void flush() throws IOException
+	{
+		writeOutput();
+		if( writer != null)
+			writer.flush();
+	}
+
+	// Write out the buffered characters, and close the underlying writer or channel.
+	public void close() throws IOException
+	{
+		try {
+			flush();
+		} finally {
+			if( writer != null)
+				writer.close();
+			else
+				channel.close();
+		}
+	}
+
+	/* Write the moves of the main line of the given game, or of the given variation, with their comments and their NAGs, and with the variations
+	 * replacing them. If a board is given, it's in the position before the first move of the line, and the validated moves are written
+	 * in canonical SAN. The board is in the same position after a variation is written.
+	 */
+	private void writeLine( Game game, Variation variation, Board board) throws IOException
+	{
+		List<Variation> variations = ( variation == null) ? game.getVariations() : variation.getVariations();
+		int start = ( variation == null) ? 0 : variation.getBranchIndex();
+		int end = ( variation == null) ? game.getMoveCount() : variation.getMoveCount();
+		int validatedEnd = ( board == null) ? start : ( variation == null) ? game.getValidatedMoveCount() : variation.getValidatedMoveCount();
+		int executedCount = 0;
+		int nextVariation = 0;
+
+		// The first move of a line, and a black move following a comment or a variation, are numbered with an ellipsis
+		boolean numbered = true;
+		for( int i = start; i < end; i++)
+		{
+			Move move = ( variation == null) ? game.getMove( i) : variation.getMove( i);
+			boolean canonical = i < validatedEnd;
+
+			token.setLength( 0);
+			if( Color.WHITE == move.getPlayerSide())
+			{
+				writeToken( token.append( move.getTurnIndex()).append( '.'));
+				token.setLength( 0);
+			}
+			else if( numbered)
+			{
+				writeToken( token.append( move.getTurnIndex()).append( "..."));
+				token.setLength( 0);
+			}
+			numbered = false;
+
+			String glyph = move.getNumericalAnnotationGlyph();
+			if( canonical)
+			{
+				appendCanonicalSan( move, board);
+				executedCount++;
+				glyph = getCanonicalGlyph( glyph);
+			}
+			else
+				token.append( move.getMoveText());
+
+			// A move suffix annotation is a part of the move, while a NAG is a token of its own
+			if( glyph != null && !glyph.startsWith( "$"))
+			{
+				token.append( glyph);
+				glyph = null;
+			}
+
+			writeToken( token);
+			if( glyph != null)
+				writeToken( glyph);
+
+			if( !stripComments && !move.getCommentList().isEmpty())
+			{
+				for( String comment : move.getCommentList())
+					writeComment( comment);
+				numbered = true;
+			}
+
+			// Variations replacing the move are played from the position before it. The parser adds them in the order of their moves.
+			while( nextVariation < variations.size() && variations.get( nextVariation).getBranchIndex() == i)
+			{
+				Variation nestedVariation = variations.get( nextVariation++);
+				Board variationBoard = null;
+				if( canonical)
+				{
+					try {
+						nestedVariation.validateMoves();
+					} catch( InvalidMoveException | IllegalPromotionException e) {
+						// The moves up to the invalid move are written in canonical SAN
+					}
+
+					variationBoard = board;
+					takeBackMove( board);
+				}
+
+				writeToken( "(");
+				writeLine( game, nestedVariation, variationBoard);
+				writeToken( ")");
+				numbered = true;
+
+				if( canonical)
+					executeMove( board, move);
+			}
+		}
+
+		// The moves of a variation are taken back, so that its parent line goes on from the position the variation replaced
+		if( variation != null)
+		{
+			for( int i = 0; i < executedCount; i++)
+				takeBackMove( board);
+		}
+	}
+
+	/* Append the given validated move in canonical SAN to the token, and execute it on the given board, which is in the position
+	 * before the move.
+	 */
+	private void appendCanonicalSan( Move move, Board board)
+	{
+		if( move instanceof CastlingMove)
+			token.append((( CastlingMove) move).isKingSideCastling() ? "O-O" : "O-O-O");
+		else
+		{
+			PieceLetter pieceLetter = move.getPieceLetter();
+			if( PieceLetter.P == pieceLetter)
+			{
+				// A pawn capture is written with the file of the pawn
+				if( move.isCapture())
+					appendFile( move.getSourceFile());
+			}
+			else
+			{
+				token.append( pieceLetter.name());
+				if( PieceLetter.K != pieceLetter)
+					appendDisambiguation( move, board);
+			}
+
+			if( move.isCapture())
+				token.append( 'x');
+			appendFile( move.getDestinationFile());
+			appendRank( move.getDestinationRank());
+
+			if( move instanceof PromotionMove)
+				token.append( '=').append((( PromotionMove) move).getPromotedPieceLetter().name());
+		}
+
+		executeMove( board, move);
+		if( board.isInCheck(( Color.WHITE == move.getPlayerSide()) ? Color.BLACK : Color.WHITE))
+			token.append( move.isCheckMate() ? '#' : '+');
+	}
+
+	/* Append the source file and/or the source rank of the given move, if another piece of the same kind could move to its destination too.
+	 * The file is preferred to the rank, and both are appended only if neither is enough.
+	 */
+	private void appendDisambiguation( Move move, Board board)
+	{
+		if( isUnambiguous( move, null, null, board))
+			return;
+
+		if( isUnambiguous( move, move.getSourceFile(), null, board))
+			appendFile( move.getSourceFile());
+		else if( isUnambiguous( move, null, move.getSourceRank(), board))
+			appendRank( move.getSourceRank());
+		else
+		{
+			appendFile( move.getSourceFile());
+			appendRank( move.getSourceRank());
+		}
+	}
+
+	// Return if the given move, with only the given source file and rank, is valid and unambiguous on the given board
+	private static boolean isUnambiguous( Move move, File sourceFile, Rank sourceRank, Board board)
+	{
+		Move probe = new Move( move.getMoveText(), move.getTurnIndex(), move.getPlayerSide());
+		probe.setPieceLetter( move.getPieceLetter());
+		probe.setDestinationFile( move.getDestinationFile());
+		probe.setDestinationRank( move.getDestinationRank());
+		probe.setCapture( move.isCapture());
+		probe.setSourceFile( sourceFile);
+		probe.setSourceRank( sourceRank);
+
+		try {
+			board.validateMove( probe);
+		} catch( InvalidMoveException | IllegalPromotionException e) {
+			return false;
+		}
+
+		takeBackMove( board);
+		return true;
+	}
+
+	private void appendFile( File file)
+	{
+		token.append((char) ( 'a' + file.ordinal()));
+	}
+
+	private void appendRank( Rank rank)
+	{
+		token.append((char) ( '1' + rank.ordinal()));
+	}
+
+	// Return the NAG of the given move suffix annotation, or the given NAG if it's not a move suffix annotation
+	private static String getCanonicalGlyph( String glyph)
+	{
+		for( int i = 0; glyph != null && i < SUFFIX_ANNOTATIONS.length; i++)
+		{
+			if( SUFFIX_ANNOTATIONS[i].equals( glyph))
+				return SUFFIX_ANNOTATION_GLYPHS[i];
+		}
+
+		return glyph;
+	}
+
+	// The moves on the board are validated already, so they cannot fail to be executed or taken back
+	private static void executeMove( Board board, Move move)
+	{
+		try {
+			board.executeMove( move);
+		} catch( InvalidMoveException | IllegalPromotionException e) {
+			throw new IllegalStateException( e);
+		}
+	}
+
+	private static void takeBackMove( Board board)
+	{
+		try {
+			board.takeBackMove();
+		} catch( InvalidMoveException | IllegalPromotionException e) {
+			throw new IllegalStateException( e);
+		}
+	}
+
+	/* Write the given comment. A brace comment is wrapped between its words, so its whitespace is written as single spaces.
+	 * A rest of line comment ends its line.
+	 */
+	private void writeComment( String comment) throws IOException
+	{
+		if( comment.startsWith( ";"))
+		{
+			writeToken( comment);
+			output.append( CH_NEWLINE);
+			column = 0;
+			return;
+		}
+
+		token.setLength( 0);
+		for( int i = 0; i < comment.length(); i++)
+		{
+			char ch = comment.charAt( i);
+			if( ch == ' ' || ch == '\t' || ch == '\r' || ch == CH_NEWLINE)
+			{
+				if( token.length() > 0)
+					writeToken( token);
+				token.setLength( 0);
+			}
+			else
+				token.append( ch);
+		}
+
+		if( token.length() > 0)
+			writeToken( token);
+	}
+
+	// Write the given token of the movetext, on the current line if it fits the line, otherwise on a new line.
+	private void writeToken( CharSequence text)
+	{
+		if( column > 0)
+		{
+			if( column + 1 + text.length() > lineLength)
+			{
+				output.append( CH_NEWLINE);
+				column = 0;
+			}
+			else
+			{
+				output.append( ' ');
+				column++;
+			}
+		}
+
+		output.append( text);
+		column += text.length();
+	}
+
+	private static String getResultText( Result result)
+	{
+		if( Result.WHITE_WINS == result)
+			return "1-0";
+		else if( Result.BLACK_WINS == result)
+			return "0-1";
+		else if( Result.DRAW == result)
+			return "1/2-1/2";
+		else
+			return "*"; // Game in progress, or result unknown
+	}
+
+	// Write out the buffered characters to the writer, or encode them into the byte buffer and write it out to the channel.
+	private void writeOutput() throws IOException
+	{
+		if( output.length() == 0)
+			return;
+
+		if( writer != null)
+			writer.append( output);
+		else
+		{
+			CharBuffer chars = CharBuffer.wrap( output);
+			encoder.reset();
+			while( encoder.encode( chars, byteBuffer, true).isOverflow())
+				writeBytes();
+			while( encoder.flush( byteBuffer).isOverflow())
+				writeBytes();
+			writeBytes();
+		}
+
+		output.setLength( 0);
+	}
+
+	// Write out the bytes in the byte buffer to the channel, and clear the buffer.
+	private void writeBytes() throws IOException
+	{
+		byteBuffer.flip();
+		while( byteBuffer.hasRemaining())
+			channel.write( byteBuffer);
+		byteBuffer.clear();
+	}
+}
@@ -1,5 +1,5 @@
 /**
- * Models a king. Includes standard piece methods and methods that hold information about if and when this king has moved.
+ * Models a king. Includes standard piece methods. The castling rights are held by the board, not by the king.
  */
 
 package chessreplayer.piece;
@@ -12,15 +12,11 @@ import chessreplayer.move.Move.Rank;
 public class King implements Piece
 {
 	private Color color;
-	
-	private boolean hasMoved;
-	private int firstMovedOnTurn;
 
-	// Creates a king that hasn't moved yet with the given color.
+	// Creates a king with the given color.
 	public King( Color color)
 	{
 		this.color = color;
-		this.firstMovedOnTurn = -1;
 	}
 	
 	public Color getColor()
@@ -63,26 +59,6 @@ public class King implements Piece
 	{
 		throw new InvalidMoveException( "Invalid move, king cannot be captured.");
 	}
-	
-	public boolean hasMoved() 
-	{
-		return hasMoved;
-	}
-
-	public void setHasMoved( boolean hasMoved)
-	{
-		this.hasMoved = hasMoved;
-	}
-	
-	public int getFirstMovedOnTurn()
-	{
-		return firstMovedOnTurn;
-	}
-
-	public void setFirstMovedOnTurn( int firstMovedOnTurn)
-	{
-		this.firstMovedOnTurn = firstMovedOnTurn;
-	}
 
 	// Returns PieceLetter K, which stands for king.
 	public PieceLetter getRealPieceLetter()
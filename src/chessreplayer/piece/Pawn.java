@@ -1,6 +1,6 @@
 /**
- * Models a pawn. Includes standard piece methods, methods that hold information about if and to which piece this pawn has been promoted 
- * and methods that hold information about if and when this pawn has moved
+ * Models a pawn. Includes standard piece methods and methods that hold information about if and to which piece this pawn has been promoted.
+ * The en passant square is held by the board, not by the pawn.
  */
 
 package chessreplayer.piece;
@@ -18,9 +18,8 @@ public class Pawn implements Piece
 	private File capturedOnFile;
 	
 	private Piece promotedPiece;
-	private int firstMovedOnTurn;
 
-	// Creates a non-captured pawn that has neither moved nor promoted yet with the given color.
+	// Creates a non-captured pawn that hasn't promoted yet with the given color.
 	public Pawn( Color color)
 	{
 		this.color = color;
@@ -28,7 +27,6 @@ public class Pawn implements Piece
 		this.capturedOnRank = null;
 		this.capturedOnFile = null;
 		this.promotedPiece = null;
-		this.firstMovedOnTurn = -1;
 	}
 	
 	public Color getColor()
@@ -81,16 +79,6 @@ public class Pawn implements Piece
 		this.promotedPiece = promotedPiece;
 	}
 
-	public int getFirstMovedOnTurn()
-	{
-		return firstMovedOnTurn;
-	}
-
-	public void setFirstMovedOnTurn( int firstMovedOnTurn)
-	{
-		this.firstMovedOnTurn = firstMovedOnTurn;
-	}
-
 	// Promotes this pawn to the piece with the given PieceLetter, unless it is PieceLetter P (stands for pawn) or PieceLetter K (stands for king).
 	public void promote( PieceLetter promotedPieceLetter) throws IllegalPromotionException
 	{
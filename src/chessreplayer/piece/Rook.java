@@ -1,5 +1,5 @@
 /**
- * Models a rook. Includes standard piece methods and methods that hold information about if and when this rook has moved.
+ * Models a rook. Includes standard piece methods. The castling rights are held by the board, not by the rook.
  */
 
 package chessreplayer.piece;
@@ -14,18 +14,14 @@ public class Rook implements Piece
 	private boolean isCaptured;
 	private Rank capturedOnRank;
 	private File capturedOnFile;
-	
-	private boolean hasMoved;
-	private int firstMovedOnTurn;
 
-	// Creates a non-captured rook that hasn't moved yet with the given color.
+	// Creates a non-captured rook with the given color.
 	public Rook( Color color)
 	{
 		this.color = color;
 		this.isCaptured = false;
 		this.capturedOnRank = null;
 		this.capturedOnFile = null;
-		this.firstMovedOnTurn = -1;
 	}
 	
 	public Color getColor()
@@ -67,26 +63,6 @@ public class Rook implements Piece
 	{
 		this.capturedOnFile = capturedOnFile;
 	}
-	
-	public boolean hasMoved() 
-	{
-		return hasMoved;
-	}
-
-	public void setHasMoved( boolean hasMoved)
-	{
-		this.hasMoved = hasMoved;
-	}
-	
-	public int getFirstMovedOnTurn()
-	{
-		return firstMovedOnTurn;
-	}
-
-	public void setFirstMovedOnTurn( int firstMovedOnTurn)
-	{
-		this.firstMovedOnTurn = firstMovedOnTurn;
-	}
 
 	// Returns PieceLetter R, which stands for rook.
 	public PieceLetter getRealPieceLetter()
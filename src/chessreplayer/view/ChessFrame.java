@@ -16,7 +16,7 @@ import javax.swing.UIManager;
 
 import chessreplayer.controller.ChessController;
 import chessreplayer.controller.ChessPropertiesReader;
-import chessreplayer.model.Game;
+import chessreplayer.model.GameCursor;
 
 public class ChessFrame extends JFrame
 {
@@ -101,18 +101,15 @@ public class ChessFrame extends JFrame
 		this.repaint();
 	}
 	
-	/* Initialize the chess frame by enabling the menu bar, creating/initializing/adding a play panel, 
-	 * creating/initializing/adding a board panel and creating/adding an info panel.
+	/* Initialize the chess frame by enabling the menu bar, creating/initializing/adding a board panel, creating/adding an info panel 
+	 * and creating/initializing/adding a play panel. The play panel is initialized last, as its button images are decoded in the background 
+	 * after the images of the chess board.
 	 */
 	public void initialize( ChessPropertiesReader properties)
 	{
 		this.setLayout( new GridBagLayout());
 		chessMenuBar.enable();
 		
-		playPanel = new PlayPanel( BoardPanel.SIZE + InfoPanel.WIDTH);
-		playPanel.initialize();
-		this.getContentPane().add( playPanel, playPanelConstraints);
-		
 		boardPanel = new BoardPanel( properties);
 		boardPanel.initialize();
 		this.getContentPane().add( boardPanel, boardPanelConstraints);
@@ -120,6 +117,10 @@ public class ChessFrame extends JFrame
 		infoPanel = new InfoPanel( BoardPanel.SIZE);
 		this.getContentPane().add( infoPanel, infoPanelConstraints);
 		
+		playPanel = new PlayPanel( BoardPanel.SIZE + InfoPanel.WIDTH);
+		playPanel.initialize();
+		this.getContentPane().add( playPanel, playPanelConstraints);
+		
 		this.setVisible( true);
 	}
 	
@@ -131,28 +132,42 @@ public class ChessFrame extends JFrame
 		infoPanel.reset();
 	}
 
-	// Update the views of board panel and play panel, and initialize the view of info panel, using the given model.
-	public void initializeModel( Game model)
+	/* Update the views of board panel and play panel, and initialize the view of info panel, using the given model. The info panel shows the line 
+	 * being replayed, so it's initialized again when a variation is entered or left. Play panel treats the moves which are not validated yet like the end of the game, so they cannot be played until they are validated.
+	 */
+	public void initializeModel( GameCursor model)
 	{
 		boardPanel.updateView( model);
-		playPanel.updateView( model.hasStarted(), model.hasEnded());
-		infoPanel.initializeView( model.getFullTextList(), model.getTagMap());
+		playPanel.updateView( model.hasStarted(), !model.canPlayTurn());
+		infoPanel.initializeView( model.getGame(), model.getVariation());
 	}
 
 	// Update the views of panels using the given model
-	public void updateView( Game model)
+	public void updateView( GameCursor model)
 	{
 		boardPanel.updateView( model);
-		playPanel.updateView( model.hasStarted(), model.hasEnded());
+		playPanel.updateView( model.hasStarted(), !model.canPlayTurn());
 		infoPanel.updateView( model.getLastPlayedMoveIndex());
 		this.repaint();
 	}
 	
-	/* Register the controller with the play panel to establish the link between view and controller. 
-	 * It will be used by action listeners of buttons inside play panel.
+	/* Use the given frame title, and the images of ChessImage class again after they are reloaded. The board panel takes the images again 
+	 * and the play panel redraws its button images.
+	 */
+	public void reloadConfiguration( String frameTitle)
+	{
+		this.setTitle( frameTitle);
+		boardPanel.initialize();
+		playPanel.reloadImages();
+		this.repaint();
+	}
+	
+	/* Register the controller with the play panel and the info panel to establish the link between view and controller. 
+	 * It will be used by action listeners of buttons inside play panel, and by the info panel to enter variations.
 	 */
 	public void registerController( ChessController chessController)
 	{
 		playPanel.registerController( chessController);
+		infoPanel.registerController( chessController);
 	}
 }
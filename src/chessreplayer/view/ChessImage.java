@@ -4,10 +4,30 @@
 
 package chessreplayer.view;
 
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.imageio.ImageIO;
 
@@ -15,282 +35,437 @@ import chessreplayer.controller.ChessPropertiesReader;
 
 public class ChessImage
 {
-	// Images used by the user interface of chess replayer
-	private static BufferedImage fileAImage = null;
-	private static BufferedImage fileBImage = null;
-	private static BufferedImage fileCImage = null;
-	private static BufferedImage fileDImage = null;
-	private static BufferedImage fileEImage = null;
-	private static BufferedImage fileFImage = null;
-	private static BufferedImage fileGImage = null;
-	private static BufferedImage fileHImage = null;
-	private static BufferedImage rank1Image = null;
-	private static BufferedImage rank2Image = null;
-	private static BufferedImage rank3Image = null;
-	private static BufferedImage rank4Image = null;
-	private static BufferedImage rank5Image = null;
-	private static BufferedImage rank6Image = null;
-	private static BufferedImage rank7Image = null;
-	private static BufferedImage rank8Image = null;
-	private static BufferedImage emptySquareImage = null;
-	private static BufferedImage blackBackgroundImage = null;
-	private static BufferedImage whiteBackgroundImage = null;
-	private static BufferedImage destinationBackgroundImage = null;
-	private static BufferedImage sourceBackgroundImage = null;
-	private static BufferedImage blackPawnImage = null;
-	private static BufferedImage blackKnightImage = null;
-	private static BufferedImage blackBishopImage = null;
-	private static BufferedImage blackRookImage = null;
-	private static BufferedImage blackQueenImage = null;
-	private static BufferedImage blackKingImage = null;
-	private static BufferedImage whitePawnImage = null;
-	private static BufferedImage whiteKnightImage = null;
-	private static BufferedImage whiteBishopImage = null;
-	private static BufferedImage whiteRookImage = null;
-	private static BufferedImage whiteQueenImage = null;
-	private static BufferedImage whiteKingImage = null;
-	private static BufferedImage playOneMoveButtonImage = null;
-	private static BufferedImage takeBackOneMoveButtonImage = null;
-	private static BufferedImage startAutoPlayButtonImage = null;
-	private static BufferedImage stopAutoPlayButtonImage = null;
+	/* Images used by the user interface of chess replayer. Deferred images are not needed to show the chess board, 
+	 * so loading them is not waited for. They are decoded in the background, and waited for only when they are first used.
+	 */
+	private static enum Asset
+	{
+		RANK_1( false),
+		RANK_2( false),
+		RANK_3( false),
+		RANK_4( false),
+		RANK_5( false),
+		RANK_6( false),
+		RANK_7( false),
+		RANK_8( false),
+		FILE_A( false),
+		FILE_B( false),
+		FILE_C( false),
+		FILE_D( false),
+		FILE_E( false),
+		FILE_F( false),
+		FILE_G( false),
+		FILE_H( false),
+		EMPTY_SQUARE( false),
+		BLACK_BACKGROUND( false),
+		WHITE_BACKGROUND( false),
+		DESTINATION_BACKGROUND( false),
+		SOURCE_BACKGROUND( false),
+		BLACK_PAWN( false),
+		BLACK_KNIGHT( false),
+		BLACK_BISHOP( false),
+		BLACK_ROOK( false),
+		BLACK_QUEEN( false),
+		BLACK_KING( false),
+		WHITE_PAWN( false),
+		WHITE_KNIGHT( false),
+		WHITE_BISHOP( false),
+		WHITE_ROOK( false),
+		WHITE_QUEEN( false),
+		WHITE_KING( false),
+		PLAY_ONE_MOVE_BUTTON( true),
+		TAKE_BACK_ONE_MOVE_BUTTON( true),
+		START_AUTO_PLAY_BUTTON( true),
+		STOP_AUTO_PLAY_BUTTON( true);
+		
+		private final boolean deferred;
+		
+		private Asset( boolean deferred)
+		{
+			this.deferred = deferred;
+		}
+		
+		public boolean isDeferred()
+		{
+			return deferred;
+		}
+		
+		// Name of the image of this asset in the sprite sheet index, e.g. whiteKing for WHITE_KING and rank1 for RANK_1
+		public String getSpriteName()
+		{
+			String[] words = this.name().toLowerCase().split( "_");
+			String spriteName = words[0];
+			for( int i = 1; i < words.length; i++)
+				spriteName += Character.toUpperCase( words[i].charAt( 0)) + words[i].substring( 1);
+			
+			return spriteName;
+		}
+	}
+	
+	/* The loaded images. The images are loaded and reloaded in other threads than the event dispatch thread, which paints them, so a set 
+	 * is never modified after it's published: a new set is built and published as a whole, and a painter sees either the old set or the new one.
+	 */
+	private static volatile ImageSet imageSet = new ImageSet( new BufferedImage[ Asset.values().length], null, new IdentityHashMap<Image, Rectangle>());
+	private static final EnumMap<Asset, Future<BufferedImage>> deferredImages = new EnumMap<Asset, Future<BufferedImage>>( Asset.class); // Guarded by the class
+	
+	// Paths the images are loaded from, used to find which images should be reloaded. Null for the images taken from the sprite sheet.
+	private static final String[] loadedPaths = new String[ Asset.values().length];
+	private static String loadedSpriteSheetImageFilePath = "";
+	private static String loadedSpriteSheetIndexFilePath = "";
+	private static Properties loadedSpriteIndex = new Properties();
 
 	private static final String newLine = System.getProperty( "line.separator");
 	
 	// Methods for getting the images, once they are loaded from the file system.
 	public static BufferedImage getFileAImage()
 	{
-		return fileAImage;
+		return getImage( Asset.FILE_A);
 	}
 
 	public static BufferedImage getFileBImage()
 	{
-		return fileBImage;
+		return getImage( Asset.FILE_B);
 	}
 
 	public static BufferedImage getFileCImage()
 	{
-		return fileCImage;
+		return getImage( Asset.FILE_C);
 	}
 
 	public static BufferedImage getFileDImage()
 	{
-		return fileDImage;
+		return getImage( Asset.FILE_D);
 	}
 
 	public static BufferedImage getFileEImage()
 	{
-		return fileEImage;
+		return getImage( Asset.FILE_E);
 	}
 
 	public static BufferedImage getFileFImage()
 	{
-		return fileFImage;
+		return getImage( Asset.FILE_F);
 	}
 
 	public static BufferedImage getFileGImage()
 	{
-		return fileGImage;
+		return getImage( Asset.FILE_G);
 	}
 
 	public static BufferedImage getFileHImage()
 	{
-		return fileHImage;
+		return getImage( Asset.FILE_H);
 	}
 
 	public static BufferedImage getRank1Image()
 	{
-		return rank1Image;
+		return getImage( Asset.RANK_1);
 	}
 
 	public static BufferedImage getRank2Image()
 	{
-		return rank2Image;
+		return getImage( Asset.RANK_2);
 	}
 
 	public static BufferedImage getRank3Image()
 	{
-		return rank3Image;
+		return getImage( Asset.RANK_3);
 	}
 
 	public static BufferedImage getRank4Image()
 	{
-		return rank4Image;
+		return getImage( Asset.RANK_4);
 	}
 
 	public static BufferedImage getRank5Image()
 	{
-		return rank5Image;
+		return getImage( Asset.RANK_5);
 	}
 
 	public static BufferedImage getRank6Image()
 	{
-		return rank6Image;
+		return getImage( Asset.RANK_6);
 	}
 
 	public static BufferedImage getRank7Image()
 	{
-		return rank7Image;
+		return getImage( Asset.RANK_7);
 	}
 
 	public static BufferedImage getRank8Image()
 	{
-		return rank8Image;
+		return getImage( Asset.RANK_8);
 	}
 
 	public static BufferedImage getEmptySquareImage()
 	{
-		return emptySquareImage;
+		return getImage( Asset.EMPTY_SQUARE);
 	}
 
 	public static BufferedImage getBlackBackgroundImage()
 	{
-		return blackBackgroundImage;
+		return getImage( Asset.BLACK_BACKGROUND);
 	}
 
 	public static BufferedImage getWhiteBackgroundImage()
 	{
-		return whiteBackgroundImage;
+		return getImage( Asset.WHITE_BACKGROUND);
 	}
 
 	public static BufferedImage getSourceBackgroundImage()
 	{
-		return sourceBackgroundImage;
+		return getImage( Asset.SOURCE_BACKGROUND);
 	}
 
 	public static BufferedImage getDestinationBackgroundImage()
 	{
-		return destinationBackgroundImage;
+		return getImage( Asset.DESTINATION_BACKGROUND);
 	}
 
 	public static BufferedImage getBlackPawnImage()
 	{
-		return blackPawnImage;
+		return getImage( Asset.BLACK_PAWN);
 	}
 
 	public static BufferedImage getBlackKnightImage()
 	{
-		return blackKnightImage;
+		return getImage( Asset.BLACK_KNIGHT);
 	}
 
 	public static BufferedImage getBlackBishopImage()
 	{
-		return blackBishopImage;
+		return getImage( Asset.BLACK_BISHOP);
 	}
 
 	public static BufferedImage getBlackRookImage()
 	{
-		return blackRookImage;
+		return getImage( Asset.BLACK_ROOK);
 	}
 
 	public static BufferedImage getBlackQueenImage()
 	{
-		return blackQueenImage;
+		return getImage( Asset.BLACK_QUEEN);
 	}
 
 	public static BufferedImage getBlackKingImage()
 	{
-		return blackKingImage;
+		return getImage( Asset.BLACK_KING);
 	}
 
 	public static BufferedImage getWhitePawnImage()
 	{
-		return whitePawnImage;
+		return getImage( Asset.WHITE_PAWN);
 	}
 
 	public static BufferedImage getWhiteKnightImage()
 	{
-		return whiteKnightImage;
+		return getImage( Asset.WHITE_KNIGHT);
 	}
 
 	public static BufferedImage getWhiteBishopImage()
 	{
-		return whiteBishopImage;
+		return getImage( Asset.WHITE_BISHOP);
 	}
 
 	public static BufferedImage getWhiteRookImage()
 	{
-		return whiteRookImage;
+		return getImage( Asset.WHITE_ROOK);
 	}
 
 	public static BufferedImage getWhiteQueenImage()
 	{
-		return whiteQueenImage;
+		return getImage( Asset.WHITE_QUEEN);
 	}
 
 	public static BufferedImage getWhiteKingImage()
 	{
-		return whiteKingImage;
+		return getImage( Asset.WHITE_KING);
 	}
 
 	public static BufferedImage getPlayOneMoveButtonImage()
 	{
-		return playOneMoveButtonImage;
+		return getImage( Asset.PLAY_ONE_MOVE_BUTTON);
 	}
 
 	public static BufferedImage getTakeBackOneMoveButtonImage()
 	{
-		return takeBackOneMoveButtonImage;
+		return getImage( Asset.TAKE_BACK_ONE_MOVE_BUTTON);
 	}
 
 	public static BufferedImage getStartAutoPlayButtonImage()
 	{
-		return startAutoPlayButtonImage;
+		return getImage( Asset.START_AUTO_PLAY_BUTTON);
 	}
 
 	public static BufferedImage getStopAutoPlayButtonImage()
 	{
-		return stopAutoPlayButtonImage;
+		return getImage( Asset.STOP_AUTO_PLAY_BUTTON);
 	}
 	
-	/* Load all the necessary images from the file system, using file paths from the given chess properties reader.
-	 * If the image cannot be found, put the path of the file into an array list.
+	/* Return the image of the given asset. If it's a deferred image that is not decoded yet, wait until it's decoded. 
+	 * Return null if the image couldn't be loaded.
 	 */
-	public static void loadImages( ChessPropertiesReader properties) throws ChessImageException
+	private static BufferedImage getImage( Asset asset)
+	{
+		BufferedImage image = imageSet.images[ asset.ordinal()];
+		if( image == null && asset.isDeferred())
+			image = waitForDeferredImage( asset);
+		
+		return image;
+	}
+	
+	/* Wait until all the deferred images are decoded. Called from a background thread, so that the deferred images can be drawn 
+	 * in the event dispatch thread afterwards without waiting.
+	 */
+	public static void waitForDeferredImages()
+	{
+		for( Asset asset : Asset.values())
+		{
+			if( asset.isDeferred())
+				getImage( asset);
+		}
+	}
+	
+	// Wait until the given deferred image is decoded, and publish it in a new image set so that it's not waited for again.
+	private static synchronized BufferedImage waitForDeferredImage( Asset asset)
+	{
+		Future<BufferedImage> future = deferredImages.remove( asset);
+		if( future != null)
+		{
+			try {
+				ImageSet set = imageSet;
+				BufferedImage[] images = set.images.clone();
+				images[ asset.ordinal()] = future.get();
+				imageSet = new ImageSet( images, set.spriteSheet, set.spriteBounds);
+			} catch( InterruptedException e) {
+				deferredImages.put( asset, future); // Try again next time
+				Thread.currentThread().interrupt();
+			} catch( ExecutionException e) {
+				System.err.println( "Cannot read the image file: " + e.getCause().getMessage());
+			}
+		}
+		
+		return imageSet.images[ asset.ordinal()];
+	}
+	
+	/* Draw the given image to the given graphics object, scaled to the given position and size. If the image is taken from the sprite sheet, 
+	 * its region of the sprite sheet is drawn instead.
+	 */
+	public static boolean drawImage( Graphics g, Image image, int x, int y, int width, int height, ImageObserver observer)
+	{
+		ImageSet set = imageSet;
+		Rectangle bounds = set.spriteBounds.get( image);
+		if( bounds == null)
+			return g.drawImage( image, x, y, width, height, observer);
+		
+		return g.drawImage( set.spriteSheet, x, y, x + width, y + height, bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height, observer);
+	}
+	
+	/* Load all the necessary images from the file system, using file paths from the given chess properties reader. 
+	 * If a sprite sheet is given, it's read first and the images in its index are taken from it instead of their own files. 
+	 * The other images are decoded in parallel, by a thread for each processor. This method returns as soon as the images other than 
+	 * the deferred ones are decoded. If an image cannot be found, put the path of the file into an array list. Deferred images are 
+	 * only checked for existence here. The loaded images are published at once, after the images other than the deferred ones are decoded.
+	 */
+	public static synchronized void loadImages( ChessPropertiesReader properties) throws ChessImageException
 	{
 		ArrayList<String> notFoundList = new ArrayList<String>();
+		Asset[] assets = Asset.values();
+		BufferedImage[] images = new BufferedImage[ assets.length];
+		ArrayList<Future<BufferedImage>> futures = new ArrayList<Future<BufferedImage>>();
 		
-		rank1Image = loadImage( properties.getRank1ImageFilePath(), notFoundList);
-		rank2Image = loadImage( properties.getRank2ImageFilePath(), notFoundList);
-		rank3Image = loadImage( properties.getRank3ImageFilePath(), notFoundList);
-		rank4Image = loadImage( properties.getRank4ImageFilePath(), notFoundList);
-		rank5Image = loadImage( properties.getRank5ImageFilePath(), notFoundList);
-		rank6Image = loadImage( properties.getRank6ImageFilePath(), notFoundList);
-		rank7Image = loadImage( properties.getRank7ImageFilePath(), notFoundList);
-		rank8Image = loadImage( properties.getRank8ImageFilePath(), notFoundList);
+		// Read the sprite sheet and its index, if they are given
+		BufferedImage sheet = null;
+		Properties spriteIndex = new Properties();
+		IdentityHashMap<Image, Rectangle> sheetBounds = new IdentityHashMap<Image, Rectangle>();
+		String spriteSheetImageFilePath = properties.getSpriteSheetImageFilePath();
+		String spriteSheetIndexFilePath = properties.getSpriteSheetIndexFilePath();
+		if( spriteSheetImageFilePath != null && !spriteSheetImageFilePath.isEmpty())
+		{
+			try {
+				sheet = toCompatibleImage( readImage( spriteSheetImageFilePath));
+			} catch( IOException e) {
+				notFoundList.add( spriteSheetImageFilePath);
+			}
+			
+			try {
+				spriteIndex = readSpriteIndex( spriteSheetIndexFilePath);
+			} catch( IOException e) {
+				notFoundList.add( spriteSheetIndexFilePath);
+			}
+		}
 		
-		fileAImage = loadImage( properties.getFileAImageFilePath(), notFoundList);
-		fileBImage = loadImage( properties.getFileBImageFilePath(), notFoundList);
-		fileCImage = loadImage( properties.getFileCImageFilePath(), notFoundList);
-		fileDImage = loadImage( properties.getFileDImageFilePath(), notFoundList);
-		fileEImage = loadImage( properties.getFileEImageFilePath(), notFoundList);
-		fileFImage = loadImage( properties.getFileFImageFilePath(), notFoundList);
-		fileGImage = loadImage( properties.getFileGImageFilePath(), notFoundList);
-		fileHImage = loadImage( properties.getFileHImageFilePath(), notFoundList);
+		ExecutorService decoder = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+			{
+				public Thread newThread( Runnable runnable)
+				{
+					Thread thread = new Thread( runnable, "Image Decoder");
+					thread.setDaemon( true);
+					return thread;
+				}
+			}
+		);
 		
-		emptySquareImage = loadImage( properties.getEmptySquareImageFilePath(), notFoundList);
-		blackBackgroundImage = loadImage( properties.getBlackBackgroundImageFilePath(), notFoundList);
-		whiteBackgroundImage = loadImage( properties.getWhiteBackgroundImageFilePath(), notFoundList);
-		destinationBackgroundImage = loadImage( properties.getDestinationBackgroundImageFilePath(), notFoundList);
-		sourceBackgroundImage = loadImage( properties.getSourceBackgroundImageFilePath(), notFoundList);
+		// Submit the images in the order of assets, so the deferred images are decoded last
+		for( Asset asset : assets)
+		{
+			// Take the image from the sprite sheet, if it's in its index
+			Rectangle bounds = ( sheet == null) ? null : parseSpriteBounds( spriteIndex.getProperty( asset.getSpriteName()), sheet);
+			if( bounds != null)
+			{
+				images[ asset.ordinal()] = sheet.getSubimage( bounds.x, bounds.y, bounds.width, bounds.height);
+				sheetBounds.put( images[ asset.ordinal()], bounds);
+				deferredImages.remove( asset);
+				loadedPaths[ asset.ordinal()] = null;
+				futures.add( null);
+				continue;
+			}
+			
+			final String path = getFilePath( asset, properties);
+			loadedPaths[ asset.ordinal()] = path;
+			Future<BufferedImage> future = decoder.submit( new Callable<BufferedImage>()
+				{
+					public BufferedImage call() throws IOException
+					{
+						return readImage( path);
+					}
+				}
+			);
+			futures.add( future);
+			
+			if( asset.isDeferred())
+				deferredImages.put( asset, future);
+		}
+		decoder.shutdown(); // The submitted images are still decoded
 		
-		blackPawnImage = loadImage( properties.getBlackPawnImageFilePath(), notFoundList);
-		blackKnightImage = loadImage( properties.getBlackKnightImageFilePath(), notFoundList);
-		blackBishopImage = loadImage( properties.getBlackBishopImageFilePath(), notFoundList);
-		blackRookImage = loadImage( properties.getBlackRookImageFilePath(), notFoundList);
-		blackQueenImage = loadImage( properties.getBlackQueenImageFilePath(), notFoundList);
-		blackKingImage = loadImage( properties.getBlackKingImageFilePath(), notFoundList);
+		loadedSpriteSheetImageFilePath = ( sheet == null) ? "" : spriteSheetImageFilePath;
+		loadedSpriteSheetIndexFilePath = ( sheet == null) ? "" : spriteSheetIndexFilePath;
+		loadedSpriteIndex = spriteIndex;
 		
-		whitePawnImage = loadImage( properties.getWhitePawnImageFilePath(), notFoundList);
-		whiteKnightImage = loadImage( properties.getWhiteKnightImageFilePath(), notFoundList);
-		whiteBishopImage = loadImage( properties.getWhiteBishopImageFilePath(), notFoundList);
-		whiteRookImage = loadImage( properties.getWhiteRookImageFilePath(), notFoundList);
-		whiteQueenImage = loadImage( properties.getWhiteQueenImageFilePath(), notFoundList);
-		whiteKingImage = loadImage( properties.getWhiteKingImageFilePath(), notFoundList);
+		for( Asset asset : assets)
+		{
+			String path = getFilePath( asset, properties);
+			if( futures.get( asset.ordinal()) == null) // Taken from the sprite sheet
+				continue;
+			else if( asset.isDeferred())
+			{
+				if( !new File( path).isFile())
+					notFoundList.add( path);
+				continue;
+			}
+			
+			try {
+				images[ asset.ordinal()] = futures.get( asset.ordinal()).get();
+			} catch( ExecutionException e) {
+				images[ asset.ordinal()] = null;
+				notFoundList.add( path);
+			} catch( InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ChessImageException( "Interrupted while reading the images from the file system.");
+			}
+		}
 		
-		playOneMoveButtonImage = loadImage( properties.getPlayOneMoveButtonImageFilePath(), notFoundList);
-		takeBackOneMoveButtonImage = loadImage( properties.getTakeBackOneMoveButtonImageFilePath(), notFoundList);
-		startAutoPlayButtonImage = loadImage( properties.getStartAutoPlayButtonImageFilePath(), notFoundList);
-		stopAutoPlayButtonImage = loadImage( properties.getStopAutoPlayButtonImageFilePath(), notFoundList);
+		imageSet = new ImageSet( images, sheet, sheetBounds);
 		
 		/* If the array list containing paths of image files that cannot be read from the file system is not empty, 
 		 * throw a chess image exception. The message of the exception includes the paths of the files in the array list, 
@@ -309,19 +484,232 @@ public class ChessImage
 			throw new ChessImageException( message);
 		}
 	}
-
-	/* Load an image from the file system, using the given path. If an IO exception occurs 
-	 * when trying to read the image file, put the path of the file into the given array list.
+	
+	/* Reload only the images that changed since they were loaded: the images whose file paths in the given properties are different 
+	 * from the paths they were loaded from, and the images whose files are among the given changed files. If the sprite sheet or its index 
+	 * changed, the images in the sprite sheet are taken from it again. An image that cannot be reloaded is kept as it is. 
+	 * Return true if any image is reloaded. Images are read in the calling thread, so this should be called from a background thread. 
+	 * The reloaded images are published at once, and they are painted after the view is repainted.
 	 */
-	private static BufferedImage loadImage( String path, ArrayList<String> notFoundList)
+	public static synchronized boolean reloadImages( ChessPropertiesReader properties, Set<File> changedFiles)
 	{
-		BufferedImage bufferedImage = null;
+		boolean reloaded = false;
+		Asset[] assets = Asset.values();
+		
+		// Wait for the deferred images, so that they are not overwritten by their own loading afterwards
+		for( Asset asset : assets)
+		{
+			if( asset.isDeferred())
+				waitForDeferredImage( asset);
+		}
+		
+		// Read the sprite sheet and its index again, if their paths or files changed
+		ImageSet set = imageSet;
+		BufferedImage[] images = set.images.clone();
+		BufferedImage sheet = set.spriteSheet;
+		Properties spriteIndex = loadedSpriteIndex;
+		String spriteSheetImageFilePath = properties.getSpriteSheetImageFilePath();
+		String spriteSheetIndexFilePath = properties.getSpriteSheetIndexFilePath();
+		boolean reloadSpriteSheet = !spriteSheetImageFilePath.equals( loadedSpriteSheetImageFilePath) || 
+									!spriteSheetIndexFilePath.equals( loadedSpriteSheetIndexFilePath) ||
+									isChanged( spriteSheetImageFilePath, changedFiles) || isChanged( spriteSheetIndexFilePath, changedFiles);
+		if( reloadSpriteSheet)
+		{
+			sheet = null;
+			spriteIndex = new Properties();
+			if( !spriteSheetImageFilePath.isEmpty())
+			{
+				try {
+					sheet = toCompatibleImage( readImage( spriteSheetImageFilePath));
+					spriteIndex = readSpriteIndex( spriteSheetIndexFilePath);
+				} catch( IOException e) {
+					System.err.println( "Cannot reload the sprite sheet " + spriteSheetImageFilePath + " : " + e.getMessage());
+					return false;
+				}
+			}
+			
+			loadedSpriteSheetImageFilePath = ( sheet == null) ? "" : spriteSheetImageFilePath;
+			loadedSpriteSheetIndexFilePath = ( sheet == null) ? "" : spriteSheetIndexFilePath;
+			loadedSpriteIndex = spriteIndex;
+		}
+		
+		IdentityHashMap<Image, Rectangle> sheetBounds = new IdentityHashMap<Image, Rectangle>();
+		for( Asset asset : assets)
+		{
+			int index = asset.ordinal();
+			Rectangle bounds = ( sheet == null) ? null : parseSpriteBounds( spriteIndex.getProperty( asset.getSpriteName()), sheet);
+			if( bounds != null)
+			{
+				// Take the image from the sprite sheet again, if the sprite sheet is reloaded or the image was read from its own file
+				if( reloadSpriteSheet || loadedPaths[ index] != null)
+				{
+					images[ index] = sheet.getSubimage( bounds.x, bounds.y, bounds.width, bounds.height);
+					loadedPaths[ index] = null;
+					reloaded = true;
+				}
+				sheetBounds.put( images[ index], bounds);
+			}
+			else
+			{
+				String path = getFilePath( asset, properties);
+				if( !path.equals( loadedPaths[ index]) || isChanged( path, changedFiles))
+				{
+					try {
+						BufferedImage image = readImage( path);
+						if( image == null)
+							throw new IOException( "Unsupported image format");
+						
+						images[ index] = image;
+						loadedPaths[ index] = path;
+						reloaded = true;
+					} catch( IOException e) {
+						System.err.println( "Cannot reload the image file " + path + " : " + e.getMessage());
+					}
+				}
+			}
+		}
+		
+		imageSet = new ImageSet( images, sheet, sheetBounds);
+		
+		return reloaded;
+	}
+	
+	// Return true if the file with the given path is among the given changed files, which have absolute and normalized paths.
+	private static boolean isChanged( String path, Set<File> changedFiles)
+	{
+		if( path == null || path.isEmpty())
+			return false;
+		
+		return changedFiles.contains( new File( path).getAbsoluteFile().toPath().normalize().toFile());
+	}
+	
+	// Return the path of the image file of the given asset, from the given chess properties reader.
+	private static String getFilePath( Asset asset, ChessPropertiesReader properties)
+	{
+		switch( asset)
+		{
+			case RANK_1: return properties.getRank1ImageFilePath();
+			case RANK_2: return properties.getRank2ImageFilePath();
+			case RANK_3: return properties.getRank3ImageFilePath();
+			case RANK_4: return properties.getRank4ImageFilePath();
+			case RANK_5: return properties.getRank5ImageFilePath();
+			case RANK_6: return properties.getRank6ImageFilePath();
+			case RANK_7: return properties.getRank7ImageFilePath();
+			case RANK_8: return properties.getRank8ImageFilePath();
+			case FILE_A: return properties.getFileAImageFilePath();
+			case FILE_B: return properties.getFileBImageFilePath();
+			case FILE_C: return properties.getFileCImageFilePath();
+			case FILE_D: return properties.getFileDImageFilePath();
+			case FILE_E: return properties.getFileEImageFilePath();
+			case FILE_F: return properties.getFileFImageFilePath();
+			case FILE_G: return properties.getFileGImageFilePath();
+			case FILE_H: return properties.getFileHImageFilePath();
+			case EMPTY_SQUARE: return properties.getEmptySquareImageFilePath();
+			case BLACK_BACKGROUND: return properties.getBlackBackgroundImageFilePath();
+			case WHITE_BACKGROUND: return properties.getWhiteBackgroundImageFilePath();
+			case DESTINATION_BACKGROUND: return properties.getDestinationBackgroundImageFilePath();
+			case SOURCE_BACKGROUND: return properties.getSourceBackgroundImageFilePath();
+			case BLACK_PAWN: return properties.getBlackPawnImageFilePath();
+			case BLACK_KNIGHT: return properties.getBlackKnightImageFilePath();
+			case BLACK_BISHOP: return properties.getBlackBishopImageFilePath();
+			case BLACK_ROOK: return properties.getBlackRookImageFilePath();
+			case BLACK_QUEEN: return properties.getBlackQueenImageFilePath();
+			case BLACK_KING: return properties.getBlackKingImageFilePath();
+			case WHITE_PAWN: return properties.getWhitePawnImageFilePath();
+			case WHITE_KNIGHT: return properties.getWhiteKnightImageFilePath();
+			case WHITE_BISHOP: return properties.getWhiteBishopImageFilePath();
+			case WHITE_ROOK: return properties.getWhiteRookImageFilePath();
+			case WHITE_QUEEN: return properties.getWhiteQueenImageFilePath();
+			case WHITE_KING: return properties.getWhiteKingImageFilePath();
+			case PLAY_ONE_MOVE_BUTTON: return properties.getPlayOneMoveButtonImageFilePath();
+			case TAKE_BACK_ONE_MOVE_BUTTON: return properties.getTakeBackOneMoveButtonImageFilePath();
+			case START_AUTO_PLAY_BUTTON: return properties.getStartAutoPlayButtonImageFilePath();
+			case STOP_AUTO_PLAY_BUTTON: return properties.getStopAutoPlayButtonImageFilePath();
+			default: return null;
+		}
+	}
+
+	// Read the sprite sheet index from the file system, using the given path. Each entry of the index is name=x,y,width,height of an image in the sprite sheet.
+	private static Properties readSpriteIndex( String path) throws IOException
+	{
+		Properties spriteIndex = new Properties();
+		InputStream input = new FileInputStream( path);
+		try {
+			spriteIndex.load( input);
+		} finally {
+			input.close();
+		}
+		
+		return spriteIndex;
+	}
+	
+	// Parse the given sprite index entry into a region of the given sprite sheet. Return null if the entry is missing, malformed or out of the sprite sheet.
+	private static Rectangle parseSpriteBounds( String entry, BufferedImage sheet)
+	{
+		if( entry == null)
+			return null;
+		
+		String[] values = entry.split( ",");
+		if( values.length != 4)
+			return null;
+		
 		try {
-			bufferedImage = ImageIO.read( new File( path));
-		} catch( IOException e){
-			notFoundList.add( path);
+			Rectangle bounds = new Rectangle( Integer.parseInt( values[0].trim()), Integer.parseInt( values[1].trim()), 
+												Integer.parseInt( values[2].trim()), Integer.parseInt( values[3].trim()));
+			if( bounds.isEmpty() || !new Rectangle( 0, 0, sheet.getWidth(), sheet.getHeight()).contains( bounds))
+				return null;
+			
+			return bounds;
+		} catch( NumberFormatException e) {
+			return null;
 		}
+	}
+	
+	/* Convert the given image to the format of the screen, so it can be drawn without conversion and kept in video memory. 
+	 * Return the image itself if there is no screen, or it's already in that format.
+	 */
+	private static BufferedImage toCompatibleImage( BufferedImage image) throws IOException
+	{
+		if( image == null)
+			throw new IOException( "Unsupported image format");
+		
+		if( GraphicsEnvironment.isHeadless())
+			return image;
+		
+		GraphicsConfiguration configuration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		if( image.getColorModel().equals( configuration.getColorModel()))
+			return image;
 		
-		return bufferedImage;
+		BufferedImage compatibleImage = configuration.createCompatibleImage( image.getWidth(), image.getHeight(), image.getTransparency());
+		Graphics2D g = compatibleImage.createGraphics();
+		g.drawImage( image, 0, 0, null);
+		g.dispose();
+		
+		return compatibleImage;
+	}
+	
+	// Read an image from the file system, using the given path. Throw an IO exception if the image file cannot be read.
+	private static BufferedImage readImage( String path) throws IOException
+	{
+		return ImageIO.read( new File( path));
+	}
+	
+	// A set of loaded images, and the sprite sheet the images may be taken from. It's not modified after it's published.
+	private static class ImageSet
+	{
+		private final BufferedImage[] images; // Images by the ordinals of their assets
+		
+		/* The sprite sheet, if the images are read from one, and the regions of the images in it. The images taken from the sprite sheet 
+		 * share its pixels, and they are drawn from the sprite sheet itself, so that all of them are drawn from a single surface.
+		 */
+		private final BufferedImage spriteSheet;
+		private final Map<Image, Rectangle> spriteBounds;
+		
+		public ImageSet( BufferedImage[] images, BufferedImage spriteSheet, Map<Image, Rectangle> spriteBounds)
+		{
+			this.images = images;
+			this.spriteSheet = spriteSheet;
+			this.spriteBounds = spriteBounds;
+		}
 	}
 }
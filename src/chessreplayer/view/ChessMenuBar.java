@@ -25,11 +25,20 @@ public class ChessMenuBar extends JMenuBar
 	private JMenu fileMenu;
 	private JMenu settingsMenu;
 	private JMenuItem loadPgnFileMenuItem;
+	private JMenuItem followPgnFileMenuItem;
+	private JMenuItem nextGameMenuItem;
+	private JMenuItem previousGameMenuItem;
+	private JMenuItem exportGifMenuItem;
+	private JMenuItem exportFramesMenuItem;
+	private JMenu variationMenu;
+	private JMenuItem enterVariationMenuItem;
+	private JMenuItem leaveVariationMenuItem;
 	private JMenuItem settingsMenuItem;
 	
-	/* Create the menu bar with two menus (File and Settings), which contain one menu item each (Load PGN File and Change Settings, respectively)
-	 * Also add the necessary listeners and set the necessary mnemonics. 
-	 * File menu is initially disabled, it's enabled after it's confirmed that all user interface elements are loaded.
+	/* Create the menu bar with three menus (File, Variation and Settings). File menu contains Load PGN File, Follow PGN File, Next Game, Previous Game, 
+	 * Export Replay as GIF and Export Replay as PNG Frames menu items, Variation menu contains Enter Variation and Leave Variation menu items, 
+	 * while Settings menu contains Change Settings menu item. Also add the necessary listeners and set the necessary mnemonics. 
+	 * File and Variation menus are initially disabled, they're enabled after it's confirmed that all user interface elements are loaded.
 	 */
 	public ChessMenuBar( ChessController chessController)
 	{
@@ -42,12 +51,55 @@ public class ChessMenuBar extends JMenuBar
 
 	    // File->Load PGN File, L - Mnemonic
 	    loadPgnFileMenuItem = new JMenuItem( "Load PGN File", KeyEvent.VK_L);
-	    loadPgnFileMenuItem.addActionListener( new LoadPgnFileMenuItemActionListener());
+	    loadPgnFileMenuItem.addActionListener( new LoadPgnFileMenuItemActionListener( false));
+
+	    // File->Follow PGN File, O - Mnemonic
+	    followPgnFileMenuItem = new JMenuItem( "Follow PGN File", KeyEvent.VK_O);
+	    followPgnFileMenuItem.addActionListener( new LoadPgnFileMenuItemActionListener( true));
+
+	    // File->Next Game, N - Mnemonic
+	    nextGameMenuItem = new JMenuItem( "Next Game", KeyEvent.VK_N);
+	    nextGameMenuItem.addActionListener( new AdjacentGameMenuItemActionListener( 1));
+
+	    // File->Previous Game, R - Mnemonic
+	    previousGameMenuItem = new JMenuItem( "Previous Game", KeyEvent.VK_R);
+	    previousGameMenuItem.addActionListener( new AdjacentGameMenuItemActionListener( -1));
+
+	    // File->Export Replay as GIF, E - Mnemonic
+	    exportGifMenuItem = new JMenuItem( "Export Replay as GIF", KeyEvent.VK_E);
+	    exportGifMenuItem.addActionListener( new ExportGifMenuItemActionListener());
+
+	    // File->Export Replay as PNG Frames, P - Mnemonic
+	    exportFramesMenuItem = new JMenuItem( "Export Replay as PNG Frames", KeyEvent.VK_P);
+	    exportFramesMenuItem.addActionListener( new ExportFramesMenuItemActionListener());
 
 		fileMenu.setEnabled( false);
 	    fileMenu.add( loadPgnFileMenuItem);
+	    fileMenu.add( followPgnFileMenuItem);
+	    fileMenu.add( nextGameMenuItem);
+	    fileMenu.add( previousGameMenuItem);
+	    fileMenu.addSeparator();
+	    fileMenu.add( exportGifMenuItem);
+	    fileMenu.add( exportFramesMenuItem);
 	    this.add( fileMenu);
 		
+	    // Variation Menu, V - Mnemonic
+	    variationMenu = new JMenu( "Variation");
+	    variationMenu.setMnemonic( KeyEvent.VK_V);
+
+	    // Variation->Enter Variation, E - Mnemonic
+	    enterVariationMenuItem = new JMenuItem( "Enter Variation", KeyEvent.VK_E);
+	    enterVariationMenuItem.addActionListener( new EnterVariationMenuItemActionListener());
+
+	    // Variation->Leave Variation, L - Mnemonic
+	    leaveVariationMenuItem = new JMenuItem( "Leave Variation", KeyEvent.VK_L);
+	    leaveVariationMenuItem.addActionListener( new LeaveVariationMenuItemActionListener());
+
+		variationMenu.setEnabled( false);
+	    variationMenu.add( enterVariationMenuItem);
+	    variationMenu.add( leaveVariationMenuItem);
+	    this.add( variationMenu);
+		
 	    // Settings Menu, S - Mnemonic
 	    settingsMenu = new JMenu( "Settings");
 	    settingsMenu.setMnemonic( KeyEvent.VK_S);
@@ -60,31 +112,120 @@ public class ChessMenuBar extends JMenuBar
 	    this.add( settingsMenu);
 	}
 	
-	// Enable file menu.
+	// Enable file and variation menus.
 	public void enable()
 	{
 		fileMenu.setEnabled( true);
+		variationMenu.setEnabled( true);
 	}
 	
-	/* Action listener for Load PGN File menu item. When an action is performed, open a file chooser dialog for PGN files.
-	 * The file chosen from the dialog is loaded for replay.
+	/* Action listener for Load PGN File and Follow PGN File menu items. When an action is performed, open a file chooser dialog for PGN files.
+	 * The file chosen from the dialog is loaded for replay, or followed as moves are appended to it. A followed file cannot be compressed.
 	 */
 	private class LoadPgnFileMenuItemActionListener implements ActionListener
 	{
+		private boolean follow;
+		
+		public LoadPgnFileMenuItemActionListener( boolean follow)
+		{
+			this.follow = follow;
+		}
+		
 		public void actionPerformed( ActionEvent event)
 		{
 			JFileChooser fileChooser = new JFileChooser();
-			fileChooser.setFileFilter( new FileNameExtensionFilter( "PGN files", "pgn"));
+			if( follow)
+				fileChooser.setFileFilter( new FileNameExtensionFilter( "PGN files", "pgn"));
+			else
+				fileChooser.setFileFilter( new FileNameExtensionFilter( "PGN files (also gzip or zip compressed)", "pgn", "gz", "zip"));
 			
 			int returnVal = fileChooser.showOpenDialog( ChessMenuBar.this.getParent());
 			if( returnVal == JFileChooser.APPROVE_OPTION)
 			{
 				File inputFile = fileChooser.getSelectedFile();
-				chessController.loadGame( inputFile);
+				if( follow)
+					chessController.followGame( inputFile);
+				else
+					chessController.loadGame( inputFile);
 			}
 		}
 	}
 
+	/* Action listener for Next Game and Previous Game menu items. When an action is performed, the next or previous game of the loaded file is loaded,
+	 * or the next or previous PGN file in the folder if there are no more games in the file.
+	 */
+	private class AdjacentGameMenuItemActionListener implements ActionListener
+	{
+		private int direction;
+		
+		public AdjacentGameMenuItemActionListener( int direction)
+		{
+			this.direction = direction;
+		}
+		
+		public void actionPerformed( ActionEvent event)
+		{
+			chessController.loadAdjacentGame( direction);
+		}
+	}
+
+	/* Action listener for Export Replay as GIF menu item. When an action is performed, open a save dialog for GIF files.
+	 * The replay of the loaded game is exported to the file chosen from the dialog.
+	 */
+	private class ExportGifMenuItemActionListener implements ActionListener
+	{
+		public void actionPerformed( ActionEvent event)
+		{
+			JFileChooser fileChooser = new JFileChooser();
+			fileChooser.setFileFilter( new FileNameExtensionFilter( "GIF files", "gif"));
+			
+			int returnVal = fileChooser.showSaveDialog( ChessMenuBar.this.getParent());
+			if( returnVal == JFileChooser.APPROVE_OPTION)
+			{
+				File outputFile = fileChooser.getSelectedFile();
+				if( !outputFile.getName().toLowerCase().endsWith( ".gif"))
+					outputFile = new File( outputFile.getPath() + ".gif");
+				chessController.exportReplay( outputFile, false);
+			}
+		}
+	}
+
+	/* Action listener for Export Replay as PNG Frames menu item. When an action is performed, open a dialog for directories.
+	 * The replay of the loaded game is exported to the directory chosen from the dialog, as a PNG file for each frame.
+	 */
+	private class ExportFramesMenuItemActionListener implements ActionListener
+	{
+		public void actionPerformed( ActionEvent event)
+		{
+			JFileChooser fileChooser = new JFileChooser();
+			fileChooser.setFileSelectionMode( JFileChooser.DIRECTORIES_ONLY);
+			
+			int returnVal = fileChooser.showSaveDialog( ChessMenuBar.this.getParent());
+			if( returnVal == JFileChooser.APPROVE_OPTION)
+				chessController.exportReplay( fileChooser.getSelectedFile(), true);
+		}
+	}
+
+	/* Action listener for Enter Variation menu item. When an action is performed, a variation of the last played move is entered, 
+	 * which is chosen from a dialog if the move has several variations.
+	 */
+	private class EnterVariationMenuItemActionListener implements ActionListener
+	{
+		public void actionPerformed( ActionEvent event)
+		{
+			chessController.enterVariation();
+		}
+	}
+
+	// Action listener for Leave Variation menu item. When an action is performed, the variation being replayed is left for its parent line.
+	private class LeaveVariationMenuItemActionListener implements ActionListener
+	{
+		public void actionPerformed( ActionEvent event)
+		{
+			chessController.leaveVariation();
+		}
+	}
+
 	// Action listener for Change Settings menu item. When an action is performed, the settings screen is opened.
 	private class SettingsMenuItemActionListener implements ActionListener
 	{
@@ -1,23 +1,30 @@
 /**
  * Part of the view of the MVC pattern. Handles the information panel, which includes game tags and the list of moves, on the right side of the user interface.
+ * A variation in the list of moves can be entered by double clicking it.
  */
 
 package chessreplayer.view;
 
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.Point;
-import java.util.HashMap;
-import java.util.List;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.DefaultListSelectionModel;
+import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
-import javax.swing.JTextArea;
-import javax.swing.text.BadLocationException;
-import javax.swing.text.Caret;
-import javax.swing.text.DefaultHighlighter;
-import javax.swing.text.Highlighter;
+import javax.swing.ListSelectionModel;
+
+import chessreplayer.controller.ChessController;
+import chessreplayer.model.Game;
+import chessreplayer.model.Variation;
 
 public class InfoPanel extends JPanel
 {
@@ -25,18 +32,16 @@ public class InfoPanel extends JPanel
 	public static final int WIDTH = 250;
 	public static final Color BACKGROUND_COLOR = Color.LIGHT_GRAY;
 	public static final Color HIGHLIGHT_COLOR = Color.GRAY;
-	
-	private List<String> moveTextList;
-	private JTextArea textArea;
-	private Caret caret;
+
+	private ChessController chessController;
+	private MoveListModel moveListModel;
+	private JList<String> moveList;
 	private JScrollPane scrollPane;
-	private Highlighter highlighter;
-	private DefaultHighlighter.DefaultHighlightPainter highLightPainter;
-	
-	private static final String newLine = System.getProperty( "line.separator");
+	private int highlightedMoveIndex;
 
-	/* Create the info panel with a fixed width and the given height. The info panel has a non-editable text area in a scroll pane. 
-	 * Also set up a highlight painter, to highlight the last move in the list of moves.
+	/* Create the info panel with a fixed width and the given height. The info panel has a list in a scroll pane, which shows a row for each
+	 * game tag, move text, comment and recursive variation. Rows have a fixed height and width, so that the list only renders the visible rows
+	 * instead of measuring all of them. The rows cannot be selected by the user, the last move is highlighted by the cell renderer instead.
 	 */
 	public InfoPanel( int initialHeight)
 	{
@@ -45,86 +50,147 @@ public class InfoPanel extends JPanel
 		this.setMaximumSize( new Dimension( WIDTH, Integer.MAX_VALUE));
 		this.setPreferredSize( new Dimension( WIDTH, initialHeight));
 		this.setSize( WIDTH, initialHeight);
-		
-		textArea = new JTextArea();
-		textArea.setEditable( false);
-		textArea.setWrapStyleWord( true);
-		textArea.setLineWrap( true);
-		textArea.setBackground( BACKGROUND_COLOR);
-		
-		highLightPainter = new DefaultHighlighter.DefaultHighlightPainter( HIGHLIGHT_COLOR);
-		caret = textArea.getCaret();
-		caret.setVisible( false);
-		
+
+		highlightedMoveIndex = -1;
+
+		moveList = new JList<String>()
+		{
+			private static final long serialVersionUID = -2465383734733282405L;
+
+			// Show the whole text of a row as its tooltip, as long comments may not fit in the width of the info panel.
+			@Override
+			public String getToolTipText( MouseEvent event)
+			{
+				int index = locationToIndex( event.getPoint());
+				if( index < 0 || getModel().getSize() == 0)
+					return null;
+
+				String text = getModel().getElementAt( index);
+				return ( text == null || text.isEmpty()) ? null : text;
+			}
+		};
+		moveList.setBackground( BACKGROUND_COLOR);
+		moveList.setSelectionModel( new NoSelectionModel());
+		moveList.setCellRenderer( new MoveCellRenderer());
+		moveList.setFixedCellWidth( WIDTH);
+		moveList.setFixedCellHeight( moveList.getFontMetrics( moveList.getFont()).getHeight() + 2);
+		moveList.setToolTipText( "");
+		moveList.addMouseListener( new VariationMouseListener());
+
 		scrollPane = new JScrollPane();
 		scrollPane.setBorder( null);
 		scrollPane.setHorizontalScrollBarPolicy( JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
 		scrollPane.setVerticalScrollBarPolicy( JScrollPane.VERTICAL_SCROLLBAR_NEVER);
-		scrollPane.setViewportView( textArea);
-		
+		scrollPane.setViewportView( moveList);
+
 		this.setLayout( new GridLayout( 1,1));
 		this.add( scrollPane);
 	}
-	
-	// Initialize the info panel by adding the given game tags and move texts to the text area.
-	public void initializeView( List<String> moveTextList, HashMap<String, String> tagMap)
+
+	/* Initialize the info panel by creating a list model for the game tags and move texts of the given line of the given game, 
+	 * which is the given variation, or the main line if the variation is null.
+	 */
+	public void initializeView( Game game, Variation variation)
 	{
-		this.moveTextList = moveTextList;
-		
-		for( String key : tagMap.keySet())
-		{
-			String value = tagMap.get( key);
-			textArea.append( key + " : " + value + newLine);
-		}
-		
-		if( !tagMap.isEmpty())
-			textArea.append( newLine);
-		
-		for( String str : this.moveTextList)
-			textArea.append( str + newLine);
-		
-		highlighter = textArea.getHighlighter();
+		moveListModel = new MoveListModel( game, variation);
+		highlightedMoveIndex = -1;
+		moveList.setModel( moveListModel);
 	}
-	
+
 	// Clear the info panel
 	public void reset()
 	{
-		this.moveTextList = null; 
-		this.textArea.setText( null);
+		this.moveListModel = null;
+		this.highlightedMoveIndex = -1;
+		this.moveList.setModel( new DefaultListModel<String>());
 		this.scrollPane.getViewport().setViewPosition( new Point( 0,0));
-		if( this.highlighter != null)
-			this.highlighter.removeAllHighlights();
 	}
-	
-	/* Update the info panel by highlighting the text of the last played move, using the given last played move index; 
-	 * and scroll the panel as necessary by setting the caret position.
+
+	/* Update the info panel by highlighting the rows of the last played move, using the given last played move index;
+	 * and scroll the panel as necessary to make the rows visible.
 	 */
 	public void updateView( int lastPlayedMoveIndex)
 	{
 		int moveIndex = lastPlayedMoveIndex - 1; // Index starts from 0
-		
+
 		// If there are no move texts, there is nothing to highlight
-		if( this.moveTextList != null && moveIndex < this.moveTextList.size())
+		if( this.moveListModel != null && moveIndex < this.moveListModel.getMoveCount())
 		{
-			// No moves has been played yet. Remove all highlights and scroll to the beginning.
+			highlightedMoveIndex = moveIndex;
+
+			// No moves has been played yet. Remove the highlight and scroll to the beginning of the moves.
 			if( moveIndex < 0)
 			{
-				highlighter.removeAllHighlights();
-				textArea.setCaretPosition( textArea.getText().indexOf( this.moveTextList.get( 0) + newLine));
+				if( this.moveListModel.getMoveCount() > 0)
+					moveList.ensureIndexIsVisible( this.moveListModel.getFirstRow( 0));
 			}
-			else
+			else // Scroll as necessary to make the rows of the last played move visible.
 			{
-				// Find the beginning and end indexes of the text of the last played move in the text area.
-				int startIndex = textArea.getText().indexOf( this.moveTextList.get( moveIndex) + newLine);
-				int endIndex = startIndex + this.moveTextList.get( moveIndex).length();
-				
-				// Highlight the text between the beginning and end indexes, and set the caret position to the end index to scroll as necessary.
-				highlighter.removeAllHighlights();
-				textArea.setCaretPosition( endIndex);
-				try {
-					highlighter.addHighlight( startIndex, endIndex, highLightPainter);
-				} catch (BadLocationException e) {}
+				moveList.ensureIndexIsVisible( this.moveListModel.getLastRow( moveIndex));
+				moveList.ensureIndexIsVisible( this.moveListModel.getFirstRow( moveIndex));
 			}
+			moveList.repaint();
+		}
+	}
+
+	// Register the controller, which is used to enter the variations double clicked in the list of moves.
+	public void registerController( ChessController chessController)
+	{
+		this.chessController = chessController;
+	}
+
+	// Enters the variation of a row of the list of moves when the row is double clicked.
+	private class VariationMouseListener extends MouseAdapter
+	{
+		@Override
+		public void mouseClicked( MouseEvent event)
+		{
+			if( event.getClickCount() != 2 || chessController == null || moveListModel == null)
+				return;
+
+			// The nearest row is returned for a point below the last row, so check that the point is in the row
+			int row = moveList.locationToIndex( event.getPoint());
+			if( row < 0 || !moveList.getCellBounds( row, row).contains( event.getPoint()))
+				return;
+
+			int variationIndex = moveListModel.getVariationIndex( row);
+			if( variationIndex >= 0)
+				chessController.enterVariation( moveListModel.getMoveIndex( row), variationIndex);
+		}
+	}
+
+	// Renders the rows of the last played move with the highlight color, and the other rows with the background color.
+	private class MoveCellRenderer extends DefaultListCellRenderer
+	{
+		private static final long serialVersionUID = 7706193407591563787L;
+
+		@Override
+		public Component getListCellRendererComponent( JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus)
+		{
+			JLabel label = (JLabel) super.getListCellRendererComponent( list, value, index, false, false);
+
+			boolean isHighlighted = moveListModel != null && highlightedMoveIndex >= 0 &&
+									moveListModel.getMoveIndex( index) == highlightedMoveIndex;
+			label.setBackground( isHighlighted ? HIGHLIGHT_COLOR : BACKGROUND_COLOR);
+			return label;
+		}
+	}
+
+	// A selection model that ignores selection changes, so that the user cannot select rows of the list.
+	private static class NoSelectionModel extends DefaultListSelectionModel
+	{
+		private static final long serialVersionUID = -4218960624431349932L;
+
+		@Override
+		public void setSelectionInterval( int index0, int index1) {}
+
+		@Override
+		public void addSelectionInterval( int index0, int index1) {}
+
+		@Override
+		public int getSelectionMode()
+		{
+			return ListSelectionModel.SINGLE_SELECTION;
 		}
 	}
 }
@@ -0,0 +1,160 @@
+/**
+ * Part of the view of the MVC pattern. A list model that presents game tags and move texts of a game as rows of the info panel.
+ * The moves are the moves of the line being replayed, i.e. the main line or a variation, followed by the variations that can be entered from it.
+ * Row texts are not stored, they are created from the game only when a row is rendered, so that only the visible rows are built.
+ */
+
+package chessreplayer.view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.swing.AbstractListModel;
+
+import chessreplayer.model.Game;
+import chessreplayer.model.Variation;
+import chessreplayer.move.Move;
+
+public class MoveListModel extends AbstractListModel<String>
+{
+	private static final long serialVersionUID = -5201468335316893046L;
+
+	private Game game;
+	private Variation variation; // Variation being replayed, or null for the main line
+	private ArrayList<String> tagRows;
+	private int headerRowCount;
+	private int[] moveRowOffsets; // Index of the first row of each move, in the order of the list of moves
+	private int rowCount;
+
+	/* Create a list model for the given line of the given game, which is the given variation, or the main line if the variation is null. 
+	 * Tags are few, so their rows are created here. For moves, only the index of the first row of each move is calculated. A move takes one row 
+	 * for its move text and one row for each of its comments and each of the variations replacing it.
+	 */
+	public MoveListModel( Game game, Variation variation)
+	{
+		this.game = game;
+		this.variation = variation;
+
+		Map<String, String> tagMap = game.getTagMap();
+		tagRows = new ArrayList<String>();
+		for( String key : tagMap.keySet())
+			tagRows.add( key + " : " + tagMap.get( key));
+
+		// Put an empty row between the tags and the moves, if there are any tags
+		headerRowCount = tagRows.isEmpty() ? 0 : tagRows.size() + 1;
+
+		moveRowOffsets = new int[ ( variation == null) ? game.getMoveCount() : variation.getMoveCount()];
+		rowCount = headerRowCount;
+		for( int i = 0; i < moveRowOffsets.length; i++)
+		{
+			Move move = getMove( i);
+			moveRowOffsets[i] = rowCount;
+			rowCount += 1 + move.getCommentList().size() + getVariationCount( i);
+		}
+	}
+
+	@Override
+	public int getSize()
+	{
+		return rowCount;
+	}
+
+	// Create and return the text of the row with the given index.
+	@Override
+	public String getElementAt( int index)
+	{
+		if( index < tagRows.size())
+			return tagRows.get( index);
+		else if( index < headerRowCount)
+			return "";
+
+		int moveIndex = getMoveIndex( index);
+		int subRow = index - moveRowOffsets[ moveIndex];
+		Move move = getMove( moveIndex);
+
+		// The first row of a move is its move text, followed by its comments and then its recursive variations, as in Move.getFullText()
+		if( subRow == 0)
+		{
+			String text = move.getTurnIndex() + ". " + move.getMoveText();
+			if( move.getNumericalAnnotationGlyph() != null)
+				text += move.getNumericalAnnotationGlyph();
+			return text;
+		}
+		else if( subRow <= move.getCommentList().size())
+			return toSingleLine( move.getCommentList().get( subRow - 1));
+		else if( variation == null) // The variations of the main line are shown as they are in the input, with their comments
+			return toSingleLine( move.getRecursiveVariationList().get( subRow - 1 - move.getCommentList().size()));
+		else
+			return toSingleLine( variation.getVariations( moveIndex).get( subRow - 1 - move.getCommentList().size()).toString());
+	}
+	
+	/* Return the index of the variation shown by the row with the given index, among the variations replacing the move the row belongs to, 
+	 * or -1 if the row doesn't show a variation.
+	 */
+	public int getVariationIndex( int row)
+	{
+		int moveIndex = getMoveIndex( row);
+		if( moveIndex < 0)
+			return -1;
+		
+		int variationIndex = row - moveRowOffsets[ moveIndex] - 1 - getMove( moveIndex).getCommentList().size();
+		return ( variationIndex < 0) ? -1 : variationIndex;
+	}
+
+	// Return the index of the first row of the move with the given index.
+	public int getFirstRow( int moveIndex)
+	{
+		return moveRowOffsets[ moveIndex];
+	}
+
+	// Return the index of the last row of the move with the given index.
+	public int getLastRow( int moveIndex)
+	{
+		if( moveIndex + 1 < moveRowOffsets.length)
+			return moveRowOffsets[ moveIndex + 1] - 1;
+		else
+			return rowCount - 1;
+	}
+
+	// Return the index of the move the row with the given index belongs to, or -1 if the row belongs to the tags.
+	public int getMoveIndex( int row)
+	{
+		if( row < headerRowCount)
+			return -1;
+
+		int index = Arrays.binarySearch( moveRowOffsets, row);
+
+		// If the row is not the first row of a move, binary search returns (-(insertion point) - 1), and the move is the one before the insertion point.
+		if( index < 0)
+			index = -index - 2;
+
+		return index;
+	}
+
+	public int getMoveCount()
+	{
+		return moveRowOffsets.length;
+	}
+
+	// Return the move at the given index of the line
+	private Move getMove( int index)
+	{
+		return ( variation == null) ? game.getMove( index) : variation.getMove( index);
+	}
+	
+	// Return the number of variations replacing the move at the given index of the line, which can be entered from the line
+	private int getVariationCount( int index)
+	{
+		if( variation == null)
+			return game.getMove( index).getRecursiveVariationList().size();
+		
+		return variation.getVariations( index).size();
+	}
+
+	// Comments and recursive variations may span multiple lines in the input file, while a row can only display a single line.
+	private static String toSingleLine( String text)
+	{
+		return text.replace( '\r', ' ').replace( '\n', ' ');
+	}
+}
@@ -1,20 +1,24 @@
 /**
- * Part of the view of the MVC pattern. Handles take back one move, toggle auto play and play one move buttons. 
+ * Part of the view of the MVC pattern. Handles take back one move, toggle auto play, play one move and toggle fast forward buttons, and the fast forward speed box. 
  * It's located between the menu bar and the chess board in the user interface.
  */
 
 package chessreplayer.view;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
+import java.awt.Graphics2D;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JPanel;
+import javax.swing.SwingWorker;
 
 import chessreplayer.controller.ChessController;
 
@@ -23,14 +27,17 @@ public class PlayPanel extends JPanel
 	private static final long serialVersionUID = -923493304140630296L;
 	public static final int HEIGHT = 40;
 	public static final Color BACKGROUND_COLOR = Color.LIGHT_GRAY;
+	public static final int[] FAST_FORWARD_SPEEDS = { 10, 100, 1000, 10000}; // Moves played per second in fast forward
 	
-	private BufferedImage takeBackOneMoveButtonImage, startAutoPlayButtonImage, stopAutoPlayButtonImage, playOneMoveButtonImage;
-	private JButton takeBackOneMove, toggleAutoPlay, playOneMove;
-	private boolean autoPlayState;
+	private BufferedImage takeBackOneMoveButtonImage, startAutoPlayButtonImage, stopAutoPlayButtonImage, playOneMoveButtonImage, 
+							startFastForwardButtonImage;
+	private JButton takeBackOneMove, toggleAutoPlay, playOneMove, toggleFastForward;
+	private JComboBox<String> fastForwardSpeed;
+	private boolean autoPlayState, fastForwardState;
 	private ChessController chessController;
 	
-	/* Create the play panel with a fixed height and the given width, and create four images: 
-	 * one for take back one move button, two for toggle auto play button and one for play one move button.
+	/* Create the play panel with a fixed height and the given width, and create five images: 
+	 * one for take back one move button, two for toggle auto play button, one for play one move button and one for toggle fast forward button.
 	 */
 	public PlayPanel( int initialWidth)
 	{
@@ -46,54 +53,130 @@ public class PlayPanel extends JPanel
 		startAutoPlayButtonImage = new BufferedImage( (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), BufferedImage.TYPE_INT_ARGB);
 		stopAutoPlayButtonImage = new BufferedImage( (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), BufferedImage.TYPE_INT_ARGB);
 		playOneMoveButtonImage = new BufferedImage( (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), BufferedImage.TYPE_INT_ARGB);
+		startFastForwardButtonImage = new BufferedImage( (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), BufferedImage.TYPE_INT_ARGB);
 	}
 
-	/* Initialize the play panel by drawing the button images using image files. Image files are read from the file system by static methods of ChessImage class. 
-	 * After the button images are ready, create take back one move, toggle auto play and play one move buttons using the images, set tooltip texts and 
-	 * action listeners of the buttons, disable them and add them to the play panel. Initially, auto play state is false, which means toggle auto play button 
-	 * is created using start auto play button image instead of stop auto play button image.
+	/* Initialize the play panel by creating take back one move, toggle auto play and play one move buttons using the button images, setting tooltip texts and 
+	 * action listeners of the buttons, disabling them and adding them to the play panel. The button images are drawn after their image files are decoded 
+	 * in the background, so the panel is shown without waiting for them. Initially, auto play state is false, which means toggle auto play button 
+	 * is created using start auto play button image instead of stop auto play button image. There is no separate image file for toggle fast forward button, 
+	 * its image is drawn as two play one move button images side by side. While fast forward is on, it uses stop auto play button image.
 	 */
 	public void initialize()
 	{
-		takeBackOneMoveButtonImage.createGraphics().drawImage( ChessImage.getTakeBackOneMoveButtonImage(), 0, 0, (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), null, null);
-		startAutoPlayButtonImage.createGraphics().drawImage( ChessImage.getStartAutoPlayButtonImage(), 0, 0, (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), null, null);
-		stopAutoPlayButtonImage.createGraphics().drawImage( ChessImage.getStopAutoPlayButtonImage(), 0, 0, (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), null, null);
-		playOneMoveButtonImage.createGraphics().drawImage( ChessImage.getPlayOneMoveButtonImage(), 0, 0, (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), null, null);
-		
 		takeBackOneMove = new JButton( new ImageIcon( takeBackOneMoveButtonImage));
 		toggleAutoPlay = new JButton( new ImageIcon( startAutoPlayButtonImage));
 		playOneMove = new JButton( new ImageIcon( playOneMoveButtonImage));
+		toggleFastForward = new JButton( new ImageIcon( startFastForwardButtonImage));
+		
+		fastForwardSpeed = new JComboBox<String>();
+		for( int speed : FAST_FORWARD_SPEEDS)
+			fastForwardSpeed.addItem( speed + " moves/s");
 		
 		autoPlayState = false;
+		fastForwardState = false;
 		
 		takeBackOneMove.setToolTipText( "Take back one move");
 		toggleAutoPlay.setToolTipText( "Start/stop auto play");
 		playOneMove.setToolTipText( "Play one move");
+		toggleFastForward.setToolTipText( "Start/stop fast forward");
+		fastForwardSpeed.setToolTipText( "Fast forward speed");
 
 		takeBackOneMove.addActionListener( new TakeBackOneMoveListener());
 		toggleAutoPlay.addActionListener( new ToggleAutoPlayListener());
 		playOneMove.addActionListener( new PlayOneMoveListener());
+		toggleFastForward.addActionListener( new ToggleFastForwardListener());
+		fastForwardSpeed.addActionListener( new FastForwardSpeedListener());
 		
 		takeBackOneMove.setEnabled( false);
 		toggleAutoPlay.setEnabled( false);
 		playOneMove.setEnabled( false);
+		toggleFastForward.setEnabled( false);
 		
 		this.setLayout( new FlowLayout( FlowLayout.CENTER, (int)(HEIGHT * 0.75d), 0));
 		this.add( takeBackOneMove);
 		this.add( toggleAutoPlay);
 		this.add( playOneMove);
+		this.add( toggleFastForward);
+		this.add( fastForwardSpeed);
+		
+		loadButtonImages();
+	}
+	
+	/* Wait for the button image files to be decoded in a background thread, and then draw the button images in the event dispatch thread. 
+	 * Until then, the buttons show their empty images.
+	 */
+	private void loadButtonImages()
+	{
+		new SwingWorker<Void, Void>()
+			{
+				@Override
+				protected Void doInBackground()
+				{
+					ChessImage.waitForDeferredImages();
+					return null;
+				}
+				
+				@Override
+				protected void done()
+				{
+					drawButtonImages();
+					takeBackOneMove.setIcon( new ImageIcon( takeBackOneMoveButtonImage));
+					toggleAutoPlay.setIcon( new ImageIcon( autoPlayState ? stopAutoPlayButtonImage : startAutoPlayButtonImage));
+					playOneMove.setIcon( new ImageIcon( playOneMoveButtonImage));
+					toggleFastForward.setIcon( new ImageIcon( fastForwardState ? stopAutoPlayButtonImage : startFastForwardButtonImage));
+					PlayPanel.this.repaint();
+				}
+			}.execute();
 	}
 
-	// Stop auto play if necessary, and disable the buttons.
+	/* Redraw the button images after the images of ChessImage class are reloaded. The buttons keep using the same images, 
+	 * so they only need to be repainted.
+	 */
+	public void reloadImages()
+	{
+		for( BufferedImage image : new BufferedImage[]{ takeBackOneMoveButtonImage, startAutoPlayButtonImage, stopAutoPlayButtonImage, 
+														playOneMoveButtonImage, startFastForwardButtonImage})
+		{
+			Graphics2D graphics = image.createGraphics();
+			graphics.setComposite( AlphaComposite.Clear);
+			graphics.fillRect( 0, 0, image.getWidth(), image.getHeight());
+			graphics.dispose();
+		}
+		
+		drawButtonImages();
+		this.repaint();
+	}
+	
+	// Draw the button images using the images of ChessImage class.
+	private void drawButtonImages()
+	{
+		takeBackOneMoveButtonImage.createGraphics().drawImage( ChessImage.getTakeBackOneMoveButtonImage(), 0, 0, (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), null, null);
+		startAutoPlayButtonImage.createGraphics().drawImage( ChessImage.getStartAutoPlayButtonImage(), 0, 0, (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), null, null);
+		stopAutoPlayButtonImage.createGraphics().drawImage( ChessImage.getStopAutoPlayButtonImage(), 0, 0, (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), null, null);
+		playOneMoveButtonImage.createGraphics().drawImage( ChessImage.getPlayOneMoveButtonImage(), 0, 0, (int)(HEIGHT * 0.75d), (int)(HEIGHT * 0.75d), null, null);
+		
+		Graphics2D fastForwardGraphics = startFastForwardButtonImage.createGraphics();
+		fastForwardGraphics.drawImage( ChessImage.getPlayOneMoveButtonImage(), 0, (int)(HEIGHT * 0.1875d), (int)(HEIGHT * 0.375d), (int)(HEIGHT * 0.375d), null, null);
+		fastForwardGraphics.drawImage( ChessImage.getPlayOneMoveButtonImage(), (int)(HEIGHT * 0.375d), (int)(HEIGHT * 0.1875d), (int)(HEIGHT * 0.375d), (int)(HEIGHT * 0.375d), null, null);
+		fastForwardGraphics.dispose();
+	}
+	
+	// Stop auto play and fast forward if necessary, and disable the buttons.
 	public void reset()
 	{
 		// If the game is on auto play, stop it
 		if( autoPlayState)
 			toggleAutoPlay.doClick();
 		
+		// If the game is on fast forward, stop it
+		if( fastForwardState)
+			toggleFastForward.doClick();
+		
 		takeBackOneMove.setEnabled( false);
 		toggleAutoPlay.setEnabled( false);
 		playOneMove.setEnabled( false);
+		toggleFastForward.setEnabled( false);
 	}
 	
 	// Register the controller to establish the link between view and controller. It will be used by action listeners of the buttons.
@@ -102,19 +185,24 @@ public class PlayPanel extends JPanel
 		this.chessController = chessController;
 	}
 
-	/* Update the play panel. Stop auto play if it is on and the game has ended; 
-	 * enable take back one move button if the game has started and auto play is off, otherwise disable it; 
-	 * enable auto play button if the game hasn't ended, otherwise disable it; 
-	 * enable play one move button if the game hasn't ended and auto play is off, otherwise disable it.
+	/* Update the play panel. Stop auto play or fast forward if it is on and the game has ended; 
+	 * enable take back one move button if the game has started and both auto play and fast forward are off, otherwise disable it; 
+	 * enable auto play button if the game hasn't ended and fast forward is off, otherwise disable it; 
+	 * enable play one move button if the game hasn't ended and both auto play and fast forward are off, otherwise disable it;
+	 * enable fast forward button if the game hasn't ended and auto play is off, otherwise disable it.
 	 */
 	public void updateView( boolean hasStarted, boolean hasEnded)
 	{
 		if( hasEnded && autoPlayState)
 			toggleAutoPlay.doClick();
 		
-		takeBackOneMove.setEnabled( hasStarted && !autoPlayState);
-		toggleAutoPlay.setEnabled( !hasEnded);
-		playOneMove.setEnabled( !hasEnded && !autoPlayState);
+		if( hasEnded && fastForwardState)
+			toggleFastForward.doClick();
+		
+		takeBackOneMove.setEnabled( hasStarted && !autoPlayState && !fastForwardState);
+		toggleAutoPlay.setEnabled( !hasEnded && !fastForwardState);
+		playOneMove.setEnabled( !hasEnded && !autoPlayState && !fastForwardState);
+		toggleFastForward.setEnabled( !hasEnded && !autoPlayState);
 	}
 	
 	/* Action listener for take back one move button. When an action is performed, 
@@ -127,14 +215,15 @@ public class PlayPanel extends JPanel
 			takeBackOneMove.setEnabled( false);
 			toggleAutoPlay.setEnabled( false);
 			playOneMove.setEnabled( false);
+			toggleFastForward.setEnabled( false);
 			
 			chessController.takeBackMove();
 		}
 	}
 	
 	/* Action listener for toggle auto play button. When an action is performed, first toggles auto play state. 
-	 * If the new state in on, disables the other two buttons, starts auto play and changes button image to stop auto play button image. 
-	 * Otherwise, stops auto play and changes button image to start auto play button image. The other two buttons will be enabled 
+	 * If the new state in on, disables the other three buttons, starts auto play and changes button image to stop auto play button image. 
+	 * Otherwise, stops auto play and changes button image to start auto play button image. The other three buttons will be enabled 
 	 * if necessary during view update.
 	 */
 	private class ToggleAutoPlayListener implements ActionListener
@@ -148,6 +237,7 @@ public class PlayPanel extends JPanel
 			{
 				takeBackOneMove.setEnabled( false);
 				playOneMove.setEnabled( false);
+				toggleFastForward.setEnabled( false);
 				chessController.startAutoPlay();
 				toggleAutoPlay.setIcon( new ImageIcon( stopAutoPlayButtonImage));
 			}
@@ -169,8 +259,47 @@ public class PlayPanel extends JPanel
 			takeBackOneMove.setEnabled( false);
 			toggleAutoPlay.setEnabled( false);
 			playOneMove.setEnabled( false);
+			toggleFastForward.setEnabled( false);
 			
 			chessController.playMove();
 		}
 	}
+	
+	/* Action listener for toggle fast forward button. When an action is performed, first toggles fast forward state. 
+	 * If the new state in on, disables the other three buttons, starts fast forward with the selected speed and changes button image 
+	 * to stop auto play button image. Otherwise, stops fast forward and changes button image back to start fast forward button image. 
+	 * The other three buttons will be enabled if necessary during view update.
+	 */
+	private class ToggleFastForwardListener implements ActionListener
+	{
+		public void actionPerformed( ActionEvent event)
+		{
+			boolean state = !fastForwardState;
+			fastForwardState = state;
+
+			if( state)
+			{
+				takeBackOneMove.setEnabled( false);
+				toggleAutoPlay.setEnabled( false);
+				playOneMove.setEnabled( false);
+				chessController.startFastForward( FAST_FORWARD_SPEEDS[ fastForwardSpeed.getSelectedIndex()]);
+				toggleFastForward.setIcon( new ImageIcon( stopAutoPlayButtonImage));
+			}
+			else
+			{
+				chessController.stopFastForward();
+				toggleFastForward.setIcon( new ImageIcon( startFastForwardButtonImage));
+			}
+		}
+	}
+	
+	// Action listener for fast forward speed box. If fast forward is on when a new speed is selected, restarts it with the new speed.
+	private class FastForwardSpeedListener implements ActionListener
+	{
+		public void actionPerformed( ActionEvent event)
+		{
+			if( fastForwardState)
+				chessController.startFastForward( FAST_FORWARD_SPEEDS[ fastForwardSpeed.getSelectedIndex()]);
+		}
+	}
 }
@@ -858,7 +858,7 @@ public class SettingsFrame extends JFrame
 						try {
 							properties.save();
 							String message = "Saved settings successfully!" + newLine + 
-												"File settings will take effect after restarting the application, " + 
+												"Image files are reloaded as soon as the settings file is reloaded, " + 
 												"while other settings are effective immediately.";
 							JOptionPane.showMessageDialog( SettingsFrame.this, message, null, JOptionPane.INFORMATION_MESSAGE);
 							SettingsFrame.this.dispose();